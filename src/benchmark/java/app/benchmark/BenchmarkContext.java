@@ -0,0 +1,68 @@
+package app.benchmark;
+
+import app.config.CacheConfig;
+import app.config.DbConfig;
+import app.config.WebConfig;
+import app.service.helpers.VotingMode;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.datasource.init.DataSourceInitializer;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.mock.web.MockServletContext;
+import org.springframework.web.context.support.AnnotationConfigWebApplicationContext;
+
+import javax.sql.DataSource;
+import java.util.HashMap;
+import java.util.Map;
+
+// Application context of the benchmarks: production configuration with embedded H2 database (MySQL mode) instead of MySQL
+final class BenchmarkContext {
+
+    // Must match the number of restaurants in benchmark_data_script.sql
+    static final int RESTAURANTS = 1000;
+
+    private BenchmarkContext() {
+    }
+
+    static AnnotationConfigWebApplicationContext start(VotingMode votingMode) {
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("database.driver", "org.h2.Driver");
+        properties.put("database.url", "jdbc:h2:mem:project;MODE=MySQL;DB_CLOSE_DELAY=-1");
+        properties.put("database.username", "sa");
+        properties.put("database.password", "");
+        // H2 rejects the properties of MySQL driver, the pool is large enough for the largest thread count
+        properties.put("database.pool.driver-properties", "");
+        properties.put("database.pool.maximum-size", "64");
+        properties.put("hibernate.dialect", "org.hibernate.dialect.H2Dialect");
+        properties.put("hibernate.show_sql", "false");
+        properties.put("hibernate.format_sql", "false");
+        properties.put("voting.mode", votingMode.name());
+        properties.put("voting.journal.directory", "target/benchmark-journal");
+
+        AnnotationConfigWebApplicationContext context = new AnnotationConfigWebApplicationContext();
+        context.setServletContext(new MockServletContext());
+        context.getEnvironment().getPropertySources().addFirst(new MapPropertySource("benchmark", properties));
+        context.register(DbConfig.class, WebConfig.class, CacheConfig.class, BenchmarkConfig.class);
+        context.refresh();
+        return context;
+    }
+
+    @Configuration
+    static class BenchmarkConfig {
+
+        // Overrides the initializer of DbConfig, whose MySQL script can't be executed by H2
+        @Bean
+        public DataSourceInitializer dataSourceInitializer(DataSource dataSource) {
+            ResourceDatabasePopulator resourceDatabasePopulator = new ResourceDatabasePopulator();
+            resourceDatabasePopulator.addScript(new ClassPathResource("/benchmark_data_script.sql"));
+            DataSourceInitializer dataSourceInitializer = new DataSourceInitializer();
+            dataSourceInitializer.setDataSource(dataSource);
+            dataSourceInitializer.setDatabasePopulator(resourceDatabasePopulator);
+            return dataSourceInitializer;
+        }
+
+    }
+
+}
@@ -0,0 +1,102 @@
+package app.benchmark;
+
+import app.dao.RestaurantRepository;
+import app.entity.Restaurant;
+import app.service.RestaurantService;
+import app.service.caching.RestaurantCache;
+import app.service.helpers.VotingMode;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.context.support.AnnotationConfigWebApplicationContext;
+
+import javax.persistence.EntityManagerFactory;
+import javax.sql.DataSource;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+// Deletes all meals (or all restaurants with their meals) of a dataset of 100 000 meals, either by the bulk deletes
+// of RestaurantService or entity by entity (as they were deleted before: every restaurant and meal is loaded and
+// removed through the persistence context, one DELETE statement per row). The dataset is rebuilt by JDBC before
+// every operation, which is not measured. Run by VotingBenchmarkRunner with 1 thread only
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 1, time = 1)
+@Measurement(iterations = 3, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Dorg.slf4j.simpleLogger.defaultLogLevel=warn")
+public class RestaurantDeleteBenchmark {
+
+    private static final int MEALS = 100_000;
+
+    // Entity path overflows the region of meals in the second-level cache, whose expired soft locks are logged one by one
+    private static final Logger HIBERNATE_LOGGER = Logger.getLogger("org.hibernate");
+
+    @Param({"true", "false"})
+    private boolean bulk;
+
+    private AnnotationConfigWebApplicationContext context;
+    private RestaurantService restaurantService;
+    private RestaurantRepository restaurantRepository;
+    private RestaurantCache restaurantCache;
+    private EntityManagerFactory entityManagerFactory;
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate transactionTemplate;
+
+    @Setup(Level.Trial)
+    public void startContext() {
+        HIBERNATE_LOGGER.setLevel(java.util.logging.Level.WARNING);
+        context = BenchmarkContext.start(VotingMode.ATOMIC);
+        restaurantService = context.getBean(RestaurantService.class);
+        restaurantRepository = context.getBean(RestaurantRepository.class);
+        restaurantCache = context.getBean(RestaurantCache.class);
+        entityManagerFactory = context.getBean(EntityManagerFactory.class);
+        jdbcTemplate = new JdbcTemplate(context.getBean(DataSource.class));
+        transactionTemplate = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+    }
+
+    @TearDown(Level.Trial)
+    public void closeContext() {
+        context.close();
+    }
+
+    // Restaurants of benchmark_data_script.sql with 100 meals each
+    @Setup(Level.Invocation)
+    public void insertMeals() {
+        jdbcTemplate.update("DELETE FROM meal");
+        jdbcTemplate.update("DELETE FROM restaurant");
+        jdbcTemplate.update("INSERT INTO restaurant (id, name, votes) SELECT X, CONCAT('Restaurant ', X), 0 " +
+                "FROM SYSTEM_RANGE(1, " + BenchmarkContext.RESTAURANTS + ")");
+        jdbcTemplate.update("INSERT INTO meal (name, category, price, restaurant) SELECT CONCAT('Meal ', X), 'MAIN', 100, " +
+                "MOD(X, " + BenchmarkContext.RESTAURANTS + ") + 1 FROM SYSTEM_RANGE(1, " + MEALS + ")");
+        entityManagerFactory.getCache().evictAll();
+        restaurantCache.clear();
+    }
+
+    @Benchmark
+    public void deleteAllMeals() {
+        if (bulk) {
+            restaurantService.deleteAllMeals();
+            return;
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            restaurantRepository.findAll().forEach(Restaurant::removeMeals);
+            restaurantCache.evictAllRestaurants();
+        });
+    }
+
+    // Votes and leaderboard are reset the same way whatever the deletes, the entity path leaves them out
+    @Benchmark
+    public void deleteAllRestaurants() {
+        if (bulk) {
+            restaurantService.deleteAllRestaurants();
+            return;
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            restaurantRepository.deleteAll();
+            restaurantCache.clear();
+        });
+    }
+
+}
@@ -0,0 +1,67 @@
+package app.benchmark;
+
+import app.entity.Restaurant;
+import app.service.RestaurantService;
+import app.service.helpers.RestaurantCursor;
+import app.service.helpers.RestaurantSorter;
+import app.service.helpers.VotingMode;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.data.domain.Sort;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.context.support.AnnotationConfigWebApplicationContext;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Keyset pages of 100 restaurants with their meals (never served from the response cache, so every page is loaded),
+// either in the read-only transaction of RestaurantService or inside a read-write transaction
+// (as they were read when the controller was transactional). Run with the GC profiler by VotingBenchmarkRunner,
+// the difference of the allocated bytes per operation is the cost of flushing and dirty checking of the page
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 3)
+@Fork(value = 1, jvmArgsAppend = "-Dorg.slf4j.simpleLogger.defaultLogLevel=warn")
+public class RestaurantReadBenchmark {
+
+    private static final int PAGE_SIZE = 100;
+
+    @Param({"true", "false"})
+    private boolean readOnly;
+
+    private AnnotationConfigWebApplicationContext context;
+    private RestaurantService restaurantService;
+    private TransactionTemplate readWriteTransaction;
+    private final AtomicInteger pages = new AtomicInteger();
+
+    @Setup(Level.Trial)
+    public void startContext() {
+        context = BenchmarkContext.start(VotingMode.ATOMIC);
+        restaurantService = context.getBean(RestaurantService.class);
+        readWriteTransaction = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+    }
+
+    @TearDown(Level.Trial)
+    public void closeContext() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<Restaurant> getAllRestaurantsAfter() {
+        int after = pages.getAndIncrement() % (BenchmarkContext.RESTAURANTS / PAGE_SIZE) * PAGE_SIZE;
+        RestaurantCursor cursor = RestaurantCursor.afterId(Sort.Direction.ASC, after);
+        if (readOnly) {
+            return getPage(cursor);
+        }
+        return readWriteTransaction.execute(status -> getPage(cursor));
+    }
+
+    private List<Restaurant> getPage(RestaurantCursor cursor) {
+        return restaurantService.getAllRestaurantsAfter(RestaurantService.ListView.DETAILED, RestaurantSorter.ID, Sort.Direction.ASC, cursor, PAGE_SIZE)
+                .getRestaurants();
+    }
+
+}
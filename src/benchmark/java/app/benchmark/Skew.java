@@ -0,0 +1,41 @@
+package app.benchmark;
+
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+
+// Popularity of restaurants among voters
+public enum Skew {
+
+    // Every restaurant is voted equally often
+    UNIFORM,
+    // Restaurant with id = k is voted 1 / k^0.99 times as often as the restaurant with id = 1 (as in YCSB)
+    ZIPFIAN;
+
+    private static final double ZIPFIAN_EXPONENT = 0.99;
+
+    // Returns the generator of ids of voted restaurants (1..restaurants), it may be shared by threads
+    public Picker picker(int restaurants) {
+        if (this == UNIFORM) {
+            return () -> 1 + ThreadLocalRandom.current().nextInt(restaurants);
+        }
+        double[] cumulative = new double[restaurants];
+        double sum = 0;
+        for (int i = 0; i < restaurants; i++) {
+            sum += 1 / Math.pow(i + 1, ZIPFIAN_EXPONENT);
+            cumulative[i] = sum;
+        }
+        for (int i = 0; i < restaurants; i++) {
+            cumulative[i] /= sum;
+        }
+        return () -> {
+            int index = Arrays.binarySearch(cumulative, ThreadLocalRandom.current().nextDouble());
+            return 1 + Math.min(index >= 0 ? index : -index - 1, restaurants - 1);
+        };
+    }
+
+    @FunctionalInterface
+    public interface Picker {
+        int next();
+    }
+
+}
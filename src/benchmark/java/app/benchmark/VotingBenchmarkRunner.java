@@ -0,0 +1,94 @@
+package app.benchmark;
+
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.NoBenchmarksException;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Runs the benchmarks for every thread count of benchmark.threads (JMH runs each thread count separately)
+// and prints the throughput (ops/s), the 99th percentile of the latency (us) and the bytes allocated per operation
+// (by GCProfiler) of every combination of the parameters. Parameters a benchmark doesn't declare are ignored by JMH.
+// Started by "mvn -P benchmark test", see the benchmark profile in pom.xml.
+public class VotingBenchmarkRunner {
+
+    // Benchmarks which rebuild the whole dataset before every operation are run with 1 thread only
+    private static final String SINGLE_THREADED = "app\\.benchmark\\.RestaurantDeleteBenchmark\\.";
+
+    public static void main(String[] args) throws RunnerException {
+        String include = System.getProperty("benchmark.include", "app.benchmark.*");
+        String[] threads = System.getProperty("benchmark.threads", "1,2,4,8,16,32,64").split(",");
+        String[] votingModes = System.getProperty("benchmark.voting-modes", "DIRECT,ATOMIC,BUFFERED").split(",");
+        String[] skews = System.getProperty("benchmark.skews", "UNIFORM,ZIPFIAN").split(",");
+
+        List<RunResult> results = new ArrayList<>();
+        for (String threadCount : threads) {
+            results.addAll(run(options(include, votingModes, skews)
+                    .exclude(SINGLE_THREADED)
+                    .threads(Integer.parseInt(threadCount.trim()))));
+        }
+        // Both patterns must match the name of a single-threaded benchmark
+        results.addAll(run(options("^(?=.*(?:" + include + "))" + SINGLE_THREADED, votingModes, skews).threads(1)));
+        printSummary(results);
+    }
+
+    private static ChainedOptionsBuilder options(String include, String[] votingModes, String[] skews) {
+        return new OptionsBuilder()
+                .include(include)
+                .param("votingMode", votingModes)
+                .param("skew", skews)
+                .addProfiler(GCProfiler.class);
+    }
+
+    // benchmark.include may match no benchmark of a run
+    private static Collection<RunResult> run(ChainedOptionsBuilder options) throws RunnerException {
+        try {
+            return new Runner(options.build()).run();
+        }
+        catch (NoBenchmarksException e) {
+            return Collections.emptyList();
+        }
+    }
+
+    // Throughput and SampleTime results of the same benchmark, parameters and thread count are printed in one row
+    private static void printSummary(List<RunResult> results) {
+        Map<String, double[]> rows = new LinkedHashMap<>();
+        for (RunResult result : results) {
+            BenchmarkParams params = result.getParams();
+            String benchmark = params.getBenchmark();
+            StringBuilder values = new StringBuilder();
+            for (String name : params.getParamsKeys()) {
+                values.append(values.length() == 0 ? "" : ",").append(params.getParam(name));
+            }
+            String key = String.format("%-48s %-18s %7d",
+                    benchmark.substring(benchmark.lastIndexOf('.', benchmark.lastIndexOf('.') - 1) + 1),
+                    values, params.getThreads());
+            double[] row = rows.computeIfAbsent(key, k -> new double[]{Double.NaN, Double.NaN, Double.NaN});
+            if (params.getMode() == Mode.Throughput) {
+                // Scores are reported per microsecond
+                row[0] = result.getPrimaryResult().getScore() * 1_000_000;
+                Result allocated = result.getSecondaryResults().get("\u00b7gc.alloc.rate.norm");
+                row[2] = allocated == null ? Double.NaN : allocated.getScore();
+            }
+            else if (params.getMode() == Mode.SampleTime) {
+                row[1] = result.getPrimaryResult().getStatistics().getPercentile(99);
+            }
+        }
+        System.out.println();
+        System.out.println(String.format("%-48s %-18s %7s %14s %12s %12s", "Benchmark", "Parameters", "Threads", "ops/s", "p99 (us)", "alloc (B/op)"));
+        rows.forEach((key, row) -> System.out.println(String.format("%s %14.1f %12.1f %12.0f", key, row[0], row[1], row[2])));
+    }
+
+}
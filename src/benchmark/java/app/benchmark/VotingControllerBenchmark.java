@@ -0,0 +1,53 @@
+package app.benchmark;
+
+import app.service.helpers.VotingMode;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.support.AnnotationConfigWebApplicationContext;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+
+// Votes through the whole MVC stack of RestaurantVotingRestController (without servlet container and security filters)
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 3)
+@Fork(value = 1, jvmArgsAppend = "-Dorg.slf4j.simpleLogger.defaultLogLevel=warn")
+public class VotingControllerBenchmark {
+
+    @Param({"DIRECT", "ATOMIC", "BUFFERED"})
+    private VotingMode votingMode;
+
+    @Param({"UNIFORM", "ZIPFIAN"})
+    private Skew skew;
+
+    private AnnotationConfigWebApplicationContext context;
+    private MockMvc mockMvc;
+    private Skew.Picker picker;
+
+    @Setup(Level.Trial)
+    public void startContext() {
+        context = BenchmarkContext.start(votingMode);
+        mockMvc = MockMvcBuilders.webAppContextSetup(context).build();
+        picker = skew.picker(BenchmarkContext.RESTAURANTS);
+    }
+
+    @TearDown(Level.Trial)
+    public void closeContext() {
+        context.close();
+    }
+
+    @Benchmark
+    public int voteForRestaurantById() throws Exception {
+        int status = mockMvc.perform(put("/v-service/restaurants/{id}", picker.next())).andReturn().getResponse().getStatus();
+        if (status != 200 && status != 202) {
+            throw new IllegalStateException("Vote has failed with status " + status);
+        }
+        return status;
+    }
+
+}
@@ -0,0 +1,46 @@
+package app.benchmark;
+
+import app.service.RestaurantVotingService;
+import app.service.helpers.VotingMode;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.web.context.support.AnnotationConfigWebApplicationContext;
+
+import java.util.concurrent.TimeUnit;
+
+// Anonymous votes (not limited per user) through RestaurantVotingService, the thread count is set by VotingBenchmarkRunner
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 3)
+@Fork(value = 1, jvmArgsAppend = "-Dorg.slf4j.simpleLogger.defaultLogLevel=warn")
+public class VotingServiceBenchmark {
+
+    @Param({"DIRECT", "ATOMIC", "BUFFERED"})
+    private VotingMode votingMode;
+
+    @Param({"UNIFORM", "ZIPFIAN"})
+    private Skew skew;
+
+    private AnnotationConfigWebApplicationContext context;
+    private RestaurantVotingService restaurantVotingService;
+    private Skew.Picker picker;
+
+    @Setup(Level.Trial)
+    public void startContext() {
+        context = BenchmarkContext.start(votingMode);
+        restaurantVotingService = context.getBean(RestaurantVotingService.class);
+        picker = skew.picker(BenchmarkContext.RESTAURANTS);
+    }
+
+    @TearDown(Level.Trial)
+    public void closeContext() {
+        context.close();
+    }
+
+    @Benchmark
+    public void voteForRestaurantById() {
+        restaurantVotingService.voteForRestaurantById(picker.next());
+    }
+
+}
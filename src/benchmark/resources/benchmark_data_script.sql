@@ -0,0 +1,78 @@
+-- Schema of mysql_demo_data_script.sql for embedded H2 database (MySQL mode) used by the benchmarks
+-- The number of restaurants must match BenchmarkContext.RESTAURANTS
+
+DROP TABLE IF EXISTS id_generator;
+DROP TABLE IF EXISTS vote_journal_checkpoint;
+DROP TABLE IF EXISTS user_vote;
+DROP TABLE IF EXISTS vote_epoch;
+DROP TABLE IF EXISTS meal;
+DROP TABLE IF EXISTS restaurant;
+
+CREATE TABLE restaurant
+(
+    id         INT          NOT NULL AUTO_INCREMENT,
+    name       VARCHAR(255) NOT NULL,
+    votes      INT          NOT NULL,
+    vote_epoch INT          NOT NULL DEFAULT 0,
+    CONSTRAINT unique_name UNIQUE (name),
+    PRIMARY KEY (id)
+);
+
+CREATE INDEX vote_epoch_index ON restaurant (vote_epoch);
+
+CREATE TABLE meal
+(
+    id         INT          NOT NULL AUTO_INCREMENT,
+    name       VARCHAR(255) NOT NULL,
+    category   VARCHAR(16)  NOT NULL,
+    price      INT          NOT NULL,
+    restaurant INT          NOT NULL,
+    PRIMARY KEY (id),
+    CONSTRAINT unique_name_category_restaurant UNIQUE (name, category, restaurant),
+    FOREIGN KEY (restaurant) REFERENCES restaurant (id)
+);
+
+CREATE TABLE id_generator
+(
+    sequence_name VARCHAR(255) NOT NULL,
+    next_val      BIGINT       NOT NULL,
+    PRIMARY KEY (sequence_name)
+);
+
+CREATE TABLE vote_journal_checkpoint
+(
+    id               INT         NOT NULL,
+    journal_id       VARCHAR(36) NULL,
+    applied_sequence BIGINT      NOT NULL,
+    PRIMARY KEY (id)
+);
+
+CREATE TABLE user_vote
+(
+    username   VARCHAR(255) NOT NULL,
+    restaurant INT          NOT NULL,
+    vote_date  DATE         NOT NULL,
+    PRIMARY KEY (username)
+);
+
+CREATE TABLE vote_epoch
+(
+    id    INT NOT NULL,
+    epoch INT NOT NULL,
+    PRIMARY KEY (id)
+);
+
+INSERT INTO vote_epoch (id, epoch) VALUES (1, 0);
+
+INSERT INTO vote_journal_checkpoint (id, applied_sequence) VALUES (1, -1);
+
+INSERT INTO restaurant (name, votes)
+SELECT CONCAT('Restaurant ', X), 0 FROM SYSTEM_RANGE(1, 1000);
+
+INSERT INTO meal (name, category, price, restaurant)
+SELECT 'Soup of the day', 'SOUP', 150, X FROM SYSTEM_RANGE(1, 1000);
+
+INSERT INTO id_generator (sequence_name, next_val)
+SELECT 'restaurant', COALESCE(MAX(id), 0) + 1 FROM restaurant;
+INSERT INTO id_generator (sequence_name, next_val)
+SELECT 'meal', COALESCE(MAX(id), 0) + 1 FROM meal;
@@ -1,12 +1,17 @@
 package app;
 
+import org.springframework.security.web.context.AbstractSecurityWebApplicationInitializer;
 import org.springframework.web.WebApplicationInitializer;
 import org.springframework.web.context.support.AnnotationConfigWebApplicationContext;
+import org.springframework.web.filter.DelegatingFilterProxy;
 import org.springframework.web.servlet.DispatcherServlet;
 
+import javax.servlet.DispatcherType;
+import javax.servlet.FilterRegistration;
 import javax.servlet.ServletContext;
 import javax.servlet.ServletException;
 import javax.servlet.ServletRegistration;
+import java.util.EnumSet;
 
 public class WebRunner implements WebApplicationInitializer {
 
@@ -28,8 +33,18 @@ public class WebRunner implements WebApplicationInitializer {
         DispatcherServlet dispatcherServlet = new DispatcherServlet(context);
         ServletRegistration.Dynamic registration = servletContext.addServlet("dispatcherServlet", dispatcherServlet);
         registration.setLoadOnStartup(1);
+        // Streamed responses (see RestaurantRestController.exportAllRestaurants()) are written asynchronously
+        registration.setAsyncSupported(true);
         registration.addMapping("/");
 
+        // Register the filter chain of SecurityConfig, which authenticates the users before they reach the controllers
+        FilterRegistration.Dynamic securityFilter = servletContext.addFilter(
+                AbstractSecurityWebApplicationInitializer.DEFAULT_FILTER_NAME,
+                new DelegatingFilterProxy(AbstractSecurityWebApplicationInitializer.DEFAULT_FILTER_NAME, context));
+        securityFilter.setAsyncSupported(true);
+        securityFilter.addMappingForUrlPatterns(
+                EnumSet.of(DispatcherType.REQUEST, DispatcherType.ERROR, DispatcherType.ASYNC), false, "/*");
+
     }
 
 }
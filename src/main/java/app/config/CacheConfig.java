@@ -1,32 +1,80 @@
 package app.config;
 
+import app.service.caching.CacheMetrics;
+import app.service.caching.CacheMetricsRegistry;
+import app.service.caching.CachedResponse;
+import app.service.caching.RestaurantCache;
+import com.github.benmanes.caffeine.cache.Cache;
 import com.github.benmanes.caffeine.cache.Caffeine;
 import com.github.benmanes.caffeine.cache.RemovalCause;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.EnableCaching;
 import org.springframework.cache.caffeine.CaffeineCacheManager;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
 
 @Configuration
 @EnableCaching
 public class CacheConfig {
 
-    private final Logger logger = LoggerFactory.getLogger(app.config.CacheConfig.class);
+    private static final long RESPONSES_CACHE_MAX_BYTES = 64L * 1024 * 1024;
+
+    private final Environment env;
+
+    public CacheConfig(Environment env) {
+        this.env = env;
+    }
 
+    // Every cache records its statistics (see CacheMetrics), removals are counted by cause instead of being logged
     @Bean
-    public CacheManager cacheManager() {
-        CaffeineCacheManager cacheManager = new CaffeineCacheManager("restaurantsCache");
-        cacheManager.setCaffeine(
+    public CacheManager cacheManager(CacheMetricsRegistry cacheMetricsRegistry) {
+        CaffeineCacheManager cacheManager = new CaffeineCacheManager();
+        // No caches are created on demand, all of them are registered below
+        cacheManager.setCacheNames(Collections.emptyList());
+        cacheManager.registerCustomCache(RestaurantCache.ENTRIES_CACHE, build(RestaurantCache.ENTRIES_CACHE, cacheMetricsRegistry,
                 Caffeine.newBuilder()
                         .initialCapacity(10)
-                        .maximumSize(100)
-                        .removalListener((Object key, Object graph, RemovalCause cause) ->
-                                logger.info(String.format("Key %s was removed (%s)%n", key, cause)))
-        );
+                        .maximumSize(1000)));
+        // Briefs are a few dozen bytes each (see RestaurantBrief), so many more of them are kept
+        cacheManager.registerCustomCache(RestaurantCache.BRIEFS_CACHE, build(RestaurantCache.BRIEFS_CACHE, cacheMetricsRegistry,
+                Caffeine.newBuilder()
+                        .initialCapacity(10)
+                        .maximumSize(env.getProperty("cache.restaurant-briefs.maximum-size", Long.class, 10000L))));
+        cacheManager.registerCustomCache(RestaurantCache.PAGES_CACHE, build(RestaurantCache.PAGES_CACHE, cacheMetricsRegistry,
+                Caffeine.newBuilder()
+                        .initialCapacity(10)
+                        .maximumSize(1000)));
+        // Serialized pages are much larger than the other entries, so their cache is limited by size in bytes
+        cacheManager.registerCustomCache(RestaurantCache.RESPONSES_CACHE, build(RestaurantCache.RESPONSES_CACHE, cacheMetricsRegistry,
+                Caffeine.newBuilder()
+                        .maximumWeight(RESPONSES_CACHE_MAX_BYTES)
+                        .weigher((Object key, Object response) -> ((CachedResponse) response).size())));
+        // Single restaurants with their meals and single meals are read by id and change rarely,
+        // they are evicted by id on every write (see RestaurantCache) and expired only as a safety net
+        cacheManager.registerCustomCache(RestaurantCache.RESTAURANT_DETAILS_CACHE, build(RestaurantCache.RESTAURANT_DETAILS_CACHE, cacheMetricsRegistry,
+                Caffeine.newBuilder()
+                        .maximumSize(env.getProperty("cache.restaurants.maximum-size", Long.class, 1000L))
+                        .expireAfterWrite(env.getProperty("cache.restaurants.expire-after-write-minutes", Long.class, 60L), TimeUnit.MINUTES)));
+        cacheManager.registerCustomCache(RestaurantCache.MEALS_CACHE, build(RestaurantCache.MEALS_CACHE, cacheMetricsRegistry,
+                Caffeine.newBuilder()
+                        .maximumSize(env.getProperty("cache.meals.maximum-size", Long.class, 10000L))
+                        .expireAfterWrite(env.getProperty("cache.meals.expire-after-write-minutes", Long.class, 60L), TimeUnit.MINUTES)));
         return cacheManager;
     }
 
+    private static Cache<Object, Object> build(String name, CacheMetricsRegistry cacheMetricsRegistry, Caffeine<Object, Object> builder) {
+        CacheMetrics metrics = new CacheMetrics(name);
+        Cache<Object, Object> cache = builder
+                .recordStats(() -> metrics)
+                .removalListener((Object key, Object value, RemovalCause cause) -> metrics.recordRemoval(cause))
+                .build();
+        metrics.setSizeEstimator(cache::estimatedSize);
+        cacheMetricsRegistry.register(metrics);
+        return cache;
+    }
+
 }
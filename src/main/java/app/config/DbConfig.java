@@ -1,16 +1,26 @@
 package app.config;
 
+import app.dao.ConnectionPoolMetrics;
+import app.entity.Meal;
+import app.entity.PooledIdGenerator;
+import app.entity.Restaurant;
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import org.hibernate.cache.spi.RegionFactory;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.ComponentScan;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.EnableMBeanExport;
 import org.springframework.context.annotation.PropertySource;
 import org.springframework.core.env.Environment;
 import org.springframework.core.io.ClassPathResource;
 import org.springframework.dao.annotation.PersistenceExceptionTranslationPostProcessor;
 import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
-import org.springframework.jdbc.datasource.DriverManagerDataSource;
 import org.springframework.jdbc.datasource.init.DataSourceInitializer;
 import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.jmx.support.RegistrationPolicy;
 import org.springframework.orm.jpa.JpaTransactionManager;
 import org.springframework.orm.jpa.JpaVendorAdapter;
 import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
@@ -18,15 +28,20 @@ import org.springframework.orm.jpa.vendor.HibernateJpaVendorAdapter;
 import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.EnableTransactionManagement;
 
+import javax.cache.CacheManager;
 import javax.persistence.EntityManagerFactory;
 import javax.sql.DataSource;
+import java.util.OptionalLong;
 import java.util.Properties;
+import java.util.concurrent.TimeUnit;
 
 @Configuration
 @PropertySource("classpath:application.properties")
 @EnableJpaRepositories("app.dao")
 @ComponentScan(basePackages = {"app.service"})
 @EnableTransactionManagement
+// Metrics of the services annotated with @ManagedResource, several application contexts may share the JVM (e.g. tests)
+@EnableMBeanExport(registration = RegistrationPolicy.REPLACE_EXISTING)
 public class DbConfig {
 
     private final Environment env;
@@ -35,14 +50,37 @@ public class DbConfig {
         this.env = env;
     }
 
-    @Bean
+    // Connections are pooled and validated by the pool before they are handed out (JDBC4 isValid()),
+    // a connection held longer than the leak detection threshold is logged with the stack trace of its borrower
+    // Driver properties (e.g. prepared statement cache of MySQL driver) are given as a comma-separated list of key=value
+    @Bean(destroyMethod = "close")
     public DataSource dataSource(){
-        DriverManagerDataSource dataSource = new DriverManagerDataSource();
-        dataSource.setDriverClassName(env.getRequiredProperty("database.driver"));
-        dataSource.setUrl(env.getRequiredProperty("database.url"));
-        dataSource.setUsername(env.getRequiredProperty("database.username"));
-        dataSource.setPassword(env.getRequiredProperty("database.password"));
-        return dataSource;
+        HikariConfig config = new HikariConfig();
+        config.setPoolName("restaurants");
+        config.setDriverClassName(env.getRequiredProperty("database.driver"));
+        config.setJdbcUrl(env.getRequiredProperty("database.url"));
+        config.setUsername(env.getRequiredProperty("database.username"));
+        config.setPassword(env.getRequiredProperty("database.password"));
+        config.setMinimumIdle(env.getProperty("database.pool.minimum-idle", Integer.class, 2));
+        config.setMaximumPoolSize(env.getProperty("database.pool.maximum-size", Integer.class, 10));
+        config.setConnectionTimeout(env.getProperty("database.pool.connection-timeout-ms", Long.class, 5_000L));
+        config.setValidationTimeout(env.getProperty("database.pool.validation-timeout-ms", Long.class, 1_000L));
+        config.setIdleTimeout(env.getProperty("database.pool.idle-timeout-ms", Long.class, 600_000L));
+        config.setMaxLifetime(env.getProperty("database.pool.max-lifetime-ms", Long.class, 1_800_000L));
+        config.setLeakDetectionThreshold(env.getProperty("database.pool.leak-detection-threshold-ms", Long.class, 0L));
+        for (String property : env.getProperty("database.pool.driver-properties", "").split(",")) {
+            int separator = property.indexOf('=');
+            if (separator > 0) {
+                config.addDataSourceProperty(property.substring(0, separator).trim(), property.substring(separator + 1).trim());
+            }
+        }
+        config.setMetricsTrackerFactory(connectionPoolMetrics());
+        return new HikariDataSource(config);
+    }
+
+    @Bean
+    public ConnectionPoolMetrics connectionPoolMetrics() {
+        return new ConnectionPoolMetrics();
     }
 
     @Bean
@@ -73,9 +111,53 @@ public class DbConfig {
         properties.setProperty("hibernate.show_sql", env.getProperty("hibernate.show_sql"));
         properties.setProperty("hibernate.format_sql", env.getProperty("hibernate.format_sql"));
         properties.setProperty("hibernate.dialect", env.getProperty("hibernate.dialect"));
+        properties.setProperty("hibernate.generate_statistics", env.getProperty("hibernate.generate_statistics", "false"));
+        // Inserts and updates are sent in JDBC batches, grouped by entity so that the statements of a batch are the same
+        // Ids are allocated in blocks before the inserts (see PooledIdGenerator), IDENTITY columns would disable batching
+        properties.setProperty("hibernate.jdbc.batch_size", env.getProperty("hibernate.jdbc.batch-size", "50"));
+        properties.setProperty("hibernate.order_inserts", "true");
+        properties.setProperty("hibernate.order_updates", "true");
+        properties.setProperty(PooledIdGenerator.BLOCK_SIZE_SETTING, env.getProperty("hibernate.id-generator.block-size", "50"));
+        // Second-level and query cache: every region is created by hibernateCacheManager(), a missing region is an error
+        properties.setProperty("hibernate.cache.use_second_level_cache", "true");
+        properties.setProperty("hibernate.cache.use_query_cache", "true");
+        properties.setProperty("hibernate.cache.region.factory_class", "jcache");
+        properties.put("hibernate.javax.cache.cache_manager", hibernateCacheManager());
+        properties.setProperty("hibernate.javax.cache.missing_cache_strategy", "fail");
         return properties;
     }
 
+    // JCache regions backed by Caffeine, each region is sized and expired by its own properties
+    // The provider is not shared, so that several application contexts may share the JVM (e.g. tests)
+    @Bean(destroyMethod = "close")
+    public CacheManager hibernateCacheManager() {
+        CaffeineCachingProvider cachingProvider = new CaffeineCachingProvider();
+        CacheManager cacheManager = cachingProvider.getCacheManager(cachingProvider.getDefaultURI(), getClass().getClassLoader());
+        createCacheRegion(cacheManager, Restaurant.CACHE_REGION, "restaurants");
+        createCacheRegion(cacheManager, Restaurant.MEALS_CACHE_REGION, "restaurant-meals");
+        createCacheRegion(cacheManager, Meal.CACHE_REGION, "meals");
+        createCacheRegion(cacheManager, RegionFactory.DEFAULT_QUERY_RESULTS_REGION_UNQUALIFIED_NAME, "queries");
+        // Timestamps of the tables must outlive every cached query result, so the region is neither limited nor expired
+        cacheManager.createCache(RegionFactory.DEFAULT_UPDATE_TIMESTAMPS_REGION_UNQUALIFIED_NAME, regionConfiguration());
+        return cacheManager;
+    }
+
+    private void createCacheRegion(CacheManager cacheManager, String region, String propertyName) {
+        CaffeineConfiguration<Object, Object> configuration = regionConfiguration();
+        configuration.setMaximumSize(OptionalLong.of(
+                env.getProperty("hibernate.second-level-cache." + propertyName + ".maximum-size", Long.class, 1000L)));
+        configuration.setExpireAfterWrite(OptionalLong.of(TimeUnit.SECONDS.toNanos(
+                env.getProperty("hibernate.second-level-cache." + propertyName + ".expire-after-write-seconds", Long.class, 600L))));
+        cacheManager.createCache(region, configuration);
+    }
+
+    // Hibernate keeps the disassembled state of the entities in the cache, so there is no need to copy the values
+    private static CaffeineConfiguration<Object, Object> regionConfiguration() {
+        CaffeineConfiguration<Object, Object> configuration = new CaffeineConfiguration<>();
+        configuration.setStoreByValue(false);
+        return configuration;
+    }
+
     @Bean
     public PlatformTransactionManager transactionManager(EntityManagerFactory entityManagerFactory){
         JpaTransactionManager transactionManager = new JpaTransactionManager();
@@ -2,9 +2,13 @@ package app.config;
 
 import app.controller.converters.StringToRestaurantSorterConverter;
 import app.controller.converters.StringToSortDirectionConverter;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.ComponentScan;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
 import org.springframework.format.FormatterRegistry;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
 import org.springframework.web.servlet.config.annotation.EnableWebMvc;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
@@ -13,10 +17,34 @@ import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 @ComponentScan("app.controller")
 public class WebConfig implements WebMvcConfigurer {
 
+    private final Environment env;
+
+    public WebConfig(Environment env) {
+        this.env = env;
+    }
+
     @Override
     public void addFormatters(FormatterRegistry registry) {
         registry.addConverter(new StringToRestaurantSorterConverter());
         registry.addConverter(new StringToSortDirectionConverter());
     }
 
+    // Streamed responses hold a database connection while they are written, so the number of them written at once
+    // is limited by the number of threads, the others wait in the queue (or are rejected when it is full)
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        configurer.setTaskExecutor(streamingTaskExecutor());
+        configurer.setDefaultTimeout(env.getProperty("web.async.timeout-ms", Long.class, 600_000L));
+    }
+
+    @Bean
+    public ThreadPoolTaskExecutor streamingTaskExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(env.getProperty("web.async.threads", Integer.class, 4));
+        executor.setMaxPoolSize(env.getProperty("web.async.threads", Integer.class, 4));
+        executor.setQueueCapacity(env.getProperty("web.async.queue-capacity", Integer.class, 100));
+        executor.setThreadNamePrefix("streaming-");
+        return executor;
+    }
+
 }
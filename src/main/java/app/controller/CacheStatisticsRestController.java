@@ -0,0 +1,38 @@
+package app.controller;
+
+import app.service.caching.CacheMetricsRegistry;
+import app.service.caching.CacheStatistics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.GetMapping;
+
+import java.util.List;
+
+// Same statistics as exported to JMX (app:type=CacheStatistics,name=<cache name>), one entry per cache
+@Controller
+public class CacheStatisticsRestController {
+
+    private final Logger logger = LoggerFactory.getLogger(app.controller.CacheStatisticsRestController.class);
+
+    private final CacheMetricsRegistry cacheMetricsRegistry;
+
+    public CacheStatisticsRestController(CacheMetricsRegistry cacheMetricsRegistry) {
+        this.cacheMetricsRegistry = cacheMetricsRegistry;
+    }
+
+    @GetMapping("/caches/statistics")
+    public ResponseEntity<List<CacheStatistics>> getCacheStatistics() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.add("Content-Type", "application/json; charset=UTF-8");
+        headers.setCacheControl(CacheControl.noStore());
+        List<CacheStatistics> statistics = cacheMetricsRegistry.getStatistics();
+        logger.info("Cache Statistics Controller: Statistics of {} caches have been returned in response.", statistics.size());
+        return new ResponseEntity<>(statistics, headers, HttpStatus.OK);
+    }
+
+}
@@ -0,0 +1,77 @@
+package app.controller;
+
+import app.entity.Restaurant;
+import app.service.helpers.RestaurantImportLine;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.TreeNode;
+import com.fasterxml.jackson.databind.ObjectReader;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+// Reads the restaurants of an NDJSON stream one by one by the streaming parser, so only the restaurant being read
+// is held in memory. Each restaurant is read as a tree first, so a line which can't be mapped to a restaurant
+// is reported and skipped, while malformed JSON ends the stream (the parser can't find the start of the next line)
+class RestaurantNdjsonReader implements Iterator<RestaurantImportLine> {
+
+    private final JsonParser parser;
+    private final ObjectReader reader;
+    private RestaurantImportLine next;
+    private boolean finished;
+
+    RestaurantNdjsonReader(JsonParser parser, ObjectReader reader) {
+        this.parser = parser;
+        this.reader = reader;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (next == null && !finished) {
+            next = read();
+        }
+        return next != null;
+    }
+
+    @Override
+    public RestaurantImportLine next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        RestaurantImportLine line = next;
+        next = null;
+        return line;
+    }
+
+    private RestaurantImportLine read() {
+        long line = parser.getCurrentLocation().getLineNr();
+        try {
+            JsonToken token = parser.nextToken();
+            if (token == null) {
+                finished = true;
+                return null;
+            }
+            line = parser.getTokenLocation().getLineNr();
+            if (token != JsonToken.START_OBJECT) {
+                parser.skipChildren();
+                return RestaurantImportLine.failed(line, "Line must contain a restaurant as JSON object.");
+            }
+            TreeNode tree = parser.readValueAsTree();
+            try {
+                return RestaurantImportLine.of(line, reader.treeToValue(tree, Restaurant.class));
+            } catch (JsonProcessingException e) {
+                return RestaurantImportLine.failed(line, "Failed to read restaurant: " + e.getOriginalMessage());
+            }
+        } catch (JsonProcessingException e) {
+            finished = true;
+            return RestaurantImportLine.failed(e.getLocation() != null ? e.getLocation().getLineNr() : line,
+                    "Malformed JSON, the rest of the stream has been skipped: " + e.getOriginalMessage());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+}
@@ -5,86 +5,189 @@ import app.controller.views.RestaurantView;
 import app.entity.Meal;
 import app.entity.Restaurant;
 import app.service.RestaurantService;
+import app.service.helpers.MealChangeSet;
+import app.service.helpers.RestaurantCursor;
+import app.service.helpers.RestaurantCursorPage;
+import app.service.helpers.RestaurantImportReport;
 import app.service.helpers.RestaurantSorter;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.context.support.DefaultMessageSourceResolvable;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.core.env.Environment;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
-import org.springframework.http.converter.json.MappingJacksonValue;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
 import org.springframework.stereotype.Controller;
-import org.springframework.transaction.annotation.Transactional;
 import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
 import javax.validation.Valid;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
+// Transactions are demarcated by RestaurantService only: read endpoints run in its read-only transactions
 @Controller
-@Transactional
 public class RestaurantRestController {
 
     private final Logger logger = LoggerFactory.getLogger(app.controller.RestaurantRestController.class);
 
     private final RestaurantService restaurantService;
 
-    public RestaurantRestController(RestaurantService restaurantService) {
+    // Same configuration as the ObjectMapper of the default Jackson message converter of Spring MVC
+    private final ObjectWriter briefViewWriter;
+    private final ObjectWriter detailedViewWriter;
+    private final ObjectReader restaurantReader;
+    // Responses of the read endpoints carry ETags, so clients (and proxies) revalidate them by If-None-Match
+    private final CacheControl cacheControl;
+
+    public RestaurantRestController(RestaurantService restaurantService, Environment env) {
         this.restaurantService = restaurantService;
+        ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        this.briefViewWriter = objectMapper.writerWithView(RestaurantView.Brief.class);
+        this.detailedViewWriter = objectMapper.writerWithView(RestaurantView.Detailed.class);
+        this.restaurantReader = objectMapper.readerFor(Restaurant.class);
+        long maxAge = env.getProperty("http.cache.max-age-seconds", Long.class, 0L);
+        long staleWhileRevalidate = env.getProperty("http.cache.stale-while-revalidate-seconds", Long.class, 0L);
+        CacheControl cacheControl = CacheControl.maxAge(maxAge, TimeUnit.SECONDS);
+        this.cacheControl = staleWhileRevalidate > 0 ? cacheControl.staleWhileRevalidate(staleWhileRevalidate, TimeUnit.SECONDS) : cacheControl;
     }
 
+    // The response is written as pre-serialized JSON: pages requested by "currentPage" are served from the response cache
+    // of RestaurantService, so on a cache hit the restaurants are neither loaded nor serialized again
+    // 304 Not Modified is answered without opening a transaction or touching the database
     @GetMapping("/restaurants")
-    public ResponseEntity<MappingJacksonValue> getAllRestaurants(
+    public ResponseEntity<byte[]> getAllRestaurants(
             @RequestParam(required = false, defaultValue = "brief") String view,
             @RequestParam(required = false, defaultValue = "0") Integer currentPage,
             @RequestParam(required = false, defaultValue = "100") Integer pageSize,
             @RequestParam(required = false, defaultValue = "votes") RestaurantSorter sort,
-            @RequestParam(required = false, defaultValue = "desc") Sort.Direction sdir) {
+            @RequestParam(required = false, defaultValue = "desc") Sort.Direction sdir,
+            @RequestParam(required = false) String after,
+            WebRequest request) {
+
+        if (request.checkNotModified(restaurantService.getAllRestaurantsTag())) {
+            return notModified();
+        }
 
         Pageable pageable = PageRequest.of(currentPage, pageSize, Sort.by(sdir, sort.getFieldName()));
 
         HttpHeaders headers = new HttpHeaders();
         headers.add("Content-Type", "application/json; charset=UTF-8");
-        headers.add("Cache-Control", "no-store");
+        headers.setCacheControl(cacheControl);
+
+        byte[] json = null;
 
-        List<Restaurant> restaurants = null;
-        MappingJacksonValue value = null;
+        RestaurantService.ListView listView = "detailed".equalsIgnoreCase(view) ? RestaurantService.ListView.DETAILED : RestaurantService.ListView.SHORT;
+        ObjectWriter writer = listView == RestaurantService.ListView.DETAILED ? detailedViewWriter : briefViewWriter;
 
-        if("detailed".equalsIgnoreCase(view)) {
-            restaurants = restaurantService.getAllRestaurants(RestaurantService.ListView.DETAILED, pageable);
-            value = new MappingJacksonValue(restaurants);
-            value.setSerializationView(RestaurantView.Detailed.class);
+        // Keyset pagination is requested by "after" parameter (empty for the first page) instead of "currentPage",
+        // the cursor of the next page is returned in Link header
+        if (after != null) {
+            RestaurantCursor cursor = after.isEmpty() ? null : RestaurantCursor.decode(after);
+            RestaurantCursorPage page = restaurantService.getAllRestaurantsAfter(listView, sort, sdir, cursor, pageSize);
+            json = serialize(writer, page.getRestaurants());
+            if (page.getNext() != null) {
+                String nextPage = ServletUriComponentsBuilder.fromCurrentRequest()
+                        .replaceQueryParam("currentPage")
+                        .replaceQueryParam("after", page.getNext().encode())
+                        .toUriString();
+                headers.add("Link", "<" + nextPage + ">; rel=\"next\"");
+            }
         }
+        // Offset pagination: restaurants sorted by votes are ranked in memory, no need to query the database
         else {
-            restaurants = restaurantService.getAllRestaurants(RestaurantService.ListView.SHORT, pageable);
-            value = new MappingJacksonValue(restaurants);
-            value.setSerializationView(RestaurantView.Brief.class);
+            json = restaurantService.getAllRestaurantsSerialized(listView, pageable, restaurants -> serialize(writer, restaurants));
         }
 
         logger.info("Controller layer: All restaurants have been returned in response.");
-        return new ResponseEntity<>(value, headers, HttpStatus.OK);
+        return new ResponseEntity<>(json, headers, HttpStatus.OK);
+    }
+
+    // Whole catalog ordered by id in one response: format=ndjson writes one restaurant per line, format=json an array
+    // The response is written by a thread of the async executor (see WebConfig) while the restaurants are read
+    // by a database cursor (see RestaurantService.exportAllRestaurants()), so neither of them is held in memory
+    @GetMapping("/restaurants/export")
+    public ResponseEntity<StreamingResponseBody> exportAllRestaurants(
+            @RequestParam(required = false, defaultValue = "brief") String view,
+            @RequestParam(required = false, defaultValue = "ndjson") String format) {
+
+        RestaurantService.ListView listView = "detailed".equalsIgnoreCase(view) ? RestaurantService.ListView.DETAILED : RestaurantService.ListView.SHORT;
+        // Output is flushed by the generator whenever its buffer is full instead of after every restaurant
+        ObjectWriter writer = (listView == RestaurantService.ListView.DETAILED ? detailedViewWriter : briefViewWriter)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        boolean ndjson = !"json".equalsIgnoreCase(format);
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.add("Content-Type", ndjson ? "application/x-ndjson; charset=UTF-8" : "application/json; charset=UTF-8");
+
+        StreamingResponseBody body = outputStream -> {
+            try (JsonGenerator generator = writer.createGenerator(outputStream)) {
+                generator.setRootValueSeparator(null);
+                if (!ndjson) {
+                    generator.writeStartArray();
+                }
+                restaurantService.exportAllRestaurants(listView, restaurant -> {
+                    try {
+                        writer.writeValue(generator, restaurant);
+                        if (ndjson) {
+                            generator.writeRaw('\n');
+                        }
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+                if (!ndjson) {
+                    generator.writeEndArray();
+                }
+            }
+            logger.info("Restaurant Controller layer: All restaurants have been exported in response.");
+        };
+        return new ResponseEntity<>(body, headers, HttpStatus.OK);
     }
 
     @GetMapping("/restaurants/{id}")
-    public ResponseEntity<Restaurant> getRestaurantById(@PathVariable Integer id) {
+    public ResponseEntity<Restaurant> getRestaurantById(@PathVariable Integer id, WebRequest request) {
+        if (request.checkNotModified(restaurantService.getRestaurantTag(id))) {
+            return notModified();
+        }
         Restaurant restaurant = restaurantService.getRestaurantById(id);
         HttpHeaders headers = new HttpHeaders();
         headers.add("Content-Type", "application/json; charset=UTF-8");
-        headers.add("Cache-Control", "no-store");
+        headers.setCacheControl(cacheControl);
         logger.info("Restaurant Controller layer: Restaurant with id = {} has been returned in response.", id);
         return new ResponseEntity<>(restaurant, headers, HttpStatus.OK);
     }
 
+    // The tag of the meal is known only after the meal has been read once, the first response has no ETag
     @GetMapping("/restaurants/meals/{id}")
-    public ResponseEntity<Meal> getMealById(@PathVariable Integer id) {
+    public ResponseEntity<Meal> getMealById(@PathVariable Integer id, WebRequest request) {
+        String tag = restaurantService.getMealTag(id);
+        if (tag != null && request.checkNotModified(tag)) {
+            return notModified();
+        }
         Meal meal = restaurantService.getMealById(id);
         HttpHeaders headers = new HttpHeaders();
         headers.add("Content-Type", "application/json; charset=UTF-8");
-        headers.add("Cache-Control", "no-store");
+        headers.setCacheControl(cacheControl);
         logger.info("Restaurant Controller layer: Meal with id = {} has been returned in response.", id);
         return new ResponseEntity<>(meal, headers, HttpStatus.OK);
     }
@@ -134,6 +237,21 @@ public class RestaurantRestController {
         return new ResponseEntity<>(headers, HttpStatus.CREATED);
     }
 
+    // NDJSON stream of restaurants (one per line, with their meals) is read while the restaurants are created in chunks
+    // (see RestaurantService.importRestaurants()), so the payload is never held in memory as a whole
+    // The report lists the lines which failed with their errors, the other lines are imported anyway
+    @PostMapping("/restaurants/bulk")
+    public ResponseEntity<RestaurantImportReport> importRestaurants(InputStream body) throws IOException {
+        RestaurantImportReport report;
+        try (JsonParser parser = restaurantReader.getFactory().createParser(body)) {
+            report = restaurantService.importRestaurants(new RestaurantNdjsonReader(parser, restaurantReader));
+        }
+        HttpHeaders headers = new HttpHeaders();
+        headers.add("Content-Type", "application/json; charset=UTF-8");
+        logger.info("Restaurant Controller layer: {} restaurants have been imported, {} lines have failed.", report.getImported(), report.getFailed());
+        return new ResponseEntity<>(report, headers, HttpStatus.OK);
+    }
+
     @PostMapping("/restaurants/{id}")
     public ResponseEntity<String> createMealForRestaurantWithId(@PathVariable Integer id, @RequestBody @Valid Meal meal, BindingResult bindingResult) {
         checkBindingResult(bindingResult);
@@ -144,12 +262,15 @@ public class RestaurantRestController {
         return new ResponseEntity<>(headers, HttpStatus.CREATED);
     }
 
+    // Responds with the ids of the meals inserted, updated and deleted by the merge of the menu
     @PutMapping("/restaurants/{id}")
-    @ResponseStatus(HttpStatus.OK)
-    public void updateRestaurantById(@PathVariable Integer id, @RequestBody @Valid Restaurant restaurant, BindingResult bindingResult) {
+    public ResponseEntity<MealChangeSet> updateRestaurantById(@PathVariable Integer id, @RequestBody @Valid Restaurant restaurant, BindingResult bindingResult) {
         checkBindingResult(bindingResult);
-        restaurantService.updateRestaurantById(id, restaurant);
+        MealChangeSet changes = restaurantService.updateRestaurantById(id, restaurant);
+        HttpHeaders headers = new HttpHeaders();
+        headers.add("Content-Type", "application/json; charset=UTF-8");
         logger.info("Restaurant Controller layer: Restaurant with id = {} has been updated.", id);
+        return new ResponseEntity<>(changes, headers, HttpStatus.OK);
     }
 
     @PutMapping("/restaurants/meals/{id}")
@@ -160,6 +281,19 @@ public class RestaurantRestController {
         logger.info("Restaurant Controller layer: Meal with id = {} has been updated.", id);
     }
 
+    // ETag has already been set by WebRequest.checkNotModified()
+    private <T> ResponseEntity<T> notModified() {
+        return ResponseEntity.status(HttpStatus.NOT_MODIFIED).cacheControl(cacheControl).build();
+    }
+
+    private static byte[] serialize(ObjectWriter writer, List<Restaurant> restaurants) {
+        try {
+            return writer.writeValueAsBytes(restaurants);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialize restaurants.", e);
+        }
+    }
+
     private void checkBindingResult(BindingResult bindingResult) {
         if (bindingResult.hasErrors()) {
             List<String> errors = bindingResult.getFieldErrors().stream()
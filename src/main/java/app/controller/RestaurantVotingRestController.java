@@ -1,16 +1,20 @@
 package app.controller;
 
 import app.service.RestaurantVotingService;
+import app.service.voting.VoteEntry;
+import app.service.voting.VoteEntryResult;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
-import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.List;
+
 @Controller
 @RequestMapping("/v-service")
-@Transactional
 public class RestaurantVotingRestController {
 
     private final Logger logger = LoggerFactory.getLogger(app.controller.RestaurantVotingRestController.class);
@@ -21,11 +25,23 @@ public class RestaurantVotingRestController {
         this.restaurantVotingService = restaurantVotingService;
     }
 
+    // Transactions are managed by the service, so the request thread is not bound to a transaction of its own
+    // In ASYNC voting mode the vote is only queued: 202 Accepted, or 503 Service Unavailable if the queue is full
     @PutMapping("/restaurants/{id}")
-    @ResponseStatus(HttpStatus.OK)
-    public void voteForRestaurantById(@PathVariable Integer id) {
-        restaurantVotingService.voteForRestaurantById(id);
+    public ResponseEntity<Void> voteForRestaurantById(@PathVariable Integer id) {
+        boolean counted = restaurantVotingService.voteForRestaurantById(id);
         logger.info("Restaurant Voting Controller: voting for Restaurant with id = {}", id);
+        return new ResponseEntity<>(counted ? HttpStatus.OK : HttpStatus.ACCEPTED);
+    }
+
+    // Every entry gets its own result, so a missing restaurant doesn't fail the whole batch
+    @PostMapping("/votes")
+    public ResponseEntity<List<VoteEntryResult>> voteInBatch(@RequestBody List<VoteEntry> entries) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.add("Content-Type", "application/json; charset=UTF-8");
+        List<VoteEntryResult> results = restaurantVotingService.voteInBatch(entries);
+        logger.info("Restaurant Voting Controller: batch of {} votes has been processed.", results.size());
+        return new ResponseEntity<>(results, headers, HttpStatus.OK);
     }
 
     @DeleteMapping("/restaurants")
@@ -1,7 +1,10 @@
 package app.controller.exceptions;
 
+import app.service.exceptions.DuplicateVoteException;
 import app.service.exceptions.EntityNotFoundException;
 import app.service.exceptions.EntityPropertiesValidationException;
+import app.service.exceptions.VoteNotDurableException;
+import app.service.exceptions.VoteQueueFullException;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
@@ -29,6 +32,15 @@ public class GlobalExceptionHandler {
         else if (e instanceof DataIntegrityViolationException) {
             return handleDataIntegrityViolationException(e, headers);
         }
+        else if (e instanceof VoteNotDurableException) {
+            return handleVoteNotDurableException(e, headers);
+        }
+        else if (e instanceof DuplicateVoteException) {
+            return handleDuplicateVoteException(e, headers);
+        }
+        else if (e instanceof VoteQueueFullException) {
+            return handleVoteQueueFullException((VoteQueueFullException) e, headers);
+        }
         else if (e instanceof MethodArgumentTypeMismatchException) {
             return handleMethodArgumentTypeMismatchException(e, headers);
         }
@@ -58,6 +70,21 @@ public class GlobalExceptionHandler {
         return new ResponseEntity<>(new ErrorMessagesList("You are probably trying to save a duplicate of existing entity. For each restaurant the name must be unique. For each meal of a particular restaurant the combination of meal name, category and price must be unique."), headers, HttpStatus.CONFLICT);
     }
 
+    // Vote journal could not save the vote in time (see VoteJournal.append()), the vote is not counted
+    private ResponseEntity<ErrorMessagesList> handleVoteNotDurableException(Exception e, HttpHeaders headers) {
+        return new ResponseEntity<>(new ErrorMessagesList(e), headers, HttpStatus.SERVICE_UNAVAILABLE);
+    }
+
+    private ResponseEntity<ErrorMessagesList> handleDuplicateVoteException(Exception e, HttpHeaders headers) {
+        return new ResponseEntity<>(new ErrorMessagesList(e), headers, HttpStatus.CONFLICT);
+    }
+
+    // The client should repeat the vote after the queue has been drained
+    private ResponseEntity<ErrorMessagesList> handleVoteQueueFullException(VoteQueueFullException e, HttpHeaders headers) {
+        headers.add("Retry-After", String.valueOf(e.getRetryAfterSeconds()));
+        return new ResponseEntity<>(new ErrorMessagesList(e), headers, HttpStatus.SERVICE_UNAVAILABLE);
+    }
+
     private ResponseEntity<ErrorMessagesList> handleMethodArgumentTypeMismatchException(Exception e, HttpHeaders headers) {
         return new ResponseEntity<>(new ErrorMessagesList("Entity id must be a positive number."), headers, HttpStatus.BAD_REQUEST);
     }
@@ -0,0 +1,109 @@
+package app.dao;
+
+import com.zaxxer.hikari.metrics.IMetricsTracker;
+import com.zaxxer.hikari.metrics.MetricsTrackerFactory;
+import com.zaxxer.hikari.metrics.PoolStats;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedResource;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+// Metrics of the connection pool (see DbConfig): the pool reports every acquisition, usage and timeout of a connection
+// to the tracker created by this factory, the numbers of connections are read from the statistics of the pool.
+// Exported to JMX as app:type=ConnectionPool.
+@ManagedResource(objectName = "app:type=ConnectionPool", description = "Statistics of the database connection pool")
+public class ConnectionPoolMetrics implements MetricsTrackerFactory {
+
+    private final LongAdder acquisitions = new LongAdder();
+    private final LongAdder waitNanos = new LongAdder();
+    private final LongAccumulator maxWaitNanos = new LongAccumulator(Math::max, 0);
+    private final LongAdder usageMillis = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+    private final LongAdder createdConnections = new LongAdder();
+    private volatile PoolStats poolStats;
+
+    @Override
+    public IMetricsTracker create(String poolName, PoolStats poolStats) {
+        this.poolStats = poolStats;
+        return new IMetricsTracker() {
+            @Override
+            public void recordConnectionCreatedMillis(long connectionCreatedMillis) {
+                createdConnections.increment();
+            }
+
+            @Override
+            public void recordConnectionAcquiredNanos(long elapsedAcquiredNanos) {
+                acquisitions.increment();
+                waitNanos.add(elapsedAcquiredNanos);
+                maxWaitNanos.accumulate(elapsedAcquiredNanos);
+            }
+
+            @Override
+            public void recordConnectionUsageMillis(long elapsedBorrowedMillis) {
+                usageMillis.add(elapsedBorrowedMillis);
+            }
+
+            @Override
+            public void recordConnectionTimeout() {
+                timeouts.increment();
+            }
+        };
+    }
+
+    // Managed Attributes --------------------------------------------------------
+
+    @ManagedAttribute(description = "Number of connections in use")
+    public int getActiveConnections() {
+        return poolStats == null ? 0 : poolStats.getActiveConnections();
+    }
+
+    @ManagedAttribute(description = "Number of open connections which are not in use")
+    public int getIdleConnections() {
+        return poolStats == null ? 0 : poolStats.getIdleConnections();
+    }
+
+    @ManagedAttribute(description = "Number of open connections")
+    public int getTotalConnections() {
+        return poolStats == null ? 0 : poolStats.getTotalConnections();
+    }
+
+    @ManagedAttribute(description = "Number of threads waiting for a connection")
+    public int getPendingThreads() {
+        return poolStats == null ? 0 : poolStats.getPendingThreads();
+    }
+
+    @ManagedAttribute(description = "Number of connections taken from the pool")
+    public long getAcquisitionCount() {
+        return acquisitions.sum();
+    }
+
+    @ManagedAttribute(description = "Average time of waiting for a connection in microseconds")
+    public long getAverageWaitMicros() {
+        long count = acquisitions.sum();
+        return count == 0 ? 0 : TimeUnit.NANOSECONDS.toMicros(waitNanos.sum() / count);
+    }
+
+    @ManagedAttribute(description = "Longest time of waiting for a connection in microseconds")
+    public long getMaxWaitMicros() {
+        return TimeUnit.NANOSECONDS.toMicros(maxWaitNanos.get());
+    }
+
+    @ManagedAttribute(description = "Average time a connection is used in milliseconds")
+    public long getAverageUsageMillis() {
+        long count = acquisitions.sum();
+        return count == 0 ? 0 : usageMillis.sum() / count;
+    }
+
+    @ManagedAttribute(description = "Number of requests for a connection which timed out")
+    public long getTimeoutCount() {
+        return timeouts.sum();
+    }
+
+    @ManagedAttribute(description = "Number of connections opened by the pool")
+    public long getCreatedConnections() {
+        return createdConnections.sum();
+    }
+
+}
@@ -2,6 +2,20 @@ package app.dao;
 
 import app.entity.Meal;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 
 public interface MealRepository extends JpaRepository<Meal, Integer> {
+
+    // Bulk deletes: a single DELETE statement, no meal is loaded. The persistence context is flushed before
+    // and cleared after the statement, Hibernate invalidates the regions of meals and of menus of the restaurants
+    // in the second-level cache. Return the number of deleted meals
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("DELETE FROM Meal m")
+    int deleteAllInBulk();
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("DELETE FROM Meal m WHERE m.restaurant.id = ?1")
+    int deleteAllByRestaurantIdInBulk(Integer restaurantId);
+
 }
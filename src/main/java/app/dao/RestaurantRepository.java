@@ -1,16 +1,80 @@
 package app.dao;
 
 import app.entity.Restaurant;
+import app.entity.RestaurantBrief;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.jpa.repository.QueryHints;
 
 import javax.persistence.QueryHint;
+import java.util.Collection;
+import java.util.List;
 
-public interface RestaurantRepository extends JpaRepository<Restaurant, Integer> {
+public interface RestaurantRepository extends JpaRepository<Restaurant, Integer>, RestaurantRepositoryCustom {
 
-    @QueryHints(value = { @QueryHint(name = "hibernate.query.passDistinctThrough", value = "false")})
+    // Votes tagged with an epoch other than the given one are selected as zero (see VoteEpochManager)
+    String BRIEF_VOTES = "CASE WHEN r.voteEpoch = ?1 THEN r.votes ELSE 0 END";
+
+    // Result is kept in the query cache, the restaurant and its meals in the second-level cache (see DbConfig)
+    @QueryHints(value = {
+            @QueryHint(name = "hibernate.query.passDistinctThrough", value = "false"),
+            @QueryHint(name = "org.hibernate.cacheable", value = "true")})
     @Query("SELECT DISTINCT r from Restaurant r left join fetch r.meals where r.id = ?1")
     Restaurant getRestaurantById(Integer id);
 
+    // Keyset pagination (see RestaurantCursor): the size and the order of the page are given by pageable,
+    // the page starts right after the given id or name (names are unique), so it is an index range scan
+    // Unlike findAll(pageable) no COUNT query is generated
+    List<Restaurant> findAllBy(Pageable pageable);
+
+    List<Restaurant> findByIdGreaterThan(Integer id, Pageable pageable);
+
+    List<Restaurant> findByIdLessThan(Integer id, Pageable pageable);
+
+    List<Restaurant> findByNameGreaterThan(String name, Pageable pageable);
+
+    List<Restaurant> findByNameLessThan(String name, Pageable pageable);
+
+    // Projections for the SHORT view (see RestaurantBrief): only id, name and votes of the given epoch are selected,
+    // no entity is put into the persistence context. Pages are ordered by pageable as above
+    @Query(value = "SELECT new app.entity.RestaurantBrief(r.id, r.name, " + BRIEF_VOTES + ") FROM Restaurant r",
+            countQuery = "SELECT COUNT(r) FROM Restaurant r")
+    Page<RestaurantBrief> findAllBriefs(Integer epoch, Pageable pageable);
+
+    @Query("SELECT new app.entity.RestaurantBrief(r.id, r.name, " + BRIEF_VOTES + ") FROM Restaurant r WHERE r.id IN ?2")
+    List<RestaurantBrief> findBriefsByIds(Integer epoch, Collection<Integer> ids);
+
+    @Query("SELECT new app.entity.RestaurantBrief(r.id, r.name, " + BRIEF_VOTES + ") FROM Restaurant r")
+    List<RestaurantBrief> findBriefsBy(Integer epoch, Pageable pageable);
+
+    @Query("SELECT new app.entity.RestaurantBrief(r.id, r.name, " + BRIEF_VOTES + ") FROM Restaurant r WHERE r.id > ?2")
+    List<RestaurantBrief> findBriefsByIdGreaterThan(Integer epoch, Integer id, Pageable pageable);
+
+    @Query("SELECT new app.entity.RestaurantBrief(r.id, r.name, " + BRIEF_VOTES + ") FROM Restaurant r WHERE r.id < ?2")
+    List<RestaurantBrief> findBriefsByIdLessThan(Integer epoch, Integer id, Pageable pageable);
+
+    @Query("SELECT new app.entity.RestaurantBrief(r.id, r.name, " + BRIEF_VOTES + ") FROM Restaurant r WHERE r.name > ?2")
+    List<RestaurantBrief> findBriefsByNameGreaterThan(Integer epoch, String name, Pageable pageable);
+
+    @Query("SELECT new app.entity.RestaurantBrief(r.id, r.name, " + BRIEF_VOTES + ") FROM Restaurant r WHERE r.name < ?2")
+    List<RestaurantBrief> findBriefsByNameLessThan(Integer epoch, String name, Pageable pageable);
+
+    // Bulk delete: a single DELETE statement, no restaurant is loaded, so the meals must be deleted before
+    // (see MealRepository.deleteAllInBulk()). Same handling of the persistence context and the second-level cache
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("DELETE FROM Restaurant r")
+    int deleteAllInBulk();
+
+    // Names of the given ones which are already taken (see RestaurantService.importRestaurants()), compared by the collation
+    // of the column, so the returned names may differ from the given ones in case
+    @Query("SELECT r.name FROM Restaurant r WHERE r.name IN ?1")
+    List<String> findNamesByNameIn(Collection<String> names);
+
+    // Each element is an array of restaurant id, name and votes of the given epoch
+    @Query("SELECT r.id, r.name, CASE WHEN r.voteEpoch = ?1 THEN r.votes ELSE 0 END FROM Restaurant r")
+    List<Object[]> findAllStandings(Integer epoch);
+
 }
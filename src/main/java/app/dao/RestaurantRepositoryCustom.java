@@ -0,0 +1,47 @@
+package app.dao;
+
+import app.entity.Restaurant;
+import app.entity.RestaurantBrief;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.function.Consumer;
+
+// Votes are written by native SQL, so that only the voted restaurants are evicted from the second-level cache
+// (a JPQL bulk UPDATE would invalidate the whole region of restaurants together with the cached queries on every vote)
+// Bypasses the persistence context (neither flushes nor clears it), so it must be invoked inside of a transaction
+public interface RestaurantRepositoryCustom {
+
+    // Single UPDATE statement without preceding SELECT, so concurrent votes can't overwrite each other
+    // Votes of the previous epoch are reset by the same statement (see VoteEpochManager), the epoch of the row never goes
+    // back: votes of an older epoch (read before the epoch was advanced) are counted in the newer epoch of the row
+    // Returns the number of updated rows (0 if there is no such restaurant)
+    int addVotes(Integer id, Integer votes, Integer epoch);
+
+    // Moves one vote from one restaurant to another by a single UPDATE statement, so both counters are changed atomically
+    // Returns the number of updated rows (the restaurant the vote is moved from may have been removed)
+    int moveVote(Integer fromId, Integer toId, Integer epoch);
+
+    // Adds the given number of votes to each restaurant using a single JDBC batch of UPDATE statements (see addVotes())
+    int[] addVotesInBatch(Map<Integer, Integer> votesByRestaurantId, int epoch);
+
+    // Resets at most limit restaurants whose votes are tagged with an epoch older than the given one
+    // The restaurants are not known in advance, so the region of restaurants is invalidated, but no other region
+    int resetStaleVotes(Integer epoch, Integer limit);
+
+    // Persists the given new restaurants with their meals, flushes them as JDBC batches of inserts (see DbConfig)
+    // and clears the persistence context, so it doesn't grow with the number of inserted restaurants
+    // Must be invoked inside of a transaction, entities loaded by it before are detached as well
+    void insertAll(Collection<Restaurant> restaurants);
+
+    // Passes every restaurant with its meals and the votes of the given epoch ordered by id to the consumer, reading them
+    // by a forward-only cursor of a single SELECT query with the given JDBC fetch size. Rows are read as scalars
+    // and assembled into detached restaurants, so nothing is kept in the persistence context or the second-level cache.
+    // Must be invoked inside of a transaction, which mustn't issue other queries meanwhile
+    // (MySQL driver can't execute them while a result set is being streamed)
+    void scrollAllWithMeals(int epoch, int fetchSize, Consumer<Restaurant> consumer);
+
+    // Same as above for the briefs of the restaurants with the votes of the given epoch (see RestaurantBrief)
+    void scrollAllBriefs(int epoch, int fetchSize, Consumer<RestaurantBrief> consumer);
+
+}
@@ -0,0 +1,169 @@
+package app.dao;
+
+import app.entity.Meal;
+import app.entity.MealCategory;
+import app.entity.Restaurant;
+import app.entity.RestaurantBrief;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.Session;
+import org.hibernate.query.Query;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.persistence.Cache;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.function.Consumer;
+
+public class RestaurantRepositoryImpl implements RestaurantRepositoryCustom {
+
+    // Votes are assigned before the epoch, so they are compared with the epoch the row had before the statement
+    private static final String ADD_VOTES_SQL = "UPDATE restaurant SET votes = CASE WHEN vote_epoch >= ? THEN votes ELSE 0 END + ?, vote_epoch = GREATEST(vote_epoch, ?) WHERE id = ?";
+    private static final String MOVE_VOTE_SQL = "UPDATE restaurant SET votes = CASE WHEN vote_epoch >= ? THEN votes ELSE 0 END + CASE WHEN id = ? THEN 1 ELSE -1 END, vote_epoch = GREATEST(vote_epoch, ?) WHERE id IN (?, ?)";
+    private static final String RESET_STALE_VOTES_SQL = "UPDATE restaurant SET votes = 0, vote_epoch = ?1 WHERE vote_epoch < ?1 LIMIT ?2";
+    // Rows of the same restaurant must be adjacent, so that each restaurant is assembled of consecutive rows
+    // Unlike a cursor over a fetch join of the entities, a cursor of scalars handles an empty result streamed by MySQL driver
+    private static final String ALL_WITH_MEALS_QUERY = "SELECT r.id, r.name, " + RestaurantRepository.BRIEF_VOTES + ", " +
+            "m.id, m.name, m.category, m.price FROM Restaurant r LEFT JOIN r.meals m ORDER BY r.id, m.id";
+    private static final String ALL_BRIEFS_QUERY = "SELECT new app.entity.RestaurantBrief(r.id, r.name, " + RestaurantRepository.BRIEF_VOTES + ") " +
+            "FROM Restaurant r ORDER BY r.id";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public int addVotes(Integer id, Integer votes, Integer epoch) {
+        int updatedRows = entityManager.unwrap(Session.class).doReturningWork(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(ADD_VOTES_SQL)) {
+                statement.setInt(1, epoch);
+                statement.setInt(2, votes);
+                statement.setInt(3, epoch);
+                statement.setInt(4, id);
+                return statement.executeUpdate();
+            }
+        });
+        evictFromSecondLevelCache(Collections.singleton(id));
+        return updatedRows;
+    }
+
+    @Override
+    public int moveVote(Integer fromId, Integer toId, Integer epoch) {
+        int updatedRows = entityManager.unwrap(Session.class).doReturningWork(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(MOVE_VOTE_SQL)) {
+                statement.setInt(1, epoch);
+                statement.setInt(2, toId);
+                statement.setInt(3, epoch);
+                statement.setInt(4, fromId);
+                statement.setInt(5, toId);
+                return statement.executeUpdate();
+            }
+        });
+        evictFromSecondLevelCache(Arrays.asList(fromId, toId));
+        return updatedRows;
+    }
+
+    @Override
+    public int[] addVotesInBatch(Map<Integer, Integer> votesByRestaurantId, int epoch) {
+        if (votesByRestaurantId.isEmpty()) {
+            return new int[0];
+        }
+        int[] updatedRows = entityManager.unwrap(Session.class).doReturningWork(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(ADD_VOTES_SQL)) {
+                for (Map.Entry<Integer, Integer> entry : votesByRestaurantId.entrySet()) {
+                    statement.setInt(1, epoch);
+                    statement.setInt(2, entry.getValue());
+                    statement.setInt(3, epoch);
+                    statement.setInt(4, entry.getKey());
+                    statement.addBatch();
+                }
+                return statement.executeBatch();
+            }
+        });
+        evictFromSecondLevelCache(votesByRestaurantId.keySet());
+        return updatedRows;
+    }
+
+    // Hibernate invalidates the region of the synchronized entity only (instead of all regions) after the statement
+    @Override
+    public int resetStaleVotes(Integer epoch, Integer limit) {
+        return entityManager.unwrap(Session.class).createNativeQuery(RESET_STALE_VOTES_SQL)
+                .addSynchronizedEntityClass(Restaurant.class)
+                .setParameter(1, epoch)
+                .setParameter(2, limit)
+                .executeUpdate();
+    }
+
+    // Votes are written bypassing Hibernate, so the restaurants are evicted from the second-level cache by hand,
+    // again after the commit, so that a concurrent session can't put the previous votes back
+    private void evictFromSecondLevelCache(Collection<Integer> ids) {
+        Cache cache = entityManager.getEntityManagerFactory().getCache();
+        Runnable eviction = () -> ids.forEach(id -> cache.evict(Restaurant.class, id));
+        eviction.run();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCommit() {
+                    eviction.run();
+                }
+            });
+        }
+    }
+
+    @Override
+    public void insertAll(Collection<Restaurant> restaurants) {
+        restaurants.forEach(entityManager::persist);
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Override
+    public void scrollAllWithMeals(int epoch, int fetchSize, Consumer<Restaurant> consumer) {
+        Query<?> query = entityManager.unwrap(Session.class).createQuery(ALL_WITH_MEALS_QUERY)
+                .setParameter(1, epoch)
+                .setFetchSize(fetchSize);
+        try (ScrollableResults results = query.scroll(ScrollMode.FORWARD_ONLY)) {
+            Restaurant restaurant = null;
+            while (results.next()) {
+                Integer id = (Integer) results.get(0);
+                if (restaurant == null || !restaurant.getId().equals(id)) {
+                    if (restaurant != null) {
+                        consumer.accept(restaurant);
+                    }
+                    restaurant = new Restaurant((String) results.get(1), (Integer) results.get(2), new ArrayList<>());
+                    restaurant.setId(id);
+                    restaurant.setVoteEpoch(epoch);
+                }
+                // Restaurant without meals is selected as one row of nulls in the columns of the meal
+                if (results.get(3) != null) {
+                    Meal meal = new Meal((String) results.get(4), (MealCategory) results.get(5), (Integer) results.get(6));
+                    meal.setId((Integer) results.get(3));
+                    meal.setRestaurant(restaurant);
+                    restaurant.getMeals().add(meal);
+                }
+            }
+            if (restaurant != null) {
+                consumer.accept(restaurant);
+            }
+        }
+    }
+
+    @Override
+    public void scrollAllBriefs(int epoch, int fetchSize, Consumer<RestaurantBrief> consumer) {
+        Query<RestaurantBrief> query = entityManager.unwrap(Session.class).createQuery(ALL_BRIEFS_QUERY, RestaurantBrief.class)
+                .setParameter(1, epoch)
+                .setFetchSize(fetchSize);
+        try (ScrollableResults results = query.scroll(ScrollMode.FORWARD_ONLY)) {
+            while (results.next()) {
+                consumer.accept((RestaurantBrief) results.get(0));
+            }
+        }
+    }
+
+}
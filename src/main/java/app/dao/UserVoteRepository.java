@@ -0,0 +1,13 @@
+package app.dao;
+
+import app.entity.UserVote;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+public interface UserVoteRepository extends JpaRepository<UserVote, String>, UserVoteRepositoryCustom {
+
+    List<UserVote> findAllByVoteDate(LocalDate voteDate);
+
+}
@@ -0,0 +1,13 @@
+package app.dao;
+
+import app.entity.UserVote;
+
+import java.util.Collection;
+
+public interface UserVoteRepositoryCustom {
+
+    // Inserts or replaces the votes of the users using a single JDBC batch of INSERT ... ON DUPLICATE KEY UPDATE statements
+    // Bypasses the persistence context, so it must be invoked inside of a transaction
+    void saveInBatch(Collection<UserVote> userVotes);
+
+}
@@ -0,0 +1,38 @@
+package app.dao;
+
+import app.entity.UserVote;
+import org.hibernate.Session;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.util.Collection;
+
+public class UserVoteRepositoryImpl implements UserVoteRepositoryCustom {
+
+    private static final String SAVE_USER_VOTE_SQL = "INSERT INTO user_vote (username, restaurant, vote_date) VALUES (?, ?, ?) " +
+            "ON DUPLICATE KEY UPDATE restaurant = VALUES(restaurant), vote_date = VALUES(vote_date)";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public void saveInBatch(Collection<UserVote> userVotes) {
+        if (userVotes.isEmpty()) {
+            return;
+        }
+        entityManager.unwrap(Session.class).doWork(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(SAVE_USER_VOTE_SQL)) {
+                for (UserVote userVote : userVotes) {
+                    statement.setString(1, userVote.getUsername());
+                    statement.setInt(2, userVote.getRestaurantId());
+                    statement.setDate(3, Date.valueOf(userVote.getVoteDate()));
+                    statement.addBatch();
+                }
+                statement.executeBatch();
+            }
+        });
+    }
+
+}
@@ -0,0 +1,17 @@
+package app.dao;
+
+import app.entity.VoteEpoch;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+
+public interface VoteEpochRepository extends JpaRepository<VoteEpoch, Integer> {
+
+    @Query("SELECT e.epoch FROM VoteEpoch e WHERE e.id = 1")
+    Integer findCurrentEpoch();
+
+    @Modifying
+    @Query("UPDATE VoteEpoch e SET e.epoch = e.epoch + 1 WHERE e.id = 1")
+    int advance();
+
+}
@@ -0,0 +1,7 @@
+package app.dao;
+
+import app.entity.VoteJournalCheckpoint;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface VoteJournalCheckpointRepository extends JpaRepository<VoteJournalCheckpoint, Integer> {
+}
@@ -3,8 +3,12 @@ package app.entity;
 import app.controller.views.RestaurantView;
 import com.fasterxml.jackson.annotation.JsonBackReference;
 import com.fasterxml.jackson.annotation.JsonView;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.hibernate.annotations.Fetch;
 import org.hibernate.annotations.FetchMode;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
 
 import javax.persistence.*;
 import javax.validation.constraints.NotBlank;
@@ -13,11 +17,18 @@ import javax.validation.constraints.PositiveOrZero;
 import java.util.Objects;
 
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = Meal.CACHE_REGION)
 @JsonView(RestaurantView.Detailed.class)
 public class Meal {
 
+    // Region of the second-level cache (see DbConfig)
+    public static final String CACHE_REGION = "meals";
+
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(generator = "meal_id")
+    @GenericGenerator(name = "meal_id", strategy = "app.entity.PooledIdGenerator",
+            parameters = @Parameter(name = PooledIdGenerator.SEGMENT_VALUE_PARAM, value = "meal"))
     private Integer id;
 
     @NotBlank(message = "Meal name must not be blank.")
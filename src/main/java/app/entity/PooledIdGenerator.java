@@ -0,0 +1,31 @@
+package app.entity;
+
+import org.hibernate.MappingException;
+import org.hibernate.engine.config.spi.ConfigurationService;
+import org.hibernate.id.enhanced.TableGenerator;
+import org.hibernate.service.ServiceRegistry;
+import org.hibernate.type.Type;
+
+import java.util.Properties;
+
+// Ids of the entities are allocated in blocks from the row of the entity (segment) in id_generator table:
+// one UPDATE of the row reserves the next BLOCK_SIZE_SETTING ids (pooled-lo optimizer), which are assigned in memory.
+// Unlike IDENTITY columns the id is known before the INSERT, so Hibernate can batch the inserts (see DbConfig).
+// Ids are unique across the instances of the application, but not contiguous: unused ids of a block are lost on restart.
+public class PooledIdGenerator extends TableGenerator {
+
+    public static final String TABLE_NAME = "id_generator";
+    public static final String BLOCK_SIZE_SETTING = "app.id_generator.block_size";
+
+    @Override
+    public void configure(Type type, Properties params, ServiceRegistry serviceRegistry) throws MappingException {
+        params.setProperty(TABLE_PARAM, TABLE_NAME);
+        params.setProperty(OPT_PARAM, "pooled-lo");
+        Object blockSize = serviceRegistry.getService(ConfigurationService.class).getSettings().get(BLOCK_SIZE_SETTING);
+        if (blockSize != null) {
+            params.setProperty(INCREMENT_PARAM, blockSize.toString());
+        }
+        super.configure(type, params, serviceRegistry);
+    }
+
+}
@@ -1,10 +1,15 @@
 package app.entity;
 
 import app.controller.views.RestaurantView;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonManagedReference;
 import com.fasterxml.jackson.annotation.JsonView;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.hibernate.annotations.Fetch;
 import org.hibernate.annotations.FetchMode;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
 
 import javax.persistence.*;
 import javax.validation.constraints.NotBlank;
@@ -12,10 +17,18 @@ import java.util.List;
 import java.util.Objects;
 
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = Restaurant.CACHE_REGION)
 public class Restaurant {
 
+    // Regions of the second-level cache (see DbConfig)
+    public static final String CACHE_REGION = "restaurants";
+    public static final String MEALS_CACHE_REGION = "restaurantMeals";
+
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(generator = "restaurant_id")
+    @GenericGenerator(name = "restaurant_id", strategy = "app.entity.PooledIdGenerator",
+            parameters = @Parameter(name = PooledIdGenerator.SEGMENT_VALUE_PARAM, value = "restaurant"))
     @JsonView(RestaurantView.Brief.class)
     private Integer id;
 
@@ -26,10 +39,16 @@ public class Restaurant {
     @JsonView(RestaurantView.Brief.class)
     private Integer votes;
 
+    // Votes tagged with an epoch other than the current one are treated as zero (see VoteEpochManager)
+    @JsonIgnore
+    @Column(name = "vote_epoch")
+    private Integer voteEpoch = 0;
+
     @JsonView(RestaurantView.Detailed.class)
     @JsonManagedReference
     @OneToMany(mappedBy = "restaurant", fetch = FetchType.LAZY, cascade = CascadeType.ALL, orphanRemoval = true)
     @Fetch(FetchMode.SUBSELECT)
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = Restaurant.MEALS_CACHE_REGION)
     private List<Meal> meals;
 
     public Restaurant() {
@@ -65,6 +84,14 @@ public class Restaurant {
         this.votes = votes;
     }
 
+    public Integer getVoteEpoch() {
+        return voteEpoch;
+    }
+
+    public void setVoteEpoch(Integer voteEpoch) {
+        this.voteEpoch = voteEpoch;
+    }
+
     public List<Meal> getMeals() {
         return meals;
     }
@@ -93,7 +120,13 @@ public class Restaurant {
         meals.clear();
     }
 
-    public void addVote() {
+    // Votes of the previous epoch are reset by the first vote of the current epoch,
+    // a vote of an older epoch is counted in the epoch of the restaurant (see RestaurantRepository.addVotes())
+    public void addVote(Integer epoch) {
+        if (voteEpoch == null || epoch > voteEpoch) {
+            votes = 0;
+            voteEpoch = epoch;
+        }
         votes++;
     }
 
@@ -0,0 +1,51 @@
+package app.entity;
+
+// Immutable projection of Restaurant for the SHORT view: id, name and votes only, selected by the constructor
+// expressions of RestaurantRepository. It is not an entity, so it is neither managed nor dirty-checked by the
+// persistence context, carries no proxy of the meals and is kept as it is in restaurantBriefsCache (see RestaurantCache)
+public final class RestaurantBrief {
+
+    private final Integer id;
+    private final String name;
+    private final Integer votes;
+
+    public RestaurantBrief(Integer id, String name, Integer votes) {
+        this.id = id;
+        this.name = name;
+        this.votes = votes;
+    }
+
+    public Integer getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Integer getVotes() {
+        return votes;
+    }
+
+    public RestaurantBrief withVotes(Integer votes) {
+        return new RestaurantBrief(id, name, votes);
+    }
+
+    // Detached restaurant without meals, which is serialized with RestaurantView.Brief view
+    public Restaurant toRestaurant(Integer voteEpoch) {
+        Restaurant restaurant = new Restaurant(name, votes, null);
+        restaurant.setId(id);
+        restaurant.setVoteEpoch(voteEpoch);
+        return restaurant;
+    }
+
+    @Override
+    public String toString() {
+        return "RestaurantBrief{" +
+                "id=" + id +
+                ", name='" + name + '\'' +
+                ", votes=" + votes +
+                '}';
+    }
+
+}
@@ -0,0 +1,81 @@
+package app.entity;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+import java.time.LocalDate;
+import java.util.Objects;
+
+// The last vote of the user: the restaurant the user voted for and the day of the vote (see UserVoteIndex)
+@Entity
+@Table(name = "user_vote")
+public class UserVote {
+
+    @Id
+    private String username;
+
+    @Column(name = "restaurant")
+    private Integer restaurantId;
+
+    @Column(name = "vote_date")
+    private LocalDate voteDate;
+
+    public UserVote() {
+    }
+
+    public UserVote(String username, Integer restaurantId, LocalDate voteDate) {
+        this.username = username;
+        this.restaurantId = restaurantId;
+        this.voteDate = voteDate;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public void setUsername(String username) {
+        this.username = username;
+    }
+
+    public Integer getRestaurantId() {
+        return restaurantId;
+    }
+
+    public void setRestaurantId(Integer restaurantId) {
+        this.restaurantId = restaurantId;
+    }
+
+    public LocalDate getVoteDate() {
+        return voteDate;
+    }
+
+    public void setVoteDate(LocalDate voteDate) {
+        this.voteDate = voteDate;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        UserVote userVote = (UserVote) o;
+        return Objects.equals(username, userVote.username) &&
+                Objects.equals(restaurantId, userVote.restaurantId) &&
+                Objects.equals(voteDate, userVote.voteDate);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(username, restaurantId, voteDate);
+    }
+
+    @Override
+    public String toString() {
+        return "UserVote{" +
+                "username='" + username + '\'' +
+                ", restaurantId=" + restaurantId +
+                ", voteDate=" + voteDate +
+                '}';
+    }
+
+}
@@ -0,0 +1,46 @@
+package app.entity;
+
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+
+// Current voting epoch: votes of restaurants tagged with any other epoch are treated as zero (see VoteEpochManager)
+@Entity
+@Table(name = "vote_epoch")
+public class VoteEpoch {
+
+    public static final Integer ID = 1;
+
+    @Id
+    private Integer id;
+
+    private Integer epoch;
+
+    public VoteEpoch() {
+    }
+
+    public Integer getId() {
+        return id;
+    }
+
+    public void setId(Integer id) {
+        this.id = id;
+    }
+
+    public Integer getEpoch() {
+        return epoch;
+    }
+
+    public void setEpoch(Integer epoch) {
+        this.epoch = epoch;
+    }
+
+    @Override
+    public String toString() {
+        return "VoteEpoch{" +
+                "id=" + id +
+                ", epoch=" + epoch +
+                '}';
+    }
+
+}
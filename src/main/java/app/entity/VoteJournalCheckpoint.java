@@ -0,0 +1,68 @@
+package app.entity;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+
+// Sequence of the last vote journal record applied to restaurant.votes column (see VoteJournal)
+// It is updated in the same transaction as the votes, so every journal record is applied exactly once
+// The sequence is valid only for the journal with the same id (a new journal starts its sequence from 0 again)
+@Entity
+@Table(name = "vote_journal_checkpoint")
+public class VoteJournalCheckpoint {
+
+    public static final Integer ID = 1;
+
+    @Id
+    private Integer id;
+
+    @Column(name = "journal_id")
+    private String journalId;
+
+    @Column(name = "applied_sequence")
+    private Long appliedSequence;
+
+    public VoteJournalCheckpoint() {
+    }
+
+    public VoteJournalCheckpoint(String journalId, Long appliedSequence) {
+        this.id = ID;
+        this.journalId = journalId;
+        this.appliedSequence = appliedSequence;
+    }
+
+    public Integer getId() {
+        return id;
+    }
+
+    public void setId(Integer id) {
+        this.id = id;
+    }
+
+    public String getJournalId() {
+        return journalId;
+    }
+
+    public void setJournalId(String journalId) {
+        this.journalId = journalId;
+    }
+
+    public Long getAppliedSequence() {
+        return appliedSequence;
+    }
+
+    public void setAppliedSequence(Long appliedSequence) {
+        this.appliedSequence = appliedSequence;
+    }
+
+    @Override
+    public String toString() {
+        return "VoteJournalCheckpoint{" +
+                "id=" + id +
+                ", journalId='" + journalId + '\'' +
+                ", appliedSequence=" + appliedSequence +
+                '}';
+    }
+
+}
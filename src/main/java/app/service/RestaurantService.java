@@ -2,29 +2,66 @@ package app.service;
 
 import app.dao.MealRepository;
 import app.dao.RestaurantRepository;
+import app.dao.UserVoteRepository;
 import app.entity.Meal;
 import app.entity.Restaurant;
+import app.entity.RestaurantBrief;
+import app.service.caching.CachedResponse;
+import app.service.caching.DataVersions;
+import app.service.caching.RestaurantCache;
+import app.service.caching.RestaurantPageKey;
+import app.service.caching.ResponseRefresher;
 import app.service.exceptions.EntityNotFoundException;
+import app.service.exceptions.EntityPropertiesValidationException;
+import app.service.helpers.AfterCommit;
+import app.service.helpers.MealChangeSet;
+import app.service.helpers.RestaurantCursor;
+import app.service.helpers.RestaurantCursorPage;
+import app.service.helpers.RestaurantImportLine;
+import app.service.helpers.RestaurantImportReport;
 import app.service.helpers.RestaurantSorter;
 import app.service.validation.ValidationUtil;
+import app.service.voting.Leaderboard;
+import app.service.voting.UserVoteIndex;
+import app.service.voting.VoteBuffer;
+import app.service.voting.VoteEpochManager;
+import app.service.voting.VoteQueue;
 import org.hibernate.Hibernate;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.cache.annotation.CacheEvict;
-import org.springframework.cache.annotation.Cacheable;
+import org.springframework.core.env.Environment;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
+// Methods run in read-only transactions unless they are annotated otherwise: Hibernate session of a read-only transaction
+// is never flushed (FlushMode.MANUAL) and loads entities as read-only, so no snapshots are kept for dirty checking,
+// and its JDBC connection is marked as read-only (see HibernateJpaDialect)
 @Service
-@Transactional
+@Transactional(readOnly = true)
 public class RestaurantService {
 
     private final Logger logger = LoggerFactory.getLogger(app.service.RestaurantService.class);
@@ -37,15 +74,58 @@ public class RestaurantService {
 
     private final RestaurantRepository restaurantRepository;
     private final MealRepository mealRepository;
+    private final VoteBuffer voteBuffer;
+    private final VoteQueue voteQueue;
+    private final UserVoteIndex userVoteIndex;
+    private final UserVoteRepository userVoteRepository;
+    private final RestaurantCache restaurantCache;
+    private final Leaderboard leaderboard;
+    private final VoteEpochManager voteEpochManager;
+    private final DataVersions dataVersions;
+    private final ResponseRefresher responseRefresher;
+
+    // Export Settings (see exportAllRestaurants())
+    private final int exportFetchSize;
+
+    // Import Settings (see importRestaurants())
+    private final TransactionTemplate importTransactionTemplate;
+    private final int importChunkSize;
+    private final int importMaxReportedErrors;
 
     public enum ListView {
         SHORT,
         DETAILED
     }
 
-    public RestaurantService(RestaurantRepository restaurantRepository, MealRepository mealRepository) {
+    public RestaurantService(RestaurantRepository restaurantRepository,
+                             MealRepository mealRepository,
+                             VoteBuffer voteBuffer,
+                             VoteQueue voteQueue,
+                             UserVoteIndex userVoteIndex,
+                             UserVoteRepository userVoteRepository,
+                             RestaurantCache restaurantCache,
+                             Leaderboard leaderboard,
+                             VoteEpochManager voteEpochManager,
+                             DataVersions dataVersions,
+                             ResponseRefresher responseRefresher,
+                             PlatformTransactionManager transactionManager,
+                             Environment env) {
         this.restaurantRepository = restaurantRepository;
         this.mealRepository = mealRepository;
+        this.voteBuffer = voteBuffer;
+        this.voteQueue = voteQueue;
+        this.userVoteIndex = userVoteIndex;
+        this.userVoteRepository = userVoteRepository;
+        this.restaurantCache = restaurantCache;
+        this.leaderboard = leaderboard;
+        this.voteEpochManager = voteEpochManager;
+        this.dataVersions = dataVersions;
+        this.responseRefresher = responseRefresher;
+        this.exportFetchSize = env.getProperty("restaurants.export.fetch-size", Integer.class, Integer.MIN_VALUE);
+        this.importTransactionTemplate = new TransactionTemplate(transactionManager);
+        this.importTransactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.importChunkSize = env.getProperty("restaurants.import.chunk-size", Integer.class, 500);
+        this.importMaxReportedErrors = env.getProperty("restaurants.import.max-reported-errors", Integer.class, 1000);
     }
 
     // Retrieve Methods ----------------------------------------------------------
@@ -59,14 +139,15 @@ public class RestaurantService {
         return getAllRestaurants(view, pageable);
     }
 
-    // Generates 1 SELECT query (due to lazy loading)
-    // Generates 1 more SELECT query to fetch all child collections (due to FetchMode.SUBSELECT)
+    // On cache miss generates 1 SELECT query (due to lazy loading) and 1 COUNT query
+    // Generates 1 more SELECT query to fetch all child collections (due to FetchMode.SUBSELECT) for DETAILED view
     // Usage of FetchMode.JOIN (instead of FetchMode.SUBSELECT) doesn't allow paginating at database level
+    // SHORT view selects only id, name and votes into RestaurantBrief projections, so no entity is managed
     // ----
-    // This is inefficient way of caching (entire collection instead of individual entities of the collection)
-    // because each invocation of RestaurantVotingService.voteForRestaurantById() clear an entire cache
-    // Possible solution: https://stackoverflow.com/questions/44529029/spring-cache-with-collection-of-items-entities
-    @Cacheable(cacheNames = "restaurantsCache", sync = true)
+    // The page is cached as an ordered list of restaurant ids while restaurants (or their briefs) are cached individually
+    // (see RestaurantCache), so each vote evicts only one restaurant and the pages sorted by votes
+    // Right after the votes are cleared the order by votes may be stale until VoteEpochManager resets them in the database
+    // (the controller takes the pages sorted by votes from Leaderboard, which is reset immediately)
     public List<Restaurant> getAllRestaurants(ListView view, Pageable pageable) {
         if (pageable == null) {
             pageable = PageRequest.of(
@@ -75,109 +156,269 @@ public class RestaurantService {
                     Sort.by(DEFAULT_SORT_DIRECTION, DEFAULT_SORTED_BY.getFieldName()));
         }
         view = (view == null ? ListView.SHORT : view);
-        List<Restaurant> restaurants = restaurantRepository.findAll(pageable).getContent();
-        if (view.name().equalsIgnoreCase("DETAILED")) {
-            restaurants.forEach(restaurant -> Hibernate.initialize(restaurant.getMeals()));
+        boolean detailed = view == ListView.DETAILED;
+        RestaurantPageKey key = RestaurantPageKey.of(view, pageable);
+        List<Integer> ids = restaurantCache.getPage(key);
+        List<Restaurant> restaurants;
+        if (ids != null) {
+            restaurants = detailed ? getRestaurantsByIds(ids) : toRestaurants(getBriefsByIds(ids));
+        }
+        else {
+            restaurants = detailed
+                    ? loadRestaurants(restaurantRepository.findAll(pageable).getContent())
+                    : toRestaurants(loadBriefs(restaurantRepository.findAllBriefs(voteEpochManager.getCurrentEpoch(), pageable).getContent()));
+            restaurantCache.putPage(key, restaurants.stream().map(Restaurant::getId).collect(Collectors.toList()));
         }
         logger.info("Restaurant Service layer: All restaurants have been returned.");
         return restaurants;
     }
 
+    // SHORT view is built entirely from the in-memory Leaderboard, no query is generated
+    // DETAILED view takes restaurants from the cache, missing restaurants are loaded by 1 SELECT query (+1 for their meals)
+    public List<Restaurant> getAllRestaurantsRankedByVotes(ListView view, Integer currentPage, Integer pageSize, Sort.Direction direction) {
+        view = (view == null ? ListView.SHORT : view);
+        currentPage = (currentPage == null ? DEFAULT_CURRENT_PAGE : currentPage);
+        pageSize = (pageSize == null ? DEFAULT_PAGE_SIZE : pageSize);
+        direction = (direction == null ? DEFAULT_SORT_DIRECTION : direction);
+        List<Leaderboard.Standing> standings = leaderboard.getPage(currentPage, pageSize, direction);
+        List<Restaurant> restaurants = fromStandings(standings, view);
+        logger.info("Restaurant Service layer: All restaurants ranked by votes have been returned.");
+        return restaurants;
+    }
+
+    // Returns the page serialized by the given serializer: the serialized page is cached, so on a cache hit
+    // neither restaurants are read nor JSON is written (see RestaurantCache)
+    // Pages sorted by votes are built from Leaderboard, which changes without evictions of the cache,
+    // so their responses are valid only as long as the version of Leaderboard is the same
+    // A stale response of such a page may be served while it is rebuilt in the background (see ResponseRefresher)
+    public byte[] getAllRestaurantsSerialized(ListView view, Pageable pageable, Function<List<Restaurant>, byte[]> serializer) {
+        ListView listView = (view == null ? ListView.SHORT : view);
+        RestaurantPageKey key = pageable == null ? null : RestaurantPageKey.of(listView, pageable);
+        boolean rankedByVotes = key != null && key.getSorter() == RestaurantSorter.VOTES;
+        CachedResponse response = restaurantCache.getResponse(key);
+        if (response != null && response.getVersion() == (rankedByVotes ? leaderboard.getVersion() : 0)) {
+            logger.info("Restaurant Service layer: All restaurants have been returned from the response cache.");
+            return response.getJson();
+        }
+        if (response != null && responseRefresher.refresh(key, response, () -> buildResponse(listView, pageable, key, serializer))) {
+            logger.info("Restaurant Service layer: All restaurants have been returned from the response cache while it is being refreshed.");
+            return response.getJson();
+        }
+        try {
+            return buildResponse(listView, pageable, key, serializer).getJson();
+        } catch (RuntimeException e) {
+            if (response == null || !responseRefresher.isEnabled()) {
+                throw e;
+            }
+            logger.warn("Restaurant Service layer: Failed to rebuild the response, the stale response has been returned.", e);
+            return response.getJson();
+        }
+    }
+
+    // Keyset pagination: the page starts right after the cursor (from the first restaurant if the cursor is null),
+    // so a deep page costs the same as the first one. The cursor (if any) overrides the given sorter and direction.
+    // Restaurants sorted by votes are taken from the in-memory Leaderboard, others are loaded by 1 SELECT query
+    // of an index range (+1 for their meals in DETAILED view, SHORT view selects only their briefs), no COUNT query is generated
+    public RestaurantCursorPage getAllRestaurantsAfter(ListView view, RestaurantSorter sorter, Sort.Direction direction,
+                                                       RestaurantCursor cursor, Integer pageSize) {
+        view = (view == null ? ListView.SHORT : view);
+        pageSize = (pageSize == null ? DEFAULT_PAGE_SIZE : pageSize);
+        if (cursor != null) {
+            sorter = cursor.getSorter();
+            direction = cursor.getDirection();
+        }
+        sorter = (sorter == null ? DEFAULT_SORTED_BY : sorter);
+        direction = (direction == null ? DEFAULT_SORT_DIRECTION : direction);
+        List<Restaurant> restaurants;
+        RestaurantCursor next = null;
+        if (sorter == RestaurantSorter.VOTES) {
+            List<Leaderboard.Standing> standings = leaderboard.getPageAfter(
+                    cursor == null ? null : cursor.getId(), cursor == null ? 0 : cursor.getVotes(), pageSize, direction);
+            restaurants = fromStandings(standings, view);
+            if (!standings.isEmpty() && standings.size() == pageSize) {
+                Leaderboard.Standing last = standings.get(standings.size() - 1);
+                next = RestaurantCursor.afterVotes(direction, last.getId(), last.getVotes());
+            }
+        }
+        else {
+            Pageable limit = PageRequest.of(0, pageSize, Sort.by(direction, sorter.getFieldName()));
+            boolean ascending = direction == Sort.Direction.ASC;
+            if (view == ListView.DETAILED) {
+                List<Restaurant> found;
+                if (cursor == null) {
+                    found = restaurantRepository.findAllBy(limit);
+                }
+                else if (sorter == RestaurantSorter.ID) {
+                    found = ascending ? restaurantRepository.findByIdGreaterThan(cursor.getId(), limit) : restaurantRepository.findByIdLessThan(cursor.getId(), limit);
+                }
+                else {
+                    found = ascending ? restaurantRepository.findByNameGreaterThan(cursor.getName(), limit) : restaurantRepository.findByNameLessThan(cursor.getName(), limit);
+                }
+                restaurants = loadRestaurants(found);
+            }
+            else {
+                Integer epoch = voteEpochManager.getCurrentEpoch();
+                List<RestaurantBrief> found;
+                if (cursor == null) {
+                    found = restaurantRepository.findBriefsBy(epoch, limit);
+                }
+                else if (sorter == RestaurantSorter.ID) {
+                    found = ascending ? restaurantRepository.findBriefsByIdGreaterThan(epoch, cursor.getId(), limit) : restaurantRepository.findBriefsByIdLessThan(epoch, cursor.getId(), limit);
+                }
+                else {
+                    found = ascending ? restaurantRepository.findBriefsByNameGreaterThan(epoch, cursor.getName(), limit) : restaurantRepository.findBriefsByNameLessThan(epoch, cursor.getName(), limit);
+                }
+                restaurants = toRestaurants(loadBriefs(found));
+            }
+            if (!restaurants.isEmpty() && restaurants.size() == pageSize) {
+                Restaurant last = restaurants.get(restaurants.size() - 1);
+                next = sorter == RestaurantSorter.ID ? RestaurantCursor.afterId(direction, last.getId()) : RestaurantCursor.afterName(direction, last.getId(), last.getName());
+            }
+        }
+        logger.info("Restaurant Service layer: Page of restaurants after the cursor has been returned.");
+        return new RestaurantCursorPage(restaurants, next);
+    }
+
+    // Passes every restaurant ordered by id to the consumer (e.g. a stream of the response) while they are read
+    // by a forward-only cursor of 1 SELECT query (joined with the meals for DETAILED view), so the memory used
+    // doesn't depend on the number of restaurants: the rows are fetched by restaurants.export.fetch-size
+    // (Integer.MIN_VALUE makes MySQL driver stream them one by one) and read as scalars, so no entity is kept
+    // in the persistence context. Caches are neither read nor filled
+    public void exportAllRestaurants(ListView view, Consumer<Restaurant> consumer) {
+        int epoch = voteEpochManager.getCurrentEpoch();
+        if (view == ListView.DETAILED) {
+            restaurantRepository.scrollAllWithMeals(epoch, exportFetchSize, restaurant -> consumer.accept(withPendingVotes(restaurant)));
+        }
+        else {
+            restaurantRepository.scrollAllBriefs(epoch, exportFetchSize, brief -> consumer.accept(withPendingVotes(brief).toRestaurant(epoch)));
+        }
+        logger.info("Restaurant Service layer: All restaurants have been exported.");
+    }
+
     // Generates 1 SELECT query despite global fetch strategy FetchMode.SUBSELECT (see RestaurantRepository.class)
     // Without FetchMode.SUBSELECT findById() method of Spring Data can be directly used because FetchMode.JOIN is default strategy for to-Many relations
+    // No query is generated if the restaurant is cached (see RestaurantCache) or found in the query and second-level caches (see DbConfig)
     public Restaurant getRestaurantById(Integer id) {
         ValidationUtil.checkNotNullEntityId(id);
-        Restaurant restaurant = restaurantRepository.getRestaurantById(id);
-        if (restaurant == null) {
-            throw new EntityNotFoundException("Restaurant with id=" + id + " not found.");
-        }
+        Restaurant restaurant = restaurantCache.getRestaurantDetails(id, () -> {
+            Restaurant found = restaurantRepository.getRestaurantById(id);
+            if (found == null) {
+                throw new EntityNotFoundException("Restaurant with id=" + id + " not found.");
+            }
+            // Result of the query cache doesn't initialize the fetched meals, they are taken from the second-level cache then
+            Hibernate.initialize(found.getMeals());
+            return withPendingVotes(found);
+        });
         logger.info("Restaurant Service layer: Restaurant with id = {} has been returned.", id);
         return restaurant;
     }
 
     // Generates 1 SELECT query (due to FetchMode.JOIN for restaurant property of Meal entity)
     // Without FetchMode.JOIN, 2 queries are generated because FetchMode.SELECT is default strategy for to-One relations
+    // No query is generated if the meal is cached (see RestaurantCache)
     public Meal getMealById(Integer id) {
         ValidationUtil.checkNotNullEntityId(id);
-        Meal meal =  mealRepository.findById(id)
-                .orElseThrow(() -> new EntityNotFoundException("Meal with id=" + id + " not found."));
+        Meal meal = restaurantCache.getMeal(id, () -> mealRepository.findById(id)
+                .orElseThrow(() -> new EntityNotFoundException("Meal with id=" + id + " not found.")));
+        dataVersions.registerMeal(id, meal.getRestaurant().getId());
         logger.info("Restaurant Service layer: Meal with id = {} has been returned.", id);
         return meal;
     }
 
+    // Tags (ETags) of the data must be taken before the data is read (see DataVersions), no query is generated
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public String getAllRestaurantsTag() {
+        return dataVersions.getRestaurantsTag(leaderboard.getVersion());
+    }
+
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public String getRestaurantTag(Integer id) {
+        ValidationUtil.checkNotNullEntityId(id);
+        return dataVersions.getRestaurantTag(id);
+    }
+
+    // Returns null if the tag of the meal is not known yet
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public String getMealTag(Integer id) {
+        ValidationUtil.checkNotNullEntityId(id);
+        return dataVersions.getMealTag(id);
+    }
+
     // Delete Methods ------------------------------------------------------------
 
-    @CacheEvict(cacheNames = "restaurantsCache", allEntries = true)
+    // Generates 3 DELETE statements whatever the number of restaurants and meals: meals first, as they reference
+    // the restaurants (see RestaurantRepository.deleteAllInBulk()), and the votes of the users, like clearAllVotes()
+    // of RestaurantVotingService (otherwise the users would move the votes they gave to the removed restaurants)
+    @Transactional
     public void deleteAllRestaurants() {
-        restaurantRepository.deleteAll();
+        // Pending votes are discarded first, so that none of them is written for a removed restaurant
+        voteBuffer.discardAll();
+        voteQueue.discardAll();
+        mealRepository.deleteAllInBulk();
+        restaurantRepository.deleteAllInBulk();
+        userVoteRepository.deleteAllInBatch();
+        restaurantCache.clear();
+        AfterCommit.run(userVoteIndex::clear);
+        AfterCommit.run(leaderboard::clear);
         logger.info("Restaurant Service layer: All restaurants have been removed.");
     }
 
-    @CacheEvict(cacheNames = "restaurantsCache", allEntries = true)
+    @Transactional
     public void deleteRestaurantById(Integer id) {
         ValidationUtil.checkNotNullEntityId(id);
         restaurantRepository.findById(id)
                 .orElseThrow(() -> new EntityNotFoundException("Restaurant with id=" + id + " not found."));
         restaurantRepository.deleteById(id);
+        voteBuffer.discard(id);
+        restaurantCache.evictRemovedRestaurant(id);
+        AfterCommit.run(() -> leaderboard.remove(id));
         logger.info("Restaurant Service layer: Restaurant with id = {} has been removed.", id);
     }
 
-    @CacheEvict(cacheNames = "restaurantsCache", allEntries = true)
+    @Transactional
     public void deleteMealById(Integer id) {
         ValidationUtil.checkNotNullEntityId(id);
         Meal meal = mealRepository.findById(id).orElseThrow(() -> new EntityNotFoundException("Meal with id=" + id + " not found."));
         Restaurant restaurant = meal.getRestaurant();
         restaurant.removeMeal(meal);
+        restaurantCache.evictRemovedMeal(restaurant.getId(), id);
         logger.info("Restaurant Service layer: Meal with id = {} has been removed.", id);
     }
 
-    @CacheEvict(cacheNames = "restaurantsCache", allEntries = true)
+    // Generates 1 DELETE statement, no restaurant or meal is loaded
+    @Transactional
     public void deleteAllMeals() {
-        List<Restaurant> restaurants = restaurantRepository.findAll();
-        for (Restaurant restaurant : restaurants) {
-            restaurant.removeMeals();
-        }
+        mealRepository.deleteAllInBulk();
+        restaurantCache.evictAllRestaurants();
         logger.info("Restaurant Service layer: All meals have been removed.");
     }
 
-    @CacheEvict(cacheNames = "restaurantsCache", allEntries = true)
+    // Generates 1 SELECT COUNT query to check the restaurant and 1 DELETE statement, the meals are not loaded
+    @Transactional
     public void deleteAllMealsForRestaurantWithId(Integer id) {
         ValidationUtil.checkNotNullEntityId(id);
-        Restaurant restaurant = restaurantRepository.findById(id)
-                .orElseThrow(() -> new EntityNotFoundException("Restaurant with id=" + id + " not found."));
-        restaurant.removeMeals();
+        if (!restaurantRepository.existsById(id)) {
+            throw new EntityNotFoundException("Restaurant with id=" + id + " not found.");
+        }
+        mealRepository.deleteAllByRestaurantIdInBulk(id);
+        restaurantCache.evictRemovedMeals(id);
         logger.info("Restaurant Service layer: All meals for restaurant with id = {} have been removed.", id);
     }
 
     // Create Methods -------------------------------------------------------------
 
-    @CacheEvict(cacheNames = "restaurantsCache", allEntries = true)
+    @Transactional
     public Integer createRestaurant(Restaurant restaurant) {
-        ValidationUtil.checkNotNullEntityInstance(restaurant);
-        ValidationUtil.checkNullEntityId(restaurant.getId());
-        // Creation of restaurant without name is not allowed
-        ValidationUtil.validateEntityProperties(restaurant);
-        // Creation of restaurant with empty list of meals or without meals property at all is allowed
-        if (restaurant.getMeals() == null || restaurant.getMeals().isEmpty()) {
-            restaurant.setMeals(new ArrayList<>());
-        }
-        else {
-            restaurant.getMeals().forEach(meal -> {
-                ValidationUtil.checkNotNullEntityInstance(meal);
-                ValidationUtil.checkNullEntityId(meal.getId());
-                ValidationUtil.validateEntityProperties(meal);
-            });
-        }
-        // Creation of restaurant with non-zero votes is not allowed
-        restaurant.setVotes(0);
-
+        prepareNewRestaurant(restaurant);
         restaurantRepository.save(restaurant);
         Integer id = restaurant.getId();
+        restaurantCache.evictRestaurantAndPages(id);
+        AfterCommit.run(() -> leaderboard.put(id, restaurant.getName(), 0));
         logger.info("Restaurant Service layer: New restaurant with id = {} has been created.", id);
         return id;
     }
 
-    @CacheEvict(cacheNames = "restaurantsCache", allEntries = true)
+    @Transactional
     public Integer createMealForRestaurantWithId(Integer id, Meal meal) {
         ValidationUtil.checkNotNullEntityId(id);
         ValidationUtil.checkNotNullEntityInstance(meal);
@@ -187,14 +428,52 @@ public class RestaurantService {
         restaurant.addMeal(meal);
         // DO NOT DELETE THIS flush() INVOCATION!
         restaurantRepository.flush();
+        restaurantCache.evictMeal(id, meal.getId());
         logger.info("Restaurant Service layer: New meal for restaurant with id = {} has been created.", id);
         return meal.getId();
     }
 
+    // Import Methods -------------------------------------------------------
+
+    // Restaurants are taken one by one from the given lines (e.g. parsed from the stream of the request) and created
+    // in chunks of restaurants.import.chunk-size, each in its own transaction: the chunk is inserted by JDBC batches
+    // and detached before the commit (see RestaurantRepository.insertAll()), so only one chunk is held in memory
+    // Lines which fail the validation of createRestaurant(), or whose restaurant name is already taken, are reported
+    // and skipped. If a chunk still violates a constraint (e.g. the same name has been taken concurrently), its restaurants
+    // are created one by one to find the lines at fault
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public RestaurantImportReport importRestaurants(Iterator<RestaurantImportLine> lines) {
+        RestaurantImportReport report = new RestaurantImportReport(importMaxReportedErrors);
+        List<RestaurantImportLine> chunk = new ArrayList<>();
+        // Names of the restaurants of the chunk, in lower case as they are compared by the collation of the database
+        Set<String> names = new HashSet<>();
+        while (lines.hasNext()) {
+            RestaurantImportLine line = lines.next();
+            List<String> errors = line.getRestaurant() == null ? line.getErrors() : checkImportedRestaurant(line.getRestaurant(), names);
+            if (!errors.isEmpty()) {
+                report.addFailed(line.getLine(), errors);
+                continue;
+            }
+            chunk.add(line);
+            if (chunk.size() == importChunkSize) {
+                importChunk(chunk, report);
+                chunk.clear();
+                names.clear();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            importChunk(chunk, report);
+        }
+        logger.info("Restaurant Service layer: {} restaurants have been imported, {} lines have failed.", report.getImported(), report.getFailed());
+        return report;
+    }
+
     // Update Methods -------------------------------------------------------
 
-    @CacheEvict(cacheNames = "restaurantsCache", allEntries = true)
-    public void updateRestaurantById(Integer id, Restaurant restaurant) {
+    // Menu is replaced by merging the given meals into the current ones (see mergeMeals()), so only the meals which
+    // have actually changed are written, and the returned change set lists them. Without meals the menu is kept as it is
+    @Transactional
+    public MealChangeSet updateRestaurantById(Integer id, Restaurant restaurant) {
         ValidationUtil.checkNotNullEntityId(id);
         ValidationUtil.checkNotNullEntityInstance(restaurant);
         ValidationUtil.validateEntityProperties(restaurant);
@@ -202,21 +481,24 @@ public class RestaurantService {
                 .orElseThrow(() -> new EntityNotFoundException("Restaurant with id=" + id + " not found."));
         r.setName(restaurant.getName());
         r.setVotes(restaurant.getVotes());
+        r.setVoteEpoch(voteEpochManager.getCurrentEpoch());
+        MealChangeSet changes = MealChangeSet.NONE;
         if (restaurant.getMeals() != null) {
             restaurant.getMeals().forEach(meal -> {
                 ValidationUtil.checkNotNullEntityInstance(meal);
                 ValidationUtil.checkNullEntityId(meal.getId());
                 ValidationUtil.validateEntityProperties(meal);
             });
-            r.removeMeals();
-            // DO NOT DELETE THIS flush() INVOCATION!
-            restaurantRepository.flush();
-            r.addMeals(restaurant.getMeals());
+            changes = mergeMeals(r, restaurant.getMeals());
+            changes.getDeleted().forEach(mealId -> restaurantCache.evictRemovedMeal(id, mealId));
         }
+        restaurantCache.evictNameAndVotesOf(id);
+        AfterCommit.run(() -> leaderboard.put(id, r.getName(), r.getVotes() + voteBuffer.getPendingVotes(id)));
         logger.info("Restaurant Service layer: Restaurant with id = {} has been updated.", id);
+        return changes;
     }
 
-    @CacheEvict(cacheNames = "restaurantsCache", allEntries = true)
+    @Transactional
     public void updateMealById(Integer id, Meal meal) {
         ValidationUtil.checkNotNullEntityId(id);
         ValidationUtil.checkNotNullEntityInstance(meal);
@@ -226,7 +508,244 @@ public class RestaurantService {
         m.setName(meal.getName());
         m.setCategory(meal.getCategory());
         m.setPrice(meal.getPrice());
+        restaurantCache.evictMeal(m.getRestaurant().getId(), id);
         logger.info("Restaurant Service layer: Meal with id = {} has been updated.", id);
     }
 
+    // Helper Methods -------------------------------------------------------
+
+    // Validates the restaurant to be created, which gets no votes and an empty list of meals if it has none
+    private void prepareNewRestaurant(Restaurant restaurant) {
+        ValidationUtil.checkNotNullEntityInstance(restaurant);
+        ValidationUtil.checkNullEntityId(restaurant.getId());
+        // Creation of restaurant without name is not allowed
+        ValidationUtil.validateEntityProperties(restaurant);
+        // Creation of restaurant with empty list of meals or without meals property at all is allowed
+        if (restaurant.getMeals() == null || restaurant.getMeals().isEmpty()) {
+            restaurant.setMeals(new ArrayList<>());
+        }
+        else {
+            restaurant.getMeals().forEach(meal -> {
+                ValidationUtil.checkNotNullEntityInstance(meal);
+                ValidationUtil.checkNullEntityId(meal.getId());
+                ValidationUtil.validateEntityProperties(meal);
+            });
+        }
+        // Creation of restaurant with non-zero votes is not allowed
+        restaurant.setVotes(0);
+        restaurant.setVoteEpoch(voteEpochManager.getCurrentEpoch());
+    }
+
+    // Returns the errors of the imported restaurant: those of createRestaurant() and the duplicates within the chunk
+    private List<String> checkImportedRestaurant(Restaurant restaurant, Set<String> names) {
+        try {
+            prepareNewRestaurant(restaurant);
+        } catch (EntityPropertiesValidationException e) {
+            return e.getErrors();
+        } catch (IllegalArgumentException e) {
+            return Collections.singletonList(e.getMessage());
+        }
+        List<String> errors = new ArrayList<>();
+        Set<String> meals = new HashSet<>();
+        for (Meal meal : restaurant.getMeals()) {
+            if (!meals.add(mealKey(meal))) {
+                errors.add("Meal with name=" + meal.getName() + " and category=" + meal.getCategory() + " is duplicated.");
+            }
+        }
+        if (errors.isEmpty() && !names.add(restaurant.getName().toLowerCase(Locale.ROOT))) {
+            errors.add("Restaurant with name=" + restaurant.getName() + " is duplicated.");
+        }
+        return errors;
+    }
+
+    // Names taken in the database are looked up by 1 SELECT query for the whole chunk
+    private void importChunk(List<RestaurantImportLine> chunk, RestaurantImportReport report) {
+        Set<String> takenNames = restaurantRepository.findNamesByNameIn(chunk.stream().map(line -> line.getRestaurant().getName()).collect(Collectors.toList()))
+                .stream().map(name -> name.toLowerCase(Locale.ROOT)).collect(Collectors.toSet());
+        List<RestaurantImportLine> accepted = new ArrayList<>(chunk.size());
+        for (RestaurantImportLine line : chunk) {
+            if (takenNames.contains(line.getRestaurant().getName().toLowerCase(Locale.ROOT))) {
+                report.addFailed(line.getLine(), Collections.singletonList("Restaurant with name=" + line.getRestaurant().getName() + " already exists."));
+            }
+            else {
+                accepted.add(line);
+            }
+        }
+        try {
+            insertRestaurants(accepted);
+            report.addImported(accepted.size());
+        } catch (DataIntegrityViolationException e) {
+            logger.info("Restaurant Service layer: Chunk of imported restaurants violates a constraint, its restaurants are created one by one.");
+            for (RestaurantImportLine line : accepted) {
+                resetIds(line.getRestaurant());
+                try {
+                    insertRestaurants(Collections.singletonList(line));
+                    report.addImported(1);
+                } catch (DataIntegrityViolationException ex) {
+                    resetIds(line.getRestaurant());
+                    report.addFailed(line.getLine(), Collections.singletonList("Restaurant violates a constraint of the database, its name or one of its meals is probably a duplicate."));
+                }
+            }
+        }
+    }
+
+    private void insertRestaurants(List<RestaurantImportLine> lines) {
+        if (lines.isEmpty()) {
+            return;
+        }
+        importTransactionTemplate.execute(status -> {
+            List<Restaurant> restaurants = lines.stream().map(RestaurantImportLine::getRestaurant).collect(Collectors.toList());
+            restaurantRepository.insertAll(restaurants);
+            restaurantCache.evictRestaurantsAndPages(restaurants.stream().map(Restaurant::getId).collect(Collectors.toSet()));
+            AfterCommit.run(() -> restaurants.forEach(restaurant -> leaderboard.put(restaurant.getId(), restaurant.getName(), 0)));
+            return null;
+        });
+    }
+
+    // Meals are matched by their key in unique_name_category_restaurant constraint (see mealKey()): a matched meal is
+    // updated only if its name or price differs, the current meals left unmatched are deleted and the given ones inserted
+    // The database may still take a deleted meal and an inserted one for the same (e.g. names differing by accents
+    // or trailing spaces), so the deletes are flushed before the meals are inserted
+    // Generates 1 SELECT query for the current meals and 1 statement per changed meal (inserts in a JDBC batch)
+    private MealChangeSet mergeMeals(Restaurant restaurant, List<Meal> meals) {
+        Map<String, Meal> currentMeals = new HashMap<>();
+        restaurant.getMeals().forEach(meal -> currentMeals.put(mealKey(meal), meal));
+        List<Meal> inserted = new ArrayList<>();
+        List<Integer> updated = new ArrayList<>();
+        for (Meal meal : meals) {
+            Meal current = currentMeals.remove(mealKey(meal));
+            if (current == null) {
+                inserted.add(meal);
+            }
+            else if (!current.getName().equals(meal.getName()) || !current.getPrice().equals(meal.getPrice())) {
+                current.setName(meal.getName());
+                current.setPrice(meal.getPrice());
+                updated.add(current.getId());
+            }
+        }
+        List<Integer> deleted = new ArrayList<>();
+        currentMeals.values().forEach(meal -> {
+            restaurant.removeMeal(meal);
+            deleted.add(meal.getId());
+        });
+        // DO NOT DELETE THIS flush() INVOCATION! Hibernate executes inserts before deletes
+        if (!deleted.isEmpty() && !inserted.isEmpty()) {
+            restaurantRepository.flush();
+        }
+        restaurant.addMeals(inserted);
+        // Ids of the inserted meals are assigned on flush
+        restaurantRepository.flush();
+        return new MealChangeSet(inserted.stream().map(Meal::getId).collect(Collectors.toList()), updated, deleted);
+    }
+
+    // Names are compared ignoring case, as the collation of the database does (whatever the default locale)
+    private static String mealKey(Meal meal) {
+        return meal.getName().toLowerCase(Locale.ROOT) + ":" + meal.getCategory();
+    }
+
+    // Ids allocated for the restaurant and its meals by a rolled back transaction are dropped
+    private static void resetIds(Restaurant restaurant) {
+        restaurant.setId(null);
+        restaurant.getMeals().forEach(meal -> meal.setId(null));
+    }
+
+    // Version of Leaderboard is read before the ranking, so the response built of the changing ranking is already stale
+    private CachedResponse buildResponse(ListView view, Pageable pageable, RestaurantPageKey key, Function<List<Restaurant>, byte[]> serializer) {
+        boolean rankedByVotes = key != null && key.getSorter() == RestaurantSorter.VOTES;
+        long version = rankedByVotes ? leaderboard.getVersion() : 0;
+        List<Restaurant> restaurants = rankedByVotes
+                ? getAllRestaurantsRankedByVotes(view, pageable.getPageNumber(), pageable.getPageSize(), key.getDirection())
+                : getAllRestaurants(view, pageable);
+        CachedResponse response = new CachedResponse(serializer.apply(restaurants), restaurants.stream().mapToInt(Restaurant::getId).toArray(), version);
+        restaurantCache.putResponse(key, response);
+        return response;
+    }
+
+    // SHORT view is built entirely from the standings, DETAILED view takes restaurants from the cache (see getRestaurantsByIds())
+    private List<Restaurant> fromStandings(List<Leaderboard.Standing> standings, ListView view) {
+        if (view == ListView.DETAILED) {
+            return getRestaurantsByIds(standings.stream().map(Leaderboard.Standing::getId).collect(Collectors.toList()));
+        }
+        return toRestaurants(standings.stream()
+                .map(standing -> new RestaurantBrief(standing.getId(), standing.getName(), (int) standing.getVotes()))
+                .collect(Collectors.toList()));
+    }
+
+    // Restaurants missing in the cache are loaded with their meals by 1 SELECT query (+1 for the meals)
+    private List<Restaurant> getRestaurantsByIds(List<Integer> ids) {
+        List<Integer> missingIds = new ArrayList<>();
+        List<Restaurant> restaurants = restaurantCache.getRestaurants(ids, missingIds);
+        if (!missingIds.isEmpty()) {
+            Map<Integer, Restaurant> loadedRestaurants = loadRestaurants(restaurantRepository.findAllById(missingIds)).stream()
+                    .collect(Collectors.toMap(Restaurant::getId, Function.identity()));
+            for (int i = 0; i < restaurants.size(); i++) {
+                if (restaurants.get(i) == null) {
+                    restaurants.set(i, loadedRestaurants.get(ids.get(i)));
+                }
+            }
+            // Restaurants removed after the page has been cached
+            restaurants.removeIf(Objects::isNull);
+        }
+        return restaurants;
+    }
+
+    // Same as getRestaurantsByIds(), missing briefs are selected by 1 SELECT query of their columns only
+    private List<RestaurantBrief> getBriefsByIds(List<Integer> ids) {
+        List<Integer> missingIds = new ArrayList<>();
+        List<RestaurantBrief> briefs = restaurantCache.getBriefs(ids, missingIds);
+        if (!missingIds.isEmpty()) {
+            Map<Integer, RestaurantBrief> loadedBriefs = loadBriefs(restaurantRepository.findBriefsByIds(voteEpochManager.getCurrentEpoch(), missingIds)).stream()
+                    .collect(Collectors.toMap(RestaurantBrief::getId, Function.identity()));
+            for (int i = 0; i < briefs.size(); i++) {
+                if (briefs.get(i) == null) {
+                    briefs.set(i, loadedBriefs.get(ids.get(i)));
+                }
+            }
+            // Restaurants removed after the page has been cached
+            briefs.removeIf(Objects::isNull);
+        }
+        return briefs;
+    }
+
+    private List<Restaurant> loadRestaurants(List<Restaurant> restaurants) {
+        restaurants.forEach(restaurant -> Hibernate.initialize(restaurant.getMeals()));
+        List<Restaurant> result = restaurants.stream().map(this::withPendingVotes).collect(Collectors.toList());
+        result.forEach(restaurantCache::putRestaurant);
+        return result;
+    }
+
+    private List<RestaurantBrief> loadBriefs(List<RestaurantBrief> briefs) {
+        List<RestaurantBrief> result = briefs.stream().map(this::withPendingVotes).collect(Collectors.toList());
+        result.forEach(restaurantCache::putBrief);
+        return result;
+    }
+
+    // Briefs are shared by the cache, so every response gets its own detached restaurants
+    private List<Restaurant> toRestaurants(List<RestaurantBrief> briefs) {
+        int epoch = voteEpochManager.getCurrentEpoch();
+        return briefs.stream().map(brief -> brief.toRestaurant(epoch)).collect(Collectors.toList());
+    }
+
+    // Votes buffered by RestaurantVotingService are merged into a detached copy of the restaurant,
+    // so that the managed entity is never dirtied (and the pending votes are never written twice)
+    // Votes of the previous epoch are replaced by zero in the same way (see VoteEpochManager)
+    private Restaurant withPendingVotes(Restaurant restaurant) {
+        long pendingVotes = voteBuffer.getPendingVotes(restaurant.getId());
+        boolean currentEpoch = voteEpochManager.isCurrent(restaurant.getVoteEpoch());
+        if (pendingVotes == 0 && currentEpoch) {
+            return restaurant;
+        }
+        int votes = currentEpoch ? restaurant.getVotes() : 0;
+        Restaurant copy = new Restaurant(restaurant.getName(), votes + (int) pendingVotes, restaurant.getMeals());
+        copy.setId(restaurant.getId());
+        copy.setVoteEpoch(voteEpochManager.getCurrentEpoch());
+        return copy;
+    }
+
+    // Briefs are selected with the votes of the current epoch already, only the buffered votes are added
+    private RestaurantBrief withPendingVotes(RestaurantBrief brief) {
+        long pendingVotes = voteBuffer.getPendingVotes(brief.getId());
+        return pendingVotes == 0 ? brief : brief.withVotes(brief.getVotes() + (int) pendingVotes);
+    }
+
 }
@@ -1,17 +1,41 @@
 package app.service;
 
 import app.dao.RestaurantRepository;
+import app.dao.UserVoteRepository;
 import app.entity.Restaurant;
+import app.service.caching.RestaurantCache;
 import app.service.exceptions.EntityNotFoundException;
+import app.service.exceptions.VoteQueueFullException;
+import app.service.helpers.AfterCommit;
+import app.service.helpers.VotingMode;
 import app.service.validation.ValidationUtil;
+import app.service.voting.Leaderboard;
+import app.service.voting.UserVoteIndex;
+import app.service.voting.VoteEpochManager;
+import app.service.voting.VoteBuffer;
+import app.service.voting.VoteEntry;
+import app.service.voting.VoteEntryResult;
+import app.service.voting.VoteQueue;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.core.env.Environment;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
 import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 @Service
 @Transactional(propagation = Propagation.REQUIRES_NEW)
@@ -20,25 +44,227 @@ public class RestaurantVotingService {
     private final Logger logger = LoggerFactory.getLogger(app.service.RestaurantVotingService.class);
 
     private final RestaurantRepository restaurantRepository;
+    private final VoteBuffer voteBuffer;
+    private final VoteQueue voteQueue;
+    private final RestaurantCache restaurantCache;
+    private final Leaderboard leaderboard;
+    private final UserVoteIndex userVoteIndex;
+    private final UserVoteRepository userVoteRepository;
+    private final VoteEpochManager voteEpochManager;
+    private final TransactionTemplate transactionTemplate;
+    private final VotingMode votingMode;
 
-    public RestaurantVotingService(RestaurantRepository restaurantRepository) {
+    public RestaurantVotingService(RestaurantRepository restaurantRepository,
+                                   VoteBuffer voteBuffer,
+                                   VoteQueue voteQueue,
+                                   RestaurantCache restaurantCache,
+                                   Leaderboard leaderboard,
+                                   UserVoteIndex userVoteIndex,
+                                   UserVoteRepository userVoteRepository,
+                                   VoteEpochManager voteEpochManager,
+                                   PlatformTransactionManager transactionManager,
+                                   Environment env) {
         this.restaurantRepository = restaurantRepository;
+        this.voteBuffer = voteBuffer;
+        this.voteQueue = voteQueue;
+        this.restaurantCache = restaurantCache;
+        this.leaderboard = leaderboard;
+        this.userVoteIndex = userVoteIndex;
+        this.userVoteRepository = userVoteRepository;
+        this.voteEpochManager = voteEpochManager;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.votingMode = env.getProperty("voting.mode", VotingMode.class, VotingMode.DIRECT);
     }
 
-    // CacheEvict here is the weakest part of the app in terms of performance because it makes usage of cache almost useless!
-    @CacheEvict(cacheNames = "restaurantsCache", allEntries = true)
-    public void voteForRestaurantById(Integer id) {
+    public VotingMode getVotingMode() {
+        return votingMode;
+    }
+
+    // Each vote evicts only the voted restaurant and the pages sorted by votes from the cache (see RestaurantCache)
+    // In BUFFERED and JOURNALED modes the vote doesn't open a transaction at all (except the very first vote for the restaurant)
+    // Authenticated user has one vote per day: the next vote of the user moves the vote to another restaurant (see UserVoteIndex)
+    // In ASYNC mode the vote is only queued (see VoteQueue): returns false if the vote is going to be counted later
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public boolean voteForRestaurantById(Integer id) {
         ValidationUtil.checkNotNullEntityId(id);
-        Restaurant restaurant = restaurantRepository.findById(id).orElseThrow(() -> new EntityNotFoundException("Restaurant with id=" + id + " not found."));
-        restaurant.addVote();
+        UserVoteIndex.Registration registration = userVoteIndex.register(currentUsername(), id);
+        try {
+            if (registration != null && registration.isRevote()) {
+                moveVote(registration.getPreviousRestaurantId(), id, registration);
+                return true;
+            }
+            else if (votingMode == VotingMode.ASYNC) {
+                queueVote(id, registration);
+                return false;
+            }
+            else {
+                addVote(id, registration);
+                return true;
+            }
+        } catch (RuntimeException e) {
+            if (registration != null) {
+                userVoteIndex.rollback(registration);
+            }
+            throw e;
+        }
+    }
+
+    private void addVote(Integer id, UserVoteIndex.Registration registration) {
+        if (votingMode == VotingMode.BUFFERED || votingMode == VotingMode.JOURNALED) {
+            checkKnownRestaurant(id);
+            // Cached restaurant is updated before the vote is visible in VoteBuffer (see RestaurantCache.addVotesOf())
+            restaurantCache.addVotesOf(id, 1);
+            try {
+                if (votingMode == VotingMode.JOURNALED) {
+                    voteBuffer.addJournaledVote(id, currentUsername());
+                }
+                else {
+                    voteBuffer.addVotes(id, 1);
+                }
+            } catch (RuntimeException e) {
+                restaurantCache.evictVotesOf(id);
+                throw e;
+            }
+            if (registration != null) {
+                userVoteIndex.markChanged(registration);
+            }
+        }
+        else if (votingMode == VotingMode.ATOMIC) {
+            Integer updatedRows = transactionTemplate.execute(status -> {
+                int rows = restaurantRepository.addVotes(id, 1, voteEpochManager.getCurrentEpoch());
+                if (rows != 0) {
+                    saveUserVote(registration);
+                    restaurantCache.addVotesOf(id, 1);
+                }
+                return rows;
+            });
+            if (updatedRows == null || updatedRows == 0) {
+                throw new EntityNotFoundException("Restaurant with id=" + id + " not found.");
+            }
+        }
+        else {
+            transactionTemplate.execute(status -> {
+                Restaurant restaurant = restaurantRepository.findById(id).orElseThrow(() -> new EntityNotFoundException("Restaurant with id=" + id + " not found."));
+                restaurant.addVote(voteEpochManager.getCurrentEpoch());
+                saveUserVote(registration);
+                restaurantCache.addVotesOf(id, 1);
+                return restaurant;
+            });
+        }
+        leaderboard.addVotes(id, 1);
         logger.info("Restaurant Voting Service: Restaurant with id = {} has been voted.", id);
     }
 
-    @CacheEvict(cacheNames = "restaurantsCache", allEntries = true)
+    // The vote is validated before it is queued, so that the voter gets 404 (or 409) instead of 202
+    private void queueVote(Integer id, UserVoteIndex.Registration registration) {
+        checkKnownRestaurant(id);
+        if (!voteQueue.offer(id, registration)) {
+            throw new VoteQueueFullException("Too many votes are being processed, please try again later.", voteQueue.getRetryAfterSeconds());
+        }
+        logger.info("Restaurant Voting Service: Vote for Restaurant with id = {} has been queued.", id);
+    }
+
+    private void checkKnownRestaurant(Integer id) {
+        if (!voteBuffer.isKnownRestaurant(id)) {
+            if (!restaurantRepository.existsById(id)) {
+                throw new EntityNotFoundException("Restaurant with id=" + id + " not found.");
+            }
+            voteBuffer.markKnownRestaurant(id);
+        }
+    }
+
+    // Re-vote is applied directly to the database in every voting mode, both counters are changed by one statement
+    private void moveVote(Integer fromId, Integer toId, UserVoteIndex.Registration registration) {
+        Integer movedFromRows = transactionTemplate.execute(status -> {
+            if (!restaurantRepository.existsById(toId)) {
+                throw new EntityNotFoundException("Restaurant with id=" + toId + " not found.");
+            }
+            int rows = restaurantRepository.moveVote(fromId, toId, voteEpochManager.getCurrentEpoch()) - 1;
+            saveUserVote(registration);
+            if (rows > 0) {
+                restaurantCache.addVotesOf(fromId, -1);
+            }
+            restaurantCache.addVotesOf(toId, 1);
+            return rows;
+        });
+        if (movedFromRows != null && movedFromRows > 0) {
+            leaderboard.addVotes(fromId, -1);
+        }
+        leaderboard.addVotes(toId, 1);
+        logger.info("Restaurant Voting Service: Vote has been moved from Restaurant with id = {} to Restaurant with id = {}.", fromId, toId);
+    }
+
+    private void saveUserVote(UserVoteIndex.Registration registration) {
+        if (registration != null) {
+            userVoteRepository.saveInBatch(Collections.singletonList(registration.toUserVote()));
+        }
+    }
+
+    // Votes of the batch are grouped by restaurant and applied in one transaction by one batch of UPDATE statements
+    // (one statement per distinct restaurant) in every voting mode, votes for missing restaurants are just not counted
+    // Batches are forwarded by kiosks and aggregators on behalf of many people, so they are not limited per user
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public List<VoteEntryResult> voteInBatch(List<VoteEntry> entries) {
+        ValidationUtil.checkNotNullEntityInstance(entries);
+        Map<Integer, Integer> votesByRestaurantId = new LinkedHashMap<>();
+        for (VoteEntry entry : entries) {
+            if (isValid(entry)) {
+                votesByRestaurantId.merge(entry.getRestaurantId(), entry.getCount(), Integer::sum);
+            }
+        }
+        int[] updatedRows = transactionTemplate.execute(status -> {
+            int[] rows = restaurantRepository.addVotesInBatch(votesByRestaurantId, voteEpochManager.getCurrentEpoch());
+            int j = 0;
+            for (Map.Entry<Integer, Integer> votes : votesByRestaurantId.entrySet()) {
+                if (rows[j++] != 0) {
+                    restaurantCache.addVotesOf(votes.getKey(), votes.getValue());
+                }
+            }
+            return rows;
+        });
+        Set<Integer> votedIds = new HashSet<>();
+        int i = 0;
+        for (Map.Entry<Integer, Integer> votes : votesByRestaurantId.entrySet()) {
+            // Driver may not report the exact number of rows (Statement.SUCCESS_NO_INFO)
+            if (updatedRows != null && updatedRows[i++] != 0) {
+                votedIds.add(votes.getKey());
+                leaderboard.addVotes(votes.getKey(), votes.getValue());
+            }
+        }
+        List<VoteEntryResult> results = new ArrayList<>(entries.size());
+        for (VoteEntry entry : entries) {
+            VoteEntryResult.Status status = !isValid(entry) ? VoteEntryResult.Status.INVALID
+                    : votedIds.contains(entry.getRestaurantId()) ? VoteEntryResult.Status.ACCEPTED
+                    : VoteEntryResult.Status.NOT_FOUND;
+            results.add(entry == null ? new VoteEntryResult(null, null, status) : new VoteEntryResult(entry.getRestaurantId(), entry.getCount(), status));
+        }
+        logger.info("Restaurant Voting Service: Batch of {} votes for {} restaurants has been processed.", entries.size(), votedIds.size());
+        return results;
+    }
+
+    // Generates 2 queries regardless of the number of restaurants: votes of the previous epoch are reset lazily (see VoteEpochManager)
     public void clearAllVotes() {
-        List<Restaurant> restaurants = restaurantRepository.findAll();
-        restaurants.forEach(restaurant -> restaurant.setVotes(0));
+        // Pending votes must be discarded before the epoch is advanced, otherwise they would be flushed into the new epoch
+        voteBuffer.discardAll();
+        voteQueue.discardAll();
+        voteEpochManager.advance();
+        // Users may vote again as soon as their votes are cleared
+        userVoteRepository.deleteAllInBatch();
+        restaurantCache.evictAllVotes();
+        AfterCommit.run(userVoteIndex::clear);
+        AfterCommit.run(leaderboard::resetVotes);
         logger.info("Restaurant Voting Service: All votes have been cleared.");
     }
 
+    private static boolean isValid(VoteEntry entry) {
+        return entry != null && entry.getRestaurantId() != null && entry.getCount() != null && entry.getCount() > 0;
+    }
+
+    // Anonymous requests are authenticated by a token of the anonymous user (see SecurityConfig), which is not a voter
+    private static String currentUsername() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        return authentication == null || authentication instanceof AnonymousAuthenticationToken ? null : authentication.getName();
+    }
+
 }
@@ -0,0 +1,208 @@
+package app.service.caching;
+
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.github.benmanes.caffeine.cache.stats.ConcurrentStatsCounter;
+import com.github.benmanes.caffeine.cache.stats.StatsCounter;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedResource;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+// Statistics of one Caffeine cache: the cache records its hits, misses, loads and evictions into it (see CacheConfig),
+// removals of every RemovalCause are counted by the removal listener of the cache.
+// Load times are counted in buckets of powers of two nanoseconds, so the percentiles are accurate within a factor of 2.
+// Each cache is exported to JMX as app:type=CacheStatistics,name=<cache name> (see CacheMetricsRegistry).
+@ManagedResource(description = "Statistics of a Caffeine cache")
+public class CacheMetrics implements StatsCounter {
+
+    private static final int LOAD_TIME_BUCKETS = 64;
+
+    private final String name;
+    private final ConcurrentStatsCounter stats = new ConcurrentStatsCounter();
+    // Bucket i counts the loads which took less than 2^i nanoseconds (and at least 2^(i-1))
+    private final AtomicLongArray loadTimes = new AtomicLongArray(LOAD_TIME_BUCKETS);
+    private final LongAdder[] removals = new LongAdder[RemovalCause.values().length];
+    private volatile LongSupplier sizeEstimator = () -> 0;
+
+    public CacheMetrics(String name) {
+        this.name = name;
+        for (int i = 0; i < removals.length; i++) {
+            removals[i] = new LongAdder();
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    // Must be set when the cache is built, the cache itself is not known before
+    public void setSizeEstimator(LongSupplier sizeEstimator) {
+        this.sizeEstimator = sizeEstimator;
+    }
+
+    public void recordRemoval(RemovalCause cause) {
+        removals[cause.ordinal()].increment();
+    }
+
+    // StatsCounter Methods ------------------------------------------------------
+
+    @Override
+    public void recordHits(int count) {
+        stats.recordHits(count);
+    }
+
+    @Override
+    public void recordMisses(int count) {
+        stats.recordMisses(count);
+    }
+
+    @Override
+    public void recordLoadSuccess(long loadTime) {
+        stats.recordLoadSuccess(loadTime);
+        recordLoadTime(loadTime);
+    }
+
+    @Override
+    public void recordLoadFailure(long loadTime) {
+        stats.recordLoadFailure(loadTime);
+        recordLoadTime(loadTime);
+    }
+
+    @Override
+    @SuppressWarnings("deprecation")
+    public void recordEviction() {
+        stats.recordEviction();
+    }
+
+    @Override
+    @SuppressWarnings("deprecation")
+    public void recordEviction(int weight) {
+        stats.recordEviction(weight);
+    }
+
+    @Override
+    public void recordEviction(int weight, RemovalCause cause) {
+        stats.recordEviction(weight, cause);
+    }
+
+    @Override
+    public CacheStats snapshot() {
+        return stats.snapshot();
+    }
+
+    // Managed Attributes --------------------------------------------------------
+
+    @ManagedAttribute(description = "Number of lookups which found a cached value")
+    public long getHitCount() {
+        return stats.snapshot().hitCount();
+    }
+
+    @ManagedAttribute(description = "Number of lookups which found no cached value")
+    public long getMissCount() {
+        return stats.snapshot().missCount();
+    }
+
+    @ManagedAttribute(description = "Ratio of hits to all lookups (1.0 if there were no lookups)")
+    public double getHitRate() {
+        return stats.snapshot().hitRate();
+    }
+
+    @ManagedAttribute(description = "Number of values loaded by the cache")
+    public long getLoadSuccessCount() {
+        return stats.snapshot().loadSuccessCount();
+    }
+
+    @ManagedAttribute(description = "Number of loads which failed")
+    public long getLoadFailureCount() {
+        return stats.snapshot().loadFailureCount();
+    }
+
+    @ManagedAttribute(description = "Median load time in microseconds")
+    public long getLoadTimeP50Micros() {
+        return getLoadTimePercentileMicros(0.5);
+    }
+
+    @ManagedAttribute(description = "90th percentile of load time in microseconds")
+    public long getLoadTimeP90Micros() {
+        return getLoadTimePercentileMicros(0.9);
+    }
+
+    @ManagedAttribute(description = "99th percentile of load time in microseconds")
+    public long getLoadTimeP99Micros() {
+        return getLoadTimePercentileMicros(0.99);
+    }
+
+    @ManagedAttribute(description = "Number of values evicted by size, expiration or garbage collection")
+    public long getEvictionCount() {
+        return stats.snapshot().evictionCount();
+    }
+
+    @ManagedAttribute(description = "Number of values evicted because the cache exceeded its maximum size")
+    public long getSizeEvictions() {
+        return removals[RemovalCause.SIZE.ordinal()].sum();
+    }
+
+    @ManagedAttribute(description = "Number of values evicted because they expired")
+    public long getExpiredEvictions() {
+        return removals[RemovalCause.EXPIRED.ordinal()].sum();
+    }
+
+    @ManagedAttribute(description = "Number of values evicted by the application")
+    public long getExplicitRemovals() {
+        return removals[RemovalCause.EXPLICIT.ordinal()].sum();
+    }
+
+    @ManagedAttribute(description = "Number of values replaced by the application")
+    public long getReplacedRemovals() {
+        return removals[RemovalCause.REPLACED.ordinal()].sum();
+    }
+
+    @ManagedAttribute(description = "Approximate number of values in the cache")
+    public long getEstimatedSize() {
+        return sizeEstimator.getAsLong();
+    }
+
+    // Returns the upper bound of the bucket which contains the percentile, 0 if nothing has been loaded
+    public long getLoadTimePercentileMicros(double percentile) {
+        long[] counts = new long[LOAD_TIME_BUCKETS];
+        long total = 0;
+        for (int i = 0; i < LOAD_TIME_BUCKETS; i++) {
+            counts[i] = loadTimes.get(i);
+            total += counts[i];
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(percentile * total);
+        long seen = 0;
+        int bucket = 0;
+        while (bucket < LOAD_TIME_BUCKETS - 1 && (seen += counts[bucket]) < rank) {
+            bucket++;
+        }
+        return TimeUnit.NANOSECONDS.toMicros(1L << Math.min(bucket, 62));
+    }
+
+    public CacheStatistics getStatistics() {
+        CacheStats snapshot = stats.snapshot();
+        Map<String, Long> removalsByCause = new LinkedHashMap<>();
+        for (RemovalCause cause : RemovalCause.values()) {
+            removalsByCause.put(cause.name(), removals[cause.ordinal()].sum());
+        }
+        return new CacheStatistics(name, snapshot.hitCount(), snapshot.missCount(), snapshot.hitRate(),
+                snapshot.loadSuccessCount(), snapshot.loadFailureCount(),
+                getLoadTimeP50Micros(), getLoadTimeP90Micros(), getLoadTimeP99Micros(),
+                snapshot.evictionCount(), removalsByCause, getEstimatedSize());
+    }
+
+    private void recordLoadTime(long loadTime) {
+        int bucket = loadTime <= 0 ? 0 : Math.min(64 - Long.numberOfLeadingZeros(loadTime), LOAD_TIME_BUCKETS - 1);
+        loadTimes.incrementAndGet(bucket);
+    }
+
+}
@@ -0,0 +1,52 @@
+package app.service.caching;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.jmx.export.MBeanExporter;
+import org.springframework.jmx.support.ObjectNameManager;
+import org.springframework.stereotype.Component;
+
+import javax.management.MalformedObjectNameException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.stream.Collectors;
+
+// Statistics of all the caches built by CacheConfig, by cache name.
+// It is empty if there is no cache manager in the application context (e.g. in service layer tests).
+@Component
+public class CacheMetricsRegistry {
+
+    private final Logger logger = LoggerFactory.getLogger(app.service.caching.CacheMetricsRegistry.class);
+
+    private final ObjectProvider<MBeanExporter> mbeanExporter;
+    private final Map<String, CacheMetrics> metrics = new ConcurrentSkipListMap<>();
+
+    public CacheMetricsRegistry(ObjectProvider<MBeanExporter> mbeanExporter) {
+        this.mbeanExporter = mbeanExporter;
+    }
+
+    public void register(CacheMetrics cacheMetrics) {
+        metrics.put(cacheMetrics.getName(), cacheMetrics);
+        MBeanExporter exporter = mbeanExporter.getIfAvailable();
+        if (exporter != null) {
+            try {
+                exporter.registerManagedResource(cacheMetrics, ObjectNameManager.getInstance("app:type=CacheStatistics,name=" + cacheMetrics.getName()));
+            } catch (MalformedObjectNameException e) {
+                throw new IllegalStateException("Invalid cache name: " + cacheMetrics.getName(), e);
+            }
+        }
+        logger.info("Cache Metrics: Statistics of cache {} are recorded.", cacheMetrics.getName());
+    }
+
+    // Returns null if there is no such cache
+    public CacheMetrics get(String name) {
+        return metrics.get(name);
+    }
+
+    public List<CacheStatistics> getStatistics() {
+        return metrics.values().stream().map(CacheMetrics::getStatistics).collect(Collectors.toList());
+    }
+
+}
@@ -0,0 +1,88 @@
+package app.service.caching;
+
+import java.util.Map;
+
+// Snapshot of the statistics of one cache (see CacheMetrics), returned by GET /caches/statistics
+public class CacheStatistics {
+
+    private final String name;
+    private final long hitCount;
+    private final long missCount;
+    private final double hitRate;
+    private final long loadSuccessCount;
+    private final long loadFailureCount;
+    private final long loadTimeP50Micros;
+    private final long loadTimeP90Micros;
+    private final long loadTimeP99Micros;
+    private final long evictionCount;
+    // Number of removals of each RemovalCause, both evictions and removals by the application
+    private final Map<String, Long> removals;
+    private final long estimatedSize;
+
+    public CacheStatistics(String name, long hitCount, long missCount, double hitRate,
+                           long loadSuccessCount, long loadFailureCount,
+                           long loadTimeP50Micros, long loadTimeP90Micros, long loadTimeP99Micros,
+                           long evictionCount, Map<String, Long> removals, long estimatedSize) {
+        this.name = name;
+        this.hitCount = hitCount;
+        this.missCount = missCount;
+        this.hitRate = hitRate;
+        this.loadSuccessCount = loadSuccessCount;
+        this.loadFailureCount = loadFailureCount;
+        this.loadTimeP50Micros = loadTimeP50Micros;
+        this.loadTimeP90Micros = loadTimeP90Micros;
+        this.loadTimeP99Micros = loadTimeP99Micros;
+        this.evictionCount = evictionCount;
+        this.removals = removals;
+        this.estimatedSize = estimatedSize;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getHitCount() {
+        return hitCount;
+    }
+
+    public long getMissCount() {
+        return missCount;
+    }
+
+    public double getHitRate() {
+        return hitRate;
+    }
+
+    public long getLoadSuccessCount() {
+        return loadSuccessCount;
+    }
+
+    public long getLoadFailureCount() {
+        return loadFailureCount;
+    }
+
+    public long getLoadTimeP50Micros() {
+        return loadTimeP50Micros;
+    }
+
+    public long getLoadTimeP90Micros() {
+        return loadTimeP90Micros;
+    }
+
+    public long getLoadTimeP99Micros() {
+        return loadTimeP99Micros;
+    }
+
+    public long getEvictionCount() {
+        return evictionCount;
+    }
+
+    public Map<String, Long> getRemovals() {
+        return removals;
+    }
+
+    public long getEstimatedSize() {
+        return estimatedSize;
+    }
+
+}
@@ -0,0 +1,69 @@
+package app.service.caching;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+// Serialized (UTF-8 JSON) page of restaurants in restaurantResponsesCache
+public final class CachedResponse {
+
+    private final byte[] json;
+    // Sorted ids of the restaurants of the page, so that the response can be evicted together with any of them
+    private final int[] ids;
+    // Version of the data the response has been built of (see RestaurantService.getAllRestaurantsSerialized())
+    private final long version;
+    // Version of the pages of the sorter of the response at the time it has been cached (see RestaurantCache)
+    private final long pageVersion;
+    private final long builtAtNanos;
+
+    public CachedResponse(byte[] json, int[] ids, long version) {
+        this.json = json;
+        this.ids = ids.clone();
+        Arrays.sort(this.ids);
+        this.version = version;
+        this.pageVersion = 0;
+        this.builtAtNanos = System.nanoTime();
+    }
+
+    private CachedResponse(CachedResponse response, long pageVersion) {
+        this.json = response.json;
+        this.ids = response.ids;
+        this.version = response.version;
+        this.pageVersion = pageVersion;
+        this.builtAtNanos = response.builtAtNanos;
+    }
+
+    public byte[] getJson() {
+        return json;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    long getPageVersion() {
+        return pageVersion;
+    }
+
+    CachedResponse withPageVersion(long pageVersion) {
+        return new CachedResponse(this, pageVersion);
+    }
+
+    int[] getIds() {
+        return ids;
+    }
+
+    // Any change of the data missing in the response has been made within this time (see ResponseRefresher)
+    public long getAgeMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - builtAtNanos);
+    }
+
+    public boolean contains(Integer id) {
+        return id != null && Arrays.binarySearch(ids, id) >= 0;
+    }
+
+    // Approximate size in bytes, used as the weight of the cache entry
+    public int size() {
+        return json.length + ids.length * Integer.BYTES;
+    }
+
+}
@@ -0,0 +1,124 @@
+package app.service.caching;
+
+import org.springframework.stereotype.Component;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Versions of the data served by the read endpoints, rendered as strong ETags (see RestaurantRestController).
+// Every write event of RestaurantCache bumps the global version and stamps the affected restaurant with it,
+// writes to all restaurants stamp the generation instead. The version of a restaurant is the greater of its stamp
+// and of the generation, so it only grows and never repeats, and only the restaurants changed since the last
+// generation are kept in memory: reads never add them, a generation or a removal of a restaurant drops them.
+// Versions are bumped both when the write is made and after its transaction is committed (see RestaurantCache),
+// so a response read before the commit never carries the version of the committed data.
+// Versions are kept in memory: tags include the start time of the application, so they never repeat after a restart.
+@Component
+public class DataVersions {
+
+    private final String instance = Long.toString(System.currentTimeMillis(), 36);
+
+    private final AtomicLong globalVersion = new AtomicLong();
+    private final AtomicLong generation = new AtomicLong();
+    private final ConcurrentMap<Integer, Long> restaurantVersions = new ConcurrentHashMap<>();
+    // Restaurant of each meal which has been read, so that the tag of the meal is known before the meal is read again
+    private final ConcurrentMap<Integer, Integer> mealRestaurants = new ConcurrentHashMap<>();
+    // Registered meals by restaurant, so that the meals of a restaurant are forgotten without scanning all meals.
+    // Both maps are changed only inside compute() of the entry of the restaurant
+    private final ConcurrentMap<Integer, Set<Integer>> restaurantMeals = new ConcurrentHashMap<>();
+
+    public void restaurantChanged(Integer id) {
+        long version = globalVersion.incrementAndGet();
+        restaurantVersions.merge(id, version, Math::max);
+    }
+
+    public void allChanged() {
+        long version = nextGeneration();
+        // Stamps written after the generation are kept, they are greater
+        restaurantVersions.values().removeIf(stamp -> stamp <= version);
+    }
+
+    // Removed restaurant must not get back a version it had (its tag would match again), so the generation is bumped:
+    // tags of all restaurants change, which is rare enough (see RestaurantService.deleteRestaurantById())
+    public void restaurantRemoved(Integer id) {
+        long version = nextGeneration();
+        restaurantVersions.computeIfPresent(id, (key, stamp) -> stamp <= version ? null : stamp);
+        mealsRemoved(id);
+    }
+
+    public void registerMeal(Integer mealId, Integer restaurantId) {
+        restaurantMeals.compute(restaurantId, (key, meals) -> {
+            Set<Integer> registered = meals != null ? meals : ConcurrentHashMap.newKeySet();
+            registered.add(mealId);
+            mealRestaurants.put(mealId, restaurantId);
+            return registered;
+        });
+    }
+
+    public void mealRemoved(Integer mealId) {
+        Integer restaurantId = mealRestaurants.get(mealId);
+        if (restaurantId != null) {
+            restaurantMeals.computeIfPresent(restaurantId, (key, meals) -> {
+                meals.remove(mealId);
+                mealRestaurants.remove(mealId, restaurantId);
+                return meals.isEmpty() ? null : meals;
+            });
+        }
+    }
+
+    // All meals of the restaurant have been removed
+    public void mealsRemoved(Integer restaurantId) {
+        restaurantMeals.computeIfPresent(restaurantId, (key, meals) -> {
+            meals.forEach(mealId -> mealRestaurants.remove(mealId, restaurantId));
+            return null;
+        });
+    }
+
+    // All meals (or all restaurants together with their meals) have been removed
+    public void allMealsRemoved() {
+        allChanged();
+        restaurantMeals.keySet().forEach(this::mealsRemoved);
+    }
+
+    // Tag of any list of restaurants, rankingVersion is the version of Leaderboard (it changes without write events)
+    public String getRestaurantsTag(long rankingVersion) {
+        return "\"" + instance + "-" + globalVersion.get() + "-" + rankingVersion + "\"";
+    }
+
+    public String getRestaurantTag(Integer id) {
+        return "\"" + instance + "-" + getRestaurantVersion(id) + "-" + id + "\"";
+    }
+
+    // Changes whenever the tag of the restaurant changes. The stamp is read before the generation: the generation is
+    // bumped before the stamps are dropped, so a stamp which has been dropped is never read with the older generation
+    public long getRestaurantVersion(Integer id) {
+        Long stamp = restaurantVersions.get(id);
+        long version = generation.get();
+        return stamp == null ? version : Math.max(stamp, version);
+    }
+
+    // Meal is a part of its restaurant, returns null if the meal has never been read
+    public String getMealTag(Integer id) {
+        Integer restaurantId = mealRestaurants.get(id);
+        return restaurantId == null ? null : getRestaurantTag(restaurantId);
+    }
+
+    // Number of restaurants whose versions are kept in memory
+    int getTrackedRestaurants() {
+        return restaurantVersions.size();
+    }
+
+    // Number of meals whose restaurants are kept in memory
+    int getTrackedMeals() {
+        return mealRestaurants.size();
+    }
+
+    private long nextGeneration() {
+        long version = globalVersion.incrementAndGet();
+        generation.accumulateAndGet(version, Math::max);
+        return version;
+    }
+
+}
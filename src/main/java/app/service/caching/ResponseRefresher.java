@@ -0,0 +1,131 @@
+package app.service.caching;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.core.env.Environment;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+// Refresh-ahead of the cached responses of the pages ranked by votes (see RestaurantService.getAllRestaurantsSerialized()),
+// which go stale with every vote. When cache.responses.refresh-ahead.enabled is set, a stale response not older than
+// cache.responses.refresh-ahead.max-staleness-ms is served at once while cache.responses.refresh-ahead.threads threads
+// rebuild it in the background (one rebuild of a page at a time), so a vote shows up in the served pages within that time.
+// Older responses are rebuilt by the request itself. A failed rebuild leaves the stale response in the cache.
+@Component
+@ManagedResource(objectName = "app:type=ResponseRefresher", description = "Background rebuilds of the stale responses")
+public class ResponseRefresher implements InitializingBean, DisposableBean {
+
+    private final Logger logger = LoggerFactory.getLogger(app.service.caching.ResponseRefresher.class);
+
+    private static final int QUEUE_CAPACITY = 100;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final boolean enabled;
+    private final long maxStalenessMillis;
+    private final int threads;
+
+    // Pages whose rebuild is queued or in progress
+    private final Set<RestaurantPageKey> refreshing = ConcurrentHashMap.newKeySet();
+
+    private final LongAdder completedRefreshes = new LongAdder();
+    private final LongAdder failedRefreshes = new LongAdder();
+    private final LongAdder staleResponses = new LongAdder();
+
+    private ThreadPoolExecutor refreshExecutor;
+
+    public ResponseRefresher(PlatformTransactionManager transactionManager, Environment env) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+        this.enabled = env.getProperty("cache.responses.refresh-ahead.enabled", Boolean.class, false);
+        this.maxStalenessMillis = env.getProperty("cache.responses.refresh-ahead.max-staleness-ms", Long.class, 500L);
+        this.threads = env.getProperty("cache.responses.refresh-ahead.threads", Integer.class, 1);
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        if (!enabled) {
+            return;
+        }
+        AtomicInteger threadNumber = new AtomicInteger();
+        // Rebuilds which don't fit into the queue are skipped: the stale response is served until it is too old
+        refreshExecutor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(QUEUE_CAPACITY), runnable -> {
+            Thread thread = new Thread(runnable, "response-refresher-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        logger.info("Response Refresher: Stale responses are served for up to {} ms while {} threads rebuild them.", maxStalenessMillis, threads);
+    }
+
+    @Override
+    public void destroy() {
+        if (refreshExecutor != null) {
+            refreshExecutor.shutdownNow();
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // Returns true if the stale response may be served, its rebuild is scheduled then (unless one is already pending)
+    public boolean refresh(RestaurantPageKey key, CachedResponse stale, Runnable rebuild) {
+        if (!enabled || stale.getAgeMillis() > maxStalenessMillis) {
+            return false;
+        }
+        if (refreshing.add(key)) {
+            try {
+                refreshExecutor.execute(() -> {
+                    try {
+                        transactionTemplate.executeWithoutResult(status -> rebuild.run());
+                        completedRefreshes.increment();
+                    } catch (RuntimeException e) {
+                        failedRefreshes.increment();
+                        logger.warn("Response Refresher: Failed to rebuild the response of page {}, the stale response is kept.", key, e);
+                    } finally {
+                        refreshing.remove(key);
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                refreshing.remove(key);
+            }
+        }
+        staleResponses.increment();
+        return true;
+    }
+
+    @ManagedAttribute(description = "Number of rebuilds queued or in progress")
+    public int getPendingRefreshes() {
+        return refreshing.size();
+    }
+
+    @ManagedAttribute(description = "Total number of responses rebuilt in the background")
+    public long getCompletedRefreshes() {
+        return completedRefreshes.sum();
+    }
+
+    @ManagedAttribute(description = "Total number of background rebuilds which failed")
+    public long getFailedRefreshes() {
+        return failedRefreshes.sum();
+    }
+
+    @ManagedAttribute(description = "Total number of stale responses served while they were rebuilt")
+    public long getStaleResponses() {
+        return staleResponses.sum();
+    }
+
+}
@@ -0,0 +1,506 @@
+package app.service.caching;
+
+import app.entity.Meal;
+import app.entity.Restaurant;
+import app.entity.RestaurantBrief;
+import app.service.RestaurantService.ListView;
+import app.service.helpers.RestaurantSorter;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.support.NoOpCacheManager;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+// Two-tier cache of restaurants:
+// - restaurantEntriesCache keeps restaurants with their meals by id (DETAILED view),
+//   restaurantBriefsCache keeps their immutable projections by id (SHORT view, see RestaurantBrief);
+// - restaurantPagesCache keeps ordered lists of restaurant ids by page (see RestaurantPageKey).
+// On top of them restaurantResponsesCache keeps the serialized JSON of the pages (see CachedResponse) by the same keys.
+// Writes evict only the affected entries and only the pages whose ordering could have been changed:
+// pages are evicted by their sorter in O(1), a page cached before the eviction is dropped when it is read.
+// The responses are evicted by the same writes together with every response containing the affected restaurant,
+// these are found by the index of the keys of the responses by restaurant id, so no eviction scans the cache.
+// Single restaurants with their meals and single meals are kept apart in restaurantDetailsCache and mealsCache,
+// which are sized and expired independently (see CacheConfig): menu writes evict them by id,
+// votes only update the number of votes of the cached restaurant (see addVotesOf()).
+// Every write also bumps the versions of the affected data (see DataVersions), which are used as ETags.
+// Every eviction is repeated after the commit of the current transaction (if any),
+// so that a concurrent reader can't put the uncommitted state back into the cache.
+@Component
+public class RestaurantCache {
+
+    public static final String ENTRIES_CACHE = "restaurantEntriesCache";
+    public static final String BRIEFS_CACHE = "restaurantBriefsCache";
+    public static final String PAGES_CACHE = "restaurantPagesCache";
+    public static final String RESPONSES_CACHE = "restaurantResponsesCache";
+    public static final String RESTAURANT_DETAILS_CACHE = "restaurantDetailsCache";
+    public static final String MEALS_CACHE = "mealsCache";
+
+    private final Cache entries;
+    private final Cache briefs;
+    private final Cache pages;
+    private final Cache responses;
+    private final Cache details;
+    private final Cache meals;
+    // Version of the pages of each sorter, bumped by every eviction of these pages
+    private final Map<RestaurantSorter, AtomicLong> pageVersions = new EnumMap<>(RestaurantSorter.class);
+    // Keys of the cached responses by the ids of their restaurants, a key may outlive its response
+    private final ConcurrentMap<Integer, Set<RestaurantPageKey>> responseKeys = new ConcurrentHashMap<>();
+    private final DataVersions dataVersions;
+    // Bumped by every write to the meals, a meal is not cached if its version has changed while the meal was loaded
+    private final AtomicLong menuVersion = new AtomicLong();
+    // Ids of the cached meals by the ids of their restaurants, an id may outlive its meal
+    private final ConcurrentMap<Integer, Set<Integer>> mealIds = new ConcurrentHashMap<>();
+    // Number of transactions which are changing the votes of the restaurant, its cached copy is bypassed until they complete
+    private final ConcurrentMap<Integer, Integer> votesInFlight = new ConcurrentHashMap<>();
+
+    public RestaurantCache(ObjectProvider<CacheManager> cacheManager, DataVersions dataVersions) {
+        // Caching is disabled if there is no cache manager in the application context (e.g. in service layer tests)
+        CacheManager manager = cacheManager.getIfAvailable(NoOpCacheManager::new);
+        this.entries = manager.getCache(ENTRIES_CACHE);
+        this.briefs = manager.getCache(BRIEFS_CACHE);
+        this.pages = manager.getCache(PAGES_CACHE);
+        this.responses = manager.getCache(RESPONSES_CACHE);
+        this.details = manager.getCache(RESTAURANT_DETAILS_CACHE);
+        this.meals = manager.getCache(MEALS_CACHE);
+        for (RestaurantSorter sorter : RestaurantSorter.values()) {
+            pageVersions.put(sorter, new AtomicLong());
+        }
+        this.dataVersions = dataVersions;
+    }
+
+    // Retrieve Methods ----------------------------------------------------------
+
+    public List<Integer> getPage(RestaurantPageKey key) {
+        if (key == null) {
+            return null;
+        }
+        CachedPage page = pages.get(key, CachedPage.class);
+        if (page == null) {
+            return null;
+        }
+        if (page.version != pageVersions.get(key.getSorter()).get()) {
+            pages.evict(key);
+            return null;
+        }
+        return page.ids;
+    }
+
+    // Responses of the pages ranked by votes are not evicted by votes, they are validated by the version of Leaderboard
+    // instead (see CachedResponse.getVersion()), so the returned response may have been built of older data.
+    // Responses of the other pages are dropped together with the pages of their sorter
+    public CachedResponse getResponse(RestaurantPageKey key) {
+        CachedResponse response = key == null ? null : responses.get(key, CachedResponse.class);
+        if (response != null && key.getSorter() != RestaurantSorter.VOTES
+                && response.getPageVersion() != pageVersions.get(key.getSorter()).get()) {
+            responses.evict(key);
+            return null;
+        }
+        return response;
+    }
+
+    public Restaurant getRestaurant(Integer id) {
+        return entries.get(id, Restaurant.class);
+    }
+
+    public RestaurantBrief getBrief(Integer id) {
+        return briefs.get(id, RestaurantBrief.class);
+    }
+
+    // Returns the cached restaurant with initialized meals or loads it by the loader (concurrent loads of the same
+    // restaurant wait for the first one). Every write bumps the version of the restaurant before its commit,
+    // so the loaded restaurant is not kept in the cache if it has been changed since the load started
+    public Restaurant getRestaurantDetails(Integer id, Supplier<Restaurant> loader) {
+        if (votesInFlight.containsKey(id)) {
+            return loader.get();
+        }
+        long version = dataVersions.getRestaurantVersion(id);
+        boolean[] loaded = new boolean[1];
+        Restaurant restaurant = load(details, id, () -> {
+            loaded[0] = true;
+            return loader.get();
+        });
+        if (loaded[0] && (dataVersions.getRestaurantVersion(id) != version || votesInFlight.containsKey(id))) {
+            details.evict(id);
+        }
+        return restaurant;
+    }
+
+    // Same as getRestaurantDetails(), every write to the meals bumps menuVersion.
+    // The meal is indexed by its restaurant before it is cached, so an eviction of the menu never misses it
+    public Meal getMeal(Integer id, Supplier<Meal> loader) {
+        long version = menuVersion.get();
+        boolean[] loaded = new boolean[1];
+        Meal meal = load(meals, id, () -> {
+            loaded[0] = true;
+            Meal found = loader.get();
+            mealIds.computeIfAbsent(found.getRestaurant().getId(), key -> ConcurrentHashMap.newKeySet()).add(id);
+            return found;
+        });
+        if (loaded[0] && menuVersion.get() != version) {
+            meals.evict(id);
+        }
+        return meal;
+    }
+
+    // Returns cached restaurants in the given order, the ids of missing restaurants are collected into missingIds
+    public List<Restaurant> getRestaurants(List<Integer> ids, Collection<Integer> missingIds) {
+        List<Restaurant> restaurants = new ArrayList<>(ids.size());
+        for (Integer id : ids) {
+            Restaurant restaurant = getRestaurant(id);
+            if (restaurant == null) {
+                missingIds.add(id);
+            }
+            restaurants.add(restaurant);
+        }
+        return restaurants;
+    }
+
+    // Same as getRestaurants()
+    public List<RestaurantBrief> getBriefs(List<Integer> ids, Collection<Integer> missingIds) {
+        List<RestaurantBrief> restaurants = new ArrayList<>(ids.size());
+        for (Integer id : ids) {
+            RestaurantBrief restaurant = getBrief(id);
+            if (restaurant == null) {
+                missingIds.add(id);
+            }
+            restaurants.add(restaurant);
+        }
+        return restaurants;
+    }
+
+    // Update Methods ------------------------------------------------------------
+
+    public void putPage(RestaurantPageKey key, List<Integer> ids) {
+        if (key != null) {
+            pages.put(key, new CachedPage(ids, pageVersions.get(key.getSorter()).get()));
+        }
+    }
+
+    public void putResponse(RestaurantPageKey key, CachedResponse response) {
+        if (key == null) {
+            return;
+        }
+        int[] ids = response.getIds();
+        for (int id : ids) {
+            responseKeys.computeIfAbsent(id, k -> ConcurrentHashMap.newKeySet()).add(key);
+        }
+        responses.put(key, response.withPageVersion(pageVersions.get(key.getSorter()).get()));
+        // A concurrent eviction may have taken the key out of the index before the response has been put
+        for (int id : ids) {
+            Set<RestaurantPageKey> keys = responseKeys.get(id);
+            if (keys == null || !keys.contains(key)) {
+                responses.evict(key);
+                return;
+            }
+        }
+    }
+
+    public void putRestaurant(Restaurant restaurant) {
+        entries.put(restaurant.getId(), restaurant);
+    }
+
+    public void putBrief(RestaurantBrief restaurant) {
+        briefs.put(restaurant.getId(), restaurant);
+    }
+
+    // Number of votes of the restaurant has been changed by the given number, only pages sorted by votes can be affected
+    // The cached restaurant with its meals is kept: its votes are updated after the commit of the current transaction,
+    // so it must be invoked in the transaction which changes the votes (or before the votes are visible to the readers)
+    // Until the transaction completes the restaurant is neither read from restaurantDetailsCache nor put into it
+    public void addVotesOf(Integer id, long votes) {
+        Runnable eviction = () -> {
+            entries.evict(id);
+            briefs.evict(id);
+            evictPages(sorter -> sorter == RestaurantSorter.VOTES);
+            evictResponsesOf(id, key -> key.getSorter() != RestaurantSorter.VOTES);
+            dataVersions.restaurantChanged(id);
+        };
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            votesInFlight.merge(id, 1, Integer::sum);
+            eviction.run();
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status == STATUS_COMMITTED) {
+                        eviction.run();
+                        updateVotes(id, votes);
+                    }
+                    votesInFlight.computeIfPresent(id, (key, count) -> count == 1 ? null : count - 1);
+                }
+            });
+        }
+        else {
+            eviction.run();
+            updateVotes(id, votes);
+        }
+    }
+
+    // Evict Methods -------------------------------------------------------------
+
+    // Menu of the restaurant has been changed, no page can be affected (nor the brief of the restaurant)
+    public void evictRestaurant(Integer id) {
+        evict(() -> evictMenuOf(id));
+    }
+
+    // One meal of the restaurant has been created or changed
+    public void evictMeal(Integer id, Integer mealId) {
+        evict(() -> evictMealOf(id, mealId));
+    }
+
+    // Meal of the restaurant has been removed, its restaurant is forgotten (see DataVersions.mealRemoved())
+    public void evictRemovedMeal(Integer id, Integer mealId) {
+        evict(() -> {
+            evictMealOf(id, mealId);
+            dataVersions.mealRemoved(mealId);
+        });
+    }
+
+    // All meals of the restaurant have been removed
+    public void evictRemovedMeals(Integer id) {
+        evict(() -> {
+            evictMenuOf(id);
+            dataVersions.mealsRemoved(id);
+        });
+    }
+
+    // Number of votes of the restaurant has been changed, only pages sorted by votes can be affected
+    public void evictVotesOf(Integer id) {
+        evict(() -> {
+            entries.evict(id);
+            briefs.evict(id);
+            details.evict(id);
+            evictPages(sorter -> sorter == RestaurantSorter.VOTES);
+            evictResponsesOf(id, key -> key.getSorter() != RestaurantSorter.VOTES);
+            dataVersions.restaurantChanged(id);
+        });
+    }
+
+    // Name, number of votes or menu of the restaurant has been changed, pages sorted by id are not affected
+    public void evictNameAndVotesOf(Integer id) {
+        evict(() -> {
+            entries.evict(id);
+            briefs.evict(id);
+            details.evict(id);
+            evictMealsOf(id);
+            evictPages(sorter -> sorter != RestaurantSorter.ID);
+            evictResponsesOf(id, key -> true);
+            dataVersions.restaurantChanged(id);
+        });
+    }
+
+    // Restaurant has been created, so any page can be affected
+    public void evictRestaurantAndPages(Integer id) {
+        evict(() -> {
+            if (id != null) {
+                entries.evict(id);
+                briefs.evict(id);
+                details.evict(id);
+                evictMealsOf(id);
+                dataVersions.restaurantChanged(id);
+            }
+            else {
+                details.clear();
+                clearMeals();
+                dataVersions.allChanged();
+            }
+            pages.clear();
+            clearResponses();
+        });
+    }
+
+    // Restaurant has been removed, its version is dropped (see DataVersions.restaurantRemoved())
+    public void evictRemovedRestaurant(Integer id) {
+        evict(() -> {
+            entries.evict(id);
+            briefs.evict(id);
+            details.evict(id);
+            evictMealsOf(id);
+            dataVersions.restaurantRemoved(id);
+            pages.clear();
+            clearResponses();
+        });
+    }
+
+    // Restaurants have been created by an import (see RestaurantService.importRestaurants()), the pages are evicted once
+    public void evictRestaurantsAndPages(Set<Integer> ids) {
+        evict(() -> {
+            ids.forEach(id -> {
+                entries.evict(id);
+                briefs.evict(id);
+                details.evict(id);
+                evictMealsOf(id);
+                dataVersions.restaurantChanged(id);
+            });
+            pages.clear();
+            clearResponses();
+        });
+    }
+
+    // All meals of all restaurants have been removed
+    public void evictAllRestaurants() {
+        evict(() -> {
+            entries.clear();
+            details.clear();
+            clearMeals();
+            clearResponses();
+            dataVersions.allMealsRemoved();
+        });
+    }
+
+    // Votes of all restaurants have been changed
+    public void evictAllVotes() {
+        evict(() -> {
+            entries.clear();
+            briefs.clear();
+            details.clear();
+            evictPages(sorter -> sorter == RestaurantSorter.VOTES);
+            clearResponses();
+            dataVersions.allChanged();
+        });
+    }
+
+    // All restaurants have been removed
+    public void clear() {
+        evict(() -> {
+            entries.clear();
+            briefs.clear();
+            pages.clear();
+            clearResponses();
+            details.clear();
+            clearMeals();
+            dataVersions.allMealsRemoved();
+        });
+    }
+
+    private void evictMenuOf(Integer id) {
+        entries.evict(id);
+        details.evict(id);
+        evictMealsOf(id);
+        evictResponsesOf(id, key -> key.getView() == ListView.DETAILED);
+        dataVersions.restaurantChanged(id);
+    }
+
+    private void evictMealOf(Integer id, Integer mealId) {
+        entries.evict(id);
+        details.evict(id);
+        menuVersion.incrementAndGet();
+        meals.evict(mealId);
+        evictResponsesOf(id, key -> key.getView() == ListView.DETAILED);
+        dataVersions.restaurantChanged(id);
+    }
+
+    // Exceptions of the loader (e.g. EntityNotFoundException) are thrown as they are
+    private static <T> T load(Cache cache, Integer id, Callable<T> loader) {
+        try {
+            return cache.get(id, loader);
+        } catch (Cache.ValueRetrievalException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    // Cached restaurant is replaced by a copy, which is never seen partially updated by the concurrent readers
+    @SuppressWarnings("unchecked")
+    private void updateVotes(Integer id, long votes) {
+        Object nativeCache = details.getNativeCache();
+        if (nativeCache instanceof com.github.benmanes.caffeine.cache.Cache) {
+            ((com.github.benmanes.caffeine.cache.Cache<Object, Object>) nativeCache).asMap().computeIfPresent(id, (key, value) -> {
+                Restaurant restaurant = (Restaurant) value;
+                Restaurant copy = new Restaurant(restaurant.getName(), restaurant.getVotes() + (int) votes, restaurant.getMeals());
+                copy.setId(restaurant.getId());
+                copy.setVoteEpoch(restaurant.getVoteEpoch());
+                return copy;
+            });
+        }
+        else {
+            details.evict(id);
+        }
+    }
+
+    // Meals of the restaurant are found by the index, the meals loaded concurrently are dropped by the menu version
+    private void evictMealsOf(Integer id) {
+        menuVersion.incrementAndGet();
+        Set<Integer> ids = mealIds.remove(id);
+        if (ids != null) {
+            ids.forEach(meals::evict);
+        }
+    }
+
+    private void clearMeals() {
+        menuVersion.incrementAndGet();
+        mealIds.clear();
+        meals.clear();
+    }
+
+    // Pages of the matching sorters become stale at once, whatever the number of cached pages
+    private void evictPages(Predicate<RestaurantSorter> predicate) {
+        pageVersions.forEach((sorter, version) -> {
+            if (predicate.test(sorter)) {
+                version.incrementAndGet();
+            }
+        });
+    }
+
+    // Evicts the matching responses containing the restaurant, the responses of evicted pages are dropped when read
+    private void evictResponsesOf(Integer id, Predicate<RestaurantPageKey> predicate) {
+        Set<RestaurantPageKey> keys = responseKeys.get(id);
+        if (keys != null) {
+            keys.removeIf(key -> {
+                if (!predicate.test(key)) {
+                    return false;
+                }
+                responses.evict(key);
+                return true;
+            });
+        }
+    }
+
+    private void clearResponses() {
+        responseKeys.clear();
+        responses.clear();
+    }
+
+    private static void evict(Runnable eviction) {
+        eviction.run();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCommit() {
+                    eviction.run();
+                }
+            });
+        }
+    }
+
+    // Ids of the restaurants of the page together with the version of the pages of its sorter
+    private static final class CachedPage {
+
+        private final List<Integer> ids;
+        private final long version;
+
+        private CachedPage(List<Integer> ids, long version) {
+            this.ids = ids;
+            this.version = version;
+        }
+
+    }
+
+}
@@ -0,0 +1,93 @@
+package app.service.caching;
+
+import app.service.RestaurantService.ListView;
+import app.service.helpers.RestaurantSorter;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+
+import java.util.Iterator;
+import java.util.Objects;
+
+// Key of the page of restaurants in restaurantPagesCache
+public final class RestaurantPageKey {
+
+    private final ListView view;
+    private final int page;
+    private final int size;
+    private final RestaurantSorter sorter;
+    private final Sort.Direction direction;
+
+    public RestaurantPageKey(ListView view, int page, int size, RestaurantSorter sorter, Sort.Direction direction) {
+        this.view = view;
+        this.page = page;
+        this.size = size;
+        this.sorter = sorter;
+        this.direction = direction;
+    }
+
+    // Returns null if the page can't be cached (it is unpaged or sorted by anything but a single RestaurantSorter field)
+    public static RestaurantPageKey of(ListView view, Pageable pageable) {
+        if (pageable.isUnpaged()) {
+            return null;
+        }
+        Iterator<Sort.Order> orders = pageable.getSort().iterator();
+        if (!orders.hasNext()) {
+            return null;
+        }
+        Sort.Order order = orders.next();
+        RestaurantSorter sorter = RestaurantSorter.fromFieldName(order.getProperty());
+        if (sorter == null || orders.hasNext()) {
+            return null;
+        }
+        return new RestaurantPageKey(view, pageable.getPageNumber(), pageable.getPageSize(), sorter, order.getDirection());
+    }
+
+    public ListView getView() {
+        return view;
+    }
+
+    public int getPage() {
+        return page;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public RestaurantSorter getSorter() {
+        return sorter;
+    }
+
+    public Sort.Direction getDirection() {
+        return direction;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        RestaurantPageKey that = (RestaurantPageKey) o;
+        return page == that.page &&
+                size == that.size &&
+                view == that.view &&
+                sorter == that.sorter &&
+                direction == that.direction;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(view, page, size, sorter, direction);
+    }
+
+    @Override
+    public String toString() {
+        return "RestaurantPageKey{" +
+                "view=" + view +
+                ", page=" + page +
+                ", size=" + size +
+                ", sorter=" + sorter +
+                ", direction=" + direction +
+                '}';
+    }
+
+}
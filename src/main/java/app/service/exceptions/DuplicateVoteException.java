@@ -0,0 +1,9 @@
+package app.service.exceptions;
+
+public class DuplicateVoteException extends RuntimeException {
+
+    public DuplicateVoteException(String message) {
+        super(message);
+    }
+
+}
@@ -0,0 +1,9 @@
+package app.service.exceptions;
+
+public class VoteNotDurableException extends RuntimeException {
+
+    public VoteNotDurableException(String message) {
+        super(message);
+    }
+
+}
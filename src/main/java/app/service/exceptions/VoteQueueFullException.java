@@ -0,0 +1,16 @@
+package app.service.exceptions;
+
+public class VoteQueueFullException extends RuntimeException {
+
+    private final long retryAfterSeconds;
+
+    public VoteQueueFullException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+
+}
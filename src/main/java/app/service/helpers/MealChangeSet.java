@@ -0,0 +1,35 @@
+package app.service.helpers;
+
+import java.util.Collections;
+import java.util.List;
+
+// Changes of the menu of a restaurant made by RestaurantService.updateRestaurantById(): ids of the meals inserted,
+// updated and deleted by the merge of the new menu into the current one (ids of the unchanged meals are not listed)
+public final class MealChangeSet {
+
+    // Menu of the restaurant has not been given
+    public static final MealChangeSet NONE = new MealChangeSet(Collections.emptyList(), Collections.emptyList(), Collections.emptyList());
+
+    private final List<Integer> inserted;
+    private final List<Integer> updated;
+    private final List<Integer> deleted;
+
+    public MealChangeSet(List<Integer> inserted, List<Integer> updated, List<Integer> deleted) {
+        this.inserted = inserted;
+        this.updated = updated;
+        this.deleted = deleted;
+    }
+
+    public List<Integer> getInserted() {
+        return inserted;
+    }
+
+    public List<Integer> getUpdated() {
+        return updated;
+    }
+
+    public List<Integer> getDeleted() {
+        return deleted;
+    }
+
+}
@@ -0,0 +1,86 @@
+package app.service.helpers;
+
+import org.springframework.data.domain.Sort;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+// Position of the last restaurant of the page for keyset pagination: the sort key and the id of the restaurant.
+// The next page starts right after this position, so it is found by an index range scan instead of skipping rows.
+// Clients get the cursor as an opaque token (see encode()) and send it back as it is.
+public final class RestaurantCursor {
+
+    private static final String SEPARATOR = ":";
+
+    private final RestaurantSorter sorter;
+    private final Sort.Direction direction;
+    private final Integer id;
+    // Name or number of votes of the restaurant, null if restaurants are sorted by id
+    private final String sortKey;
+
+    private RestaurantCursor(RestaurantSorter sorter, Sort.Direction direction, Integer id, String sortKey) {
+        this.sorter = sorter;
+        this.direction = direction;
+        this.id = id;
+        this.sortKey = sortKey;
+    }
+
+    public static RestaurantCursor afterId(Sort.Direction direction, Integer id) {
+        return new RestaurantCursor(RestaurantSorter.ID, direction, id, null);
+    }
+
+    public static RestaurantCursor afterName(Sort.Direction direction, Integer id, String name) {
+        return new RestaurantCursor(RestaurantSorter.NAME, direction, id, name);
+    }
+
+    public static RestaurantCursor afterVotes(Sort.Direction direction, Integer id, long votes) {
+        return new RestaurantCursor(RestaurantSorter.VOTES, direction, id, String.valueOf(votes));
+    }
+
+    public RestaurantSorter getSorter() {
+        return sorter;
+    }
+
+    public Sort.Direction getDirection() {
+        return direction;
+    }
+
+    public Integer getId() {
+        return id;
+    }
+
+    public String getName() {
+        return sortKey;
+    }
+
+    public long getVotes() {
+        return Long.parseLong(sortKey);
+    }
+
+    public String encode() {
+        String value = sorter.name() + SEPARATOR + direction.name() + SEPARATOR + id + (sortKey == null ? "" : SEPARATOR + sortKey);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    // Throws IllegalArgumentException if the token has not been produced by encode()
+    public static RestaurantCursor decode(String token) {
+        try {
+            String[] parts = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8).split(SEPARATOR, 4);
+            RestaurantSorter sorter = RestaurantSorter.valueOf(parts[0]);
+            Sort.Direction direction = Sort.Direction.valueOf(parts[1]);
+            Integer id = Integer.valueOf(parts[2]);
+            if (sorter == RestaurantSorter.ID) {
+                return afterId(direction, id);
+            }
+            else if (sorter == RestaurantSorter.NAME) {
+                return afterName(direction, id, parts[3]);
+            }
+            else {
+                return afterVotes(direction, id, Long.parseLong(parts[3]));
+            }
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid page cursor: " + token);
+        }
+    }
+
+}
@@ -0,0 +1,27 @@
+package app.service.helpers;
+
+import app.entity.Restaurant;
+
+import java.util.List;
+
+// Page of restaurants returned by keyset pagination together with the cursor of the next page
+public final class RestaurantCursorPage {
+
+    private final List<Restaurant> restaurants;
+    // Null if this is the last page
+    private final RestaurantCursor next;
+
+    public RestaurantCursorPage(List<Restaurant> restaurants, RestaurantCursor next) {
+        this.restaurants = restaurants;
+        this.next = next;
+    }
+
+    public List<Restaurant> getRestaurants() {
+        return restaurants;
+    }
+
+    public RestaurantCursor getNext() {
+        return next;
+    }
+
+}
@@ -0,0 +1,43 @@
+package app.service.helpers;
+
+import app.entity.Restaurant;
+
+import java.util.Collections;
+import java.util.List;
+
+// Restaurant read from a line of the imported stream (see RestaurantService.importRestaurants()),
+// or the errors of the line if it couldn't be read
+public final class RestaurantImportLine {
+
+    private final long line;
+    // Null if the line couldn't be read
+    private final Restaurant restaurant;
+    private final List<String> errors;
+
+    private RestaurantImportLine(long line, Restaurant restaurant, List<String> errors) {
+        this.line = line;
+        this.restaurant = restaurant;
+        this.errors = errors;
+    }
+
+    public static RestaurantImportLine of(long line, Restaurant restaurant) {
+        return new RestaurantImportLine(line, restaurant, Collections.emptyList());
+    }
+
+    public static RestaurantImportLine failed(long line, String error) {
+        return new RestaurantImportLine(line, null, Collections.singletonList(error));
+    }
+
+    public long getLine() {
+        return line;
+    }
+
+    public Restaurant getRestaurant() {
+        return restaurant;
+    }
+
+    public List<String> getErrors() {
+        return errors;
+    }
+
+}
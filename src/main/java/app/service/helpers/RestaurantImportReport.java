@@ -0,0 +1,66 @@
+package app.service.helpers;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+// Summary of an import of restaurants (see RestaurantService.importRestaurants()) returned in response:
+// only the first maxReportedErrors lines which failed are listed (ordered by line), all of them are counted
+public final class RestaurantImportReport {
+
+    private final int maxReportedErrors;
+    private int imported;
+    private int failed;
+    private final List<LineErrors> errors = new ArrayList<>();
+
+    public RestaurantImportReport(int maxReportedErrors) {
+        this.maxReportedErrors = maxReportedErrors;
+    }
+
+    public void addImported(int count) {
+        imported += count;
+    }
+
+    public void addFailed(long line, List<String> lineErrors) {
+        failed++;
+        if (errors.size() < maxReportedErrors) {
+            errors.add(new LineErrors(line, lineErrors));
+        }
+    }
+
+    public int getImported() {
+        return imported;
+    }
+
+    public int getFailed() {
+        return failed;
+    }
+
+    // Lines of a chunk are reported after the lines which failed to be read while the chunk was being filled
+    public List<LineErrors> getErrors() {
+        List<LineErrors> sorted = new ArrayList<>(errors);
+        sorted.sort(Comparator.comparingLong(LineErrors::getLine));
+        return sorted;
+    }
+
+    public static final class LineErrors {
+
+        private final long line;
+        private final List<String> errors;
+
+        public LineErrors(long line, List<String> errors) {
+            this.line = line;
+            this.errors = errors;
+        }
+
+        public long getLine() {
+            return line;
+        }
+
+        public List<String> getErrors() {
+            return errors;
+        }
+
+    }
+
+}
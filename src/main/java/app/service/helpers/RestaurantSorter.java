@@ -14,4 +14,14 @@ public enum RestaurantSorter {
     public String getFieldName() {
         return fieldName;
     }
+
+    // Returns null if restaurants can't be sorted by the given field
+    public static RestaurantSorter fromFieldName(String fieldName) {
+        for (RestaurantSorter sorter : values()) {
+            if (sorter.fieldName.equals(fieldName)) {
+                return sorter;
+            }
+        }
+        return null;
+    }
 }
@@ -0,0 +1,9 @@
+package app.service.helpers;
+
+public enum VotingMode {
+    DIRECT,             // default: each vote loads the restaurant and increments its counter
+    ATOMIC,             // each vote is a single in-database increment without loading the restaurant
+    BUFFERED,           // votes are accumulated in memory and periodically flushed in batches
+    JOURNALED,          // same as BUFFERED, but each vote is durable in the vote journal before it is acknowledged
+    ASYNC               // each vote is queued and acknowledged at once, writer threads apply the queued votes in batches
+}
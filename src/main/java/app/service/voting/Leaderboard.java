@@ -0,0 +1,210 @@
+package app.service.voting;
+
+import app.dao.RestaurantRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicLong;
+
+// In-memory ranking of restaurants by votes (ties are ordered by id), kept in sync with each vote.
+// It is built from the database on startup and must be rebuilt (or reset) after bulk operations (e.g. clearing of all votes).
+// Votes which race with the rebuild may be counted twice or lost until the next rebuild.
+@Component
+public class Leaderboard implements ApplicationListener<ContextRefreshedEvent> {
+
+    private final Logger logger = LoggerFactory.getLogger(app.service.voting.Leaderboard.class);
+
+    private static final Comparator<Standing> BY_VOTES_AND_ID =
+            Comparator.comparingLong(Standing::getVotes).thenComparing(Standing::getId);
+
+    private final RestaurantRepository restaurantRepository;
+    private final VoteBuffer voteBuffer;
+    private final VoteEpochManager voteEpochManager;
+    private final TransactionTemplate transactionTemplate;
+
+    private final ConcurrentMap<Integer, Standing> standings = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListSet<Standing> ranking = new ConcurrentSkipListSet<>(BY_VOTES_AND_ID);
+    // Incremented after every change of the ranking, so a copy of the ranking taken at version v is stale if the version differs
+    private final AtomicLong version = new AtomicLong();
+
+    public Leaderboard(RestaurantRepository restaurantRepository,
+                       VoteBuffer voteBuffer,
+                       VoteEpochManager voteEpochManager,
+                       PlatformTransactionManager transactionManager) {
+        this.restaurantRepository = restaurantRepository;
+        this.voteBuffer = voteBuffer;
+        this.voteEpochManager = voteEpochManager;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+    }
+
+    @Override
+    public void onApplicationEvent(ContextRefreshedEvent event) {
+        rebuild();
+    }
+
+    // Retrieve Methods ----------------------------------------------------------
+
+    // Must be read before the ranking, so that the changes made while the ranking is being read change the version
+    public long getVersion() {
+        return version.get();
+    }
+
+    // Skips page * size restaurants of the ranking and returns the next size restaurants
+    public List<Standing> getPage(int page, int size, Sort.Direction direction) {
+        NavigableSet<Standing> ordered = direction == Sort.Direction.ASC ? ranking : ranking.descendingSet();
+        return collect(ordered, (long) page * size, size);
+    }
+
+    // Returns size restaurants ranked right after the restaurant with the given id and votes (from the top if id is null)
+    // The position is found by the skip list in O(log n), regardless of the number of restaurants ranked before it
+    public List<Standing> getPageAfter(Integer id, long votes, int size, Sort.Direction direction) {
+        NavigableSet<Standing> ordered = direction == Sort.Direction.ASC ? ranking : ranking.descendingSet();
+        if (id != null) {
+            ordered = ordered.tailSet(new Standing(id, null, votes), false);
+        }
+        return collect(ordered, 0, size);
+    }
+
+    private List<Standing> collect(Iterable<Standing> ordered, long skip, int size) {
+        List<Standing> result = new ArrayList<>(Math.min(size, standings.size()));
+        // The restaurant being voted may be met twice (see addVotes())
+        Set<Integer> seenIds = new HashSet<>();
+        for (Standing standing : ordered) {
+            if (!seenIds.add(standing.getId())) {
+                continue;
+            }
+            if (skip > 0) {
+                skip--;
+                continue;
+            }
+            if (result.size() == size) {
+                break;
+            }
+            result.add(standing);
+        }
+        return result;
+    }
+
+    // Update Methods ------------------------------------------------------------
+
+    public void addVotes(Integer id, long votes) {
+        standings.computeIfPresent(id, (key, standing) -> replace(standing, new Standing(id, standing.getName(), standing.getVotes() + votes)));
+    }
+
+    public void put(Integer id, String name, long votes) {
+        standings.compute(id, (key, standing) -> replace(standing, new Standing(id, name, votes)));
+    }
+
+    public void remove(Integer id) {
+        standings.computeIfPresent(id, (key, standing) -> {
+            ranking.remove(standing);
+            version.incrementAndGet();
+            return null;
+        });
+    }
+
+    public void clear() {
+        standings.clear();
+        ranking.clear();
+        version.incrementAndGet();
+    }
+
+    // Votes of all restaurants have been cleared, no query is generated
+    public void resetVotes() {
+        standings.values().forEach(standing -> put(standing.getId(), standing.getName(), 0));
+        logger.info("Leaderboard: Votes of {} restaurants have been reset.", standings.size());
+    }
+
+    // Loads id, name and votes (including pending votes of VoteBuffer) of every restaurant by 1 SELECT query
+    public void rebuild() {
+        int epoch = voteEpochManager.getCurrentEpoch();
+        List<Object[]> rows = transactionTemplate.execute(status -> restaurantRepository.findAllStandings(epoch));
+        Set<Integer> ids = new HashSet<>();
+        for (Object[] row : Objects.requireNonNull(rows)) {
+            Integer id = (Integer) row[0];
+            put(id, (String) row[1], ((Number) row[2]).longValue() + voteBuffer.getPendingVotes(id));
+            ids.add(id);
+        }
+        standings.keySet().stream()
+                .filter(id -> !ids.contains(id))
+                .forEach(this::remove);
+        logger.info("Leaderboard: Ranking of {} restaurants has been rebuilt.", ids.size());
+    }
+
+    // Must be invoked while the mapping of the restaurant in standings is locked
+    private Standing replace(Standing standing, Standing updated) {
+        if (standing != null && BY_VOTES_AND_ID.compare(standing, updated) == 0) {
+            // Same position in the ranking
+            ranking.remove(standing);
+            ranking.add(updated);
+        }
+        else {
+            // New standing is added before the old one is removed, so concurrent readers never miss the restaurant
+            ranking.add(updated);
+            if (standing != null) {
+                ranking.remove(standing);
+            }
+        }
+        version.incrementAndGet();
+        return updated;
+    }
+
+    public static final class Standing {
+
+        private final Integer id;
+        private final String name;
+        private final long votes;
+
+        public Standing(Integer id, String name, long votes) {
+            this.id = id;
+            this.name = name;
+            this.votes = votes;
+        }
+
+        public Integer getId() {
+            return id;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public long getVotes() {
+            return votes;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            Standing standing = (Standing) o;
+            return votes == standing.votes &&
+                    id.equals(standing.id) &&
+                    Objects.equals(name, standing.name);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(id, name, votes);
+        }
+
+    }
+
+}
@@ -0,0 +1,234 @@
+package app.service.voting;
+
+import app.dao.UserVoteRepository;
+import app.entity.UserVote;
+import app.service.exceptions.DuplicateVoteException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Clock;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+// Index of the votes of the users for the current day, so that each user has only one vote per day.
+// Every user gets a number on the first vote, the number addresses a slot of the primitive array of longs,
+// the slot keeps the day of the last vote and the id of the restaurant packed into one long value.
+// The slot is changed by compare-and-set, so checking and registering of the vote is lock-free and O(1).
+// A vote of the user who has already voted today moves the vote to another restaurant (see RestaurantVotingService).
+// The index is persisted to user_vote table: in BUFFERED and JOURNALED voting modes changed slots are saved
+// by the flush of VoteBuffer, in other modes they are saved in the transaction of the vote.
+// Votes without an authenticated user (e.g. batches of votes) are not limited.
+@Component
+public class UserVoteIndex implements SmartInitializingSingleton {
+
+    private final Logger logger = LoggerFactory.getLogger(app.service.voting.UserVoteIndex.class);
+
+    private static final int CHUNK_SIZE = 4096;
+    private static final int MAX_CHUNKS = 4096;
+    private static final long NO_VOTE = 0L;
+
+    private final UserVoteRepository userVoteRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final Clock clock;
+
+    private final ConcurrentMap<String, Integer> userNumbers = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Integer, String> usernames = new ConcurrentHashMap<>();
+    private final AtomicInteger nextUserNumber = new AtomicInteger();
+    // Chunks of slots are allocated on demand, so the index never copies (and never loses) a slot being changed
+    private final AtomicReferenceArray<AtomicLongArray> chunks = new AtomicReferenceArray<>(MAX_CHUNKS);
+    // Numbers of the users whose slots have been changed but not saved yet
+    private final Set<Integer> changedUsers = ConcurrentHashMap.newKeySet();
+
+    public UserVoteIndex(UserVoteRepository userVoteRepository,
+                         PlatformTransactionManager transactionManager,
+                         Environment env) {
+        this.userVoteRepository = userVoteRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.enabled = env.getProperty("voting.daily-limit.enabled", Boolean.class, true);
+        this.clock = Clock.systemDefaultZone();
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        reload();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // Registers the vote of the user for the restaurant, returns null if the vote is not limited
+    // Throws DuplicateVoteException if the user has already voted for the restaurant today
+    public Registration register(String username, int restaurantId) {
+        if (!enabled || username == null) {
+            return null;
+        }
+        int user = numberOf(username);
+        AtomicLongArray chunk = chunkOf(user);
+        int index = user % CHUNK_SIZE;
+        long today = LocalDate.now(clock).toEpochDay();
+        long slot = pack(today, restaurantId);
+        while (true) {
+            long previousSlot = chunk.get(index);
+            int previousRestaurantId = dayOf(previousSlot) == today ? restaurantIdOf(previousSlot) : 0;
+            if (previousRestaurantId == restaurantId) {
+                throw new DuplicateVoteException("You have already voted for restaurant with id=" + restaurantId + " today.");
+            }
+            if (chunk.compareAndSet(index, previousSlot, slot)) {
+                return new Registration(user, username, restaurantId, previousRestaurantId, LocalDate.ofEpochDay(today), previousSlot, slot);
+            }
+        }
+    }
+
+    // Restores the previous vote of the user if the registered vote has not been counted
+    // Returns false if the user has voted again since then, the previous vote is not restored in this case
+    public boolean rollback(Registration registration) {
+        return chunkOf(registration.user).compareAndSet(registration.user % CHUNK_SIZE, registration.slot, registration.previousSlot);
+    }
+
+    // Returns false if the user has voted again since the vote was registered
+    public boolean isCurrent(Registration registration) {
+        return chunkOf(registration.user).get(registration.user % CHUNK_SIZE) == registration.slot;
+    }
+
+    // The vote is going to be saved by the next invocation of saveChanges()
+    public void markChanged(Registration registration) {
+        changedUsers.add(registration.user);
+    }
+
+    public boolean hasChanges() {
+        return !changedUsers.isEmpty();
+    }
+
+    // Saves the changed votes of the users, must be invoked inside of a transaction
+    public void saveChanges() {
+        if (changedUsers.isEmpty()) {
+            return;
+        }
+        List<UserVote> userVotes = new ArrayList<>();
+        for (Integer user : changedUsers) {
+            changedUsers.remove(user);
+            long slot = chunkOf(user).get(user % CHUNK_SIZE);
+            if (slot != NO_VOTE) {
+                userVotes.add(new UserVote(usernames.get(user), restaurantIdOf(slot), LocalDate.ofEpochDay(dayOf(slot))));
+            }
+        }
+        try {
+            userVoteRepository.saveInBatch(userVotes);
+        } catch (RuntimeException e) {
+            userVotes.forEach(userVote -> changedUsers.add(userNumbers.get(userVote.getUsername())));
+            throw e;
+        }
+    }
+
+    // Forgets all the votes of the users (e.g. after all votes have been cleared)
+    public void clear() {
+        changedUsers.clear();
+        for (int i = 0; i < chunks.length(); i++) {
+            chunks.set(i, null);
+        }
+    }
+
+    // Loads today's votes of the users from the database
+    public void reload() {
+        if (!enabled) {
+            return;
+        }
+        LocalDate today = LocalDate.now(clock);
+        List<UserVote> userVotes = transactionTemplate.execute(status -> userVoteRepository.findAllByVoteDate(today));
+        clear();
+        for (UserVote userVote : userVotes) {
+            int user = numberOf(userVote.getUsername());
+            chunkOf(user).set(user % CHUNK_SIZE, pack(userVote.getVoteDate().toEpochDay(), userVote.getRestaurantId()));
+        }
+        logger.info("User Vote Index: Votes of {} users have been loaded.", userVotes.size());
+    }
+
+    private int numberOf(String username) {
+        Integer user = userNumbers.get(username);
+        if (user != null) {
+            return user;
+        }
+        return userNumbers.computeIfAbsent(username, key -> {
+            int number = nextUserNumber.getAndIncrement();
+            if (number >= CHUNK_SIZE * MAX_CHUNKS) {
+                throw new IllegalStateException("Too many users to keep their votes in the index.");
+            }
+            usernames.put(number, key);
+            return number;
+        });
+    }
+
+    private AtomicLongArray chunkOf(int user) {
+        int chunkIndex = user / CHUNK_SIZE;
+        AtomicLongArray chunk = chunks.get(chunkIndex);
+        if (chunk == null) {
+            chunks.compareAndSet(chunkIndex, null, new AtomicLongArray(CHUNK_SIZE));
+            chunk = chunks.get(chunkIndex);
+        }
+        return chunk;
+    }
+
+    private static long pack(long day, int restaurantId) {
+        return (day << 32) | (restaurantId & 0xFFFFFFFFL);
+    }
+
+    private static long dayOf(long slot) {
+        return slot >>> 32;
+    }
+
+    private static int restaurantIdOf(long slot) {
+        return (int) slot;
+    }
+
+    // Vote of the user registered in the index
+    public static final class Registration {
+
+        private final int user;
+        private final String username;
+        private final int restaurantId;
+        // Id of the restaurant the user has voted for earlier today, 0 if there is no such vote
+        private final int previousRestaurantId;
+        private final LocalDate voteDate;
+        private final long previousSlot;
+        private final long slot;
+
+        private Registration(int user, String username, int restaurantId, int previousRestaurantId,
+                             LocalDate voteDate, long previousSlot, long slot) {
+            this.user = user;
+            this.username = username;
+            this.restaurantId = restaurantId;
+            this.previousRestaurantId = previousRestaurantId;
+            this.voteDate = voteDate;
+            this.previousSlot = previousSlot;
+            this.slot = slot;
+        }
+
+        public boolean isRevote() {
+            return previousRestaurantId != 0;
+        }
+
+        public int getPreviousRestaurantId() {
+            return previousRestaurantId;
+        }
+
+        public UserVote toUserVote() {
+            return new UserVote(username, restaurantId, voteDate);
+        }
+
+    }
+
+}
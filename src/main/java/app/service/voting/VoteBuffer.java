@@ -0,0 +1,294 @@
+package app.service.voting;
+
+import app.dao.RestaurantRepository;
+import app.dao.VoteJournalCheckpointRepository;
+import app.entity.VoteJournalCheckpoint;
+import app.service.caching.RestaurantCache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+// Write-behind buffer of votes: votes are counted in memory by striped counters (one LongAdder per restaurant)
+// and periodically flushed to restaurant.votes column by a single JDBC batch of UPDATE statements.
+// A flush is triggered every voting.buffer.flush-interval-ms milliseconds, as soon as voting.buffer.flush-size
+// votes are pending and on application shutdown.
+// In JOURNALED mode every vote is also appended to VoteJournal before it is acknowledged: the flush then applies
+// the journal records (not the counters) together with the journal checkpoint in one transaction,
+// and the journal records which were not applied before the crash are replayed on startup.
+// Changed votes of the users (see UserVoteIndex) are saved by the flush in the same transaction as the votes.
+@Component
+public class VoteBuffer implements InitializingBean, SmartInitializingSingleton, DisposableBean {
+
+    private final Logger logger = LoggerFactory.getLogger(app.service.voting.VoteBuffer.class);
+
+    private final RestaurantRepository restaurantRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final RestaurantCache restaurantCache;
+    private final VoteJournal voteJournal;
+    private final VoteJournalCheckpointRepository checkpointRepository;
+    private final UserVoteIndex userVoteIndex;
+    private final VoteEpochManager voteEpochManager;
+
+    private final long flushIntervalMillis;
+    private final long flushSize;
+
+    // Votes which are not handed over to the database yet
+    private final ConcurrentMap<Integer, LongAdder> pendingVotes = new ConcurrentHashMap<>();
+    // Votes which are being written to the database by the flush in progress (not committed yet),
+    // changed only under flushLock and removed as soon as the flush completes
+    private final ConcurrentMap<Integer, LongAdder> flushingVotes = new ConcurrentHashMap<>();
+    // Ids of restaurants which are known to exist, so that voting for them doesn't require a database round trip
+    private final Set<Integer> knownRestaurantIds = ConcurrentHashMap.newKeySet();
+
+    private final LongAdder pendingVotesTotal = new LongAdder();
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+    private final Object flushLock = new Object();
+
+    private ScheduledExecutorService flushExecutor;
+    // Sequence of the last journal record applied to the database
+    private volatile long appliedSequence = -1;
+
+    public VoteBuffer(RestaurantRepository restaurantRepository,
+                      PlatformTransactionManager transactionManager,
+                      RestaurantCache restaurantCache,
+                      VoteJournal voteJournal,
+                      VoteJournalCheckpointRepository checkpointRepository,
+                      UserVoteIndex userVoteIndex,
+                      VoteEpochManager voteEpochManager,
+                      Environment env) {
+        this.restaurantRepository = restaurantRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.restaurantCache = restaurantCache;
+        this.voteJournal = voteJournal;
+        this.checkpointRepository = checkpointRepository;
+        this.userVoteIndex = userVoteIndex;
+        this.voteEpochManager = voteEpochManager;
+        this.flushIntervalMillis = env.getProperty("voting.buffer.flush-interval-ms", Long.class, 1000L);
+        this.flushSize = env.getProperty("voting.buffer.flush-size", Long.class, 1000L);
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        flushExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "vote-buffer-flush");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flushExecutor.scheduleWithFixedDelay(this::flushQuietly, flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    // Replays the journal records which were not applied to the database before the application was stopped
+    // If the checkpoint belongs to another journal (the journal or the database has been replaced since),
+    // the records of this journal have never been counted against this database, so none of them is replayed
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (voteJournal.isEnabled()) {
+            synchronized (flushLock) {
+                VoteJournalCheckpoint checkpoint = transactionTemplate.execute(status -> checkpointRepository.findById(VoteJournalCheckpoint.ID)
+                        .orElse(null));
+                if (checkpoint != null && voteJournal.getId().equals(checkpoint.getJournalId())) {
+                    appliedSequence = checkpoint.getAppliedSequence();
+                }
+                else {
+                    long durableSequence = voteJournal.getDurableSequence();
+                    transactionTemplate.execute(status -> checkpointRepository.save(new VoteJournalCheckpoint(voteJournal.getId(), durableSequence)));
+                    appliedSequence = durableSequence;
+                    logger.warn("Vote Buffer: Checkpoint doesn't belong to journal {}, its records up to sequence {} have been skipped.",
+                            voteJournal.getId(), durableSequence);
+                }
+                int restaurants = applyJournal(false);
+                logger.info("Vote Buffer: Journal has been replayed for {} restaurants.", restaurants);
+            }
+        }
+    }
+
+    // Flushes all the pending votes before the application context is closed
+    @Override
+    public void destroy() throws InterruptedException {
+        flushExecutor.shutdown();
+        flushExecutor.awaitTermination(flushIntervalMillis, TimeUnit.MILLISECONDS);
+        flush();
+        logger.info("Vote Buffer: Pending votes have been flushed on shutdown.");
+    }
+
+    // Lock-free in the common case when the counter of the restaurant already exists
+    public void addVotes(Integer id, long votes) {
+        counterOf(pendingVotes, id).add(votes);
+        pendingVotesTotal.add(votes);
+        requestFlushIfFull();
+    }
+
+    // Returns when the vote is durable, the vote is counted as pending before it is journaled
+    // so that it never becomes negative when its record is applied by a concurrent flush
+    public void addJournaledVote(Integer id, String user) {
+        LongAdder pending = counterOf(pendingVotes, id);
+        pending.increment();
+        pendingVotesTotal.increment();
+        try {
+            voteJournal.append(id, user);
+        } catch (RuntimeException e) {
+            pending.decrement();
+            pendingVotesTotal.decrement();
+            throw e;
+        }
+        requestFlushIfFull();
+    }
+
+    private void requestFlushIfFull() {
+        if (pendingVotesTotal.sum() >= flushSize && !flushExecutor.isShutdown() && flushRequested.compareAndSet(false, true)) {
+            flushExecutor.execute(this::flushQuietly);
+        }
+    }
+
+    // Votes accepted for the restaurant which are not yet visible in restaurant.votes column
+    public long getPendingVotes(Integer id) {
+        LongAdder pending = pendingVotes.get(id);
+        LongAdder flushing = flushingVotes.get(id);
+        return (pending == null ? 0 : pending.sum()) + (flushing == null ? 0 : flushing.sum());
+    }
+
+    public boolean isKnownRestaurant(Integer id) {
+        return knownRestaurantIds.contains(id);
+    }
+
+    public void markKnownRestaurant(Integer id) {
+        knownRestaurantIds.add(id);
+    }
+
+    // Must be invoked when the restaurant is removed, otherwise its votes would be accepted and silently lost
+    public void discard(Integer id) {
+        knownRestaurantIds.remove(id);
+        flushingVotes.remove(id);
+        LongAdder pending = pendingVotes.remove(id);
+        if (pending != null) {
+            pendingVotesTotal.add(-pending.sum());
+        }
+    }
+
+    // Waits for the flush in progress (if any) to complete, so that no discarded vote can be written afterwards
+    // In JOURNALED mode it must be invoked in the transaction which resets the votes, so that the journal records
+    // are skipped only if the votes are actually reset
+    public void discardAll() {
+        synchronized (flushLock) {
+            if (voteJournal.isEnabled()) {
+                long durableSequence = voteJournal.getDurableSequence();
+                checkpointRepository.save(new VoteJournalCheckpoint(voteJournal.getId(), durableSequence));
+                appliedSequence = durableSequence;
+            }
+            knownRestaurantIds.clear();
+            pendingVotes.values().forEach(pending -> pendingVotesTotal.add(-pending.sum()));
+            pendingVotes.clear();
+        }
+    }
+
+    public void flush() {
+        synchronized (flushLock) {
+            flushRequested.set(false);
+            if (voteJournal.isEnabled()) {
+                int restaurants = applyJournal(true);
+                if (restaurants > 0) {
+                    logger.info("Vote Buffer: Journaled votes for {} restaurants have been flushed.", restaurants);
+                }
+                return;
+            }
+            Map<Integer, Integer> votesByRestaurantId = new HashMap<>();
+            pendingVotes.forEach((id, pending) -> {
+                long votes = pending.sum();
+                if (votes != 0) {
+                    // Votes are moved (not copied) to flushingVotes, so the concurrent readers never miss them
+                    counterOf(flushingVotes, id).add(votes);
+                    pending.add(-votes);
+                    pendingVotesTotal.add(-votes);
+                    votesByRestaurantId.put(id, Math.toIntExact(votes));
+                }
+            });
+            if (votesByRestaurantId.isEmpty() && !userVoteIndex.hasChanges()) {
+                return;
+            }
+            try {
+                transactionTemplate.execute(status -> {
+                    userVoteIndex.saveChanges();
+                    return restaurantRepository.addVotesInBatch(votesByRestaurantId, voteEpochManager.getCurrentEpoch());
+                });
+            } catch (RuntimeException e) {
+                // Failed votes are returned to the buffer and retried by the next flush
+                votesByRestaurantId.forEach((id, votes) -> addVotes(id, votes));
+                throw e;
+            } finally {
+                votesByRestaurantId.keySet().forEach(flushingVotes::remove);
+            }
+            // Restaurants cached while the flush was in progress could count the flushed votes twice
+            votesByRestaurantId.keySet().forEach(restaurantCache::evictVotesOf);
+            logger.info("Vote Buffer: Votes for {} restaurants have been flushed.", votesByRestaurantId.size());
+        }
+    }
+
+    // Must be invoked while flushLock is held, returns the number of restaurants whose votes have been applied
+    private int applyJournal(boolean votesArePending) {
+        long fromSequence = appliedSequence;
+        long toSequence = voteJournal.getDurableSequence();
+        if (toSequence <= fromSequence) {
+            if (votesArePending && userVoteIndex.hasChanges()) {
+                transactionTemplate.execute(status -> {
+                    userVoteIndex.saveChanges();
+                    return null;
+                });
+            }
+            return 0;
+        }
+        Map<Integer, Integer> votesByRestaurantId = voteJournal.readVotes(fromSequence, toSequence);
+        transactionTemplate.execute(status -> {
+            if (votesArePending) {
+                userVoteIndex.saveChanges();
+            }
+            restaurantRepository.addVotesInBatch(votesByRestaurantId, voteEpochManager.getCurrentEpoch());
+            checkpointRepository.save(new VoteJournalCheckpoint(voteJournal.getId(), toSequence));
+            return null;
+        });
+        appliedSequence = toSequence;
+        if (votesArePending) {
+            votesByRestaurantId.forEach((id, votes) -> {
+                // Votes of a discarded restaurant are not pending any more
+                LongAdder pending = pendingVotes.get(id);
+                if (pending != null) {
+                    pending.add(-votes);
+                    pendingVotesTotal.add(-votes);
+                }
+            });
+        }
+        votesByRestaurantId.keySet().forEach(restaurantCache::evictVotesOf);
+        voteJournal.compact(toSequence);
+        return votesByRestaurantId.size();
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            logger.error("Vote Buffer: Failed to flush pending votes.", e);
+        }
+    }
+
+    private static LongAdder counterOf(ConcurrentMap<Integer, LongAdder> counters, Integer id) {
+        LongAdder counter = counters.get(id);
+        return counter != null ? counter : counters.computeIfAbsent(id, key -> new LongAdder());
+    }
+
+}
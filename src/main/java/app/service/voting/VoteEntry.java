@@ -0,0 +1,57 @@
+package app.service.voting;
+
+import java.util.Objects;
+
+// Entry of the batch of votes: number of votes (count) for the restaurant
+public class VoteEntry {
+
+    private Integer restaurantId;
+    private Integer count;
+
+    public VoteEntry() {
+    }
+
+    public VoteEntry(Integer restaurantId, Integer count) {
+        this.restaurantId = restaurantId;
+        this.count = count;
+    }
+
+    public Integer getRestaurantId() {
+        return restaurantId;
+    }
+
+    public void setRestaurantId(Integer restaurantId) {
+        this.restaurantId = restaurantId;
+    }
+
+    public Integer getCount() {
+        return count;
+    }
+
+    public void setCount(Integer count) {
+        this.count = count;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        VoteEntry voteEntry = (VoteEntry) o;
+        return Objects.equals(restaurantId, voteEntry.restaurantId) &&
+                Objects.equals(count, voteEntry.count);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(restaurantId, count);
+    }
+
+    @Override
+    public String toString() {
+        return "VoteEntry{" +
+                "restaurantId=" + restaurantId +
+                ", count=" + count +
+                '}';
+    }
+
+}
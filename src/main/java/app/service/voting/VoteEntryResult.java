@@ -0,0 +1,60 @@
+package app.service.voting;
+
+import java.util.Objects;
+
+// Result of the entry of the batch of votes, results are returned in the order of the entries
+public class VoteEntryResult {
+
+    public enum Status {
+        ACCEPTED,   // votes have been counted
+        NOT_FOUND,  // there is no restaurant with the given id
+        INVALID     // restaurant id is null or count is not positive
+    }
+
+    private final Integer restaurantId;
+    private final Integer count;
+    private final Status status;
+
+    public VoteEntryResult(Integer restaurantId, Integer count, Status status) {
+        this.restaurantId = restaurantId;
+        this.count = count;
+        this.status = status;
+    }
+
+    public Integer getRestaurantId() {
+        return restaurantId;
+    }
+
+    public Integer getCount() {
+        return count;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        VoteEntryResult that = (VoteEntryResult) o;
+        return Objects.equals(restaurantId, that.restaurantId) &&
+                Objects.equals(count, that.count) &&
+                status == that.status;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(restaurantId, count, status);
+    }
+
+    @Override
+    public String toString() {
+        return "VoteEntryResult{" +
+                "restaurantId=" + restaurantId +
+                ", count=" + count +
+                ", status=" + status +
+                '}';
+    }
+
+}
@@ -0,0 +1,117 @@
+package app.service.voting;
+
+import app.dao.RestaurantRepository;
+import app.dao.VoteEpochRepository;
+import app.service.helpers.AfterCommit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+// Votes of every restaurant are tagged with the voting epoch (restaurant.vote_epoch column),
+// the votes tagged with an epoch other than the current one are treated as zero by every read.
+// Clearing of all votes just advances the epoch (1 UPDATE statement of the single vote_epoch row),
+// the votes of the previous epoch are reset by the next vote for the restaurant or by the background cleanup,
+// which resets voting.epoch.cleanup-chunk-size restaurants per transaction, so voters are never blocked for long.
+@Component
+public class VoteEpochManager implements SmartInitializingSingleton, DisposableBean {
+
+    private final Logger logger = LoggerFactory.getLogger(app.service.voting.VoteEpochManager.class);
+
+    private final VoteEpochRepository voteEpochRepository;
+    private final RestaurantRepository restaurantRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final int cleanupChunkSize;
+
+    private final ExecutorService cleanupExecutor;
+    private volatile int currentEpoch;
+
+    public VoteEpochManager(VoteEpochRepository voteEpochRepository,
+                            RestaurantRepository restaurantRepository,
+                            PlatformTransactionManager transactionManager,
+                            Environment env) {
+        this.voteEpochRepository = voteEpochRepository;
+        this.restaurantRepository = restaurantRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.cleanupChunkSize = env.getProperty("voting.epoch.cleanup-chunk-size", Integer.class, 500);
+        this.cleanupExecutor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "vote-epoch-cleanup");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    // The cleanup may have been interrupted by the shutdown of the application
+    @Override
+    public void afterSingletonsInstantiated() {
+        reload();
+        cleanupExecutor.execute(this::cleanUpQuietly);
+    }
+
+    @Override
+    public void destroy() throws InterruptedException {
+        cleanupExecutor.shutdownNow();
+        cleanupExecutor.awaitTermination(1, TimeUnit.SECONDS);
+    }
+
+    public int getCurrentEpoch() {
+        return currentEpoch;
+    }
+
+    public boolean isCurrent(Integer epoch) {
+        return epoch != null && epoch == currentEpoch;
+    }
+
+    // Must be invoked inside of a transaction, the new epoch becomes current after the commit
+    public void advance() {
+        voteEpochRepository.advance();
+        int epoch = voteEpochRepository.findCurrentEpoch();
+        AfterCommit.run(() -> {
+            currentEpoch = epoch;
+            if (!cleanupExecutor.isShutdown()) {
+                cleanupExecutor.execute(this::cleanUpQuietly);
+            }
+            logger.info("Vote Epoch Manager: Voting epoch {} has been started.", epoch);
+        });
+    }
+
+    public void reload() {
+        Integer epoch = transactionTemplate.execute(status -> voteEpochRepository.findCurrentEpoch());
+        currentEpoch = epoch == null ? 0 : epoch;
+    }
+
+    // Resets the votes of the previous epochs chunk by chunk, stops as soon as the epoch is advanced again
+    public void cleanUp() {
+        int epoch = currentEpoch;
+        int total = 0;
+        int reset;
+        do {
+            if (epoch != currentEpoch || Thread.currentThread().isInterrupted()) {
+                return;
+            }
+            Integer rows = transactionTemplate.execute(status -> restaurantRepository.resetStaleVotes(epoch, cleanupChunkSize));
+            reset = rows == null ? 0 : rows;
+            total += reset;
+        } while (reset == cleanupChunkSize);
+        if (total > 0) {
+            logger.info("Vote Epoch Manager: Votes of {} restaurants have been reset to epoch {}.", total, epoch);
+        }
+    }
+
+    private void cleanUpQuietly() {
+        try {
+            cleanUp();
+        } catch (RuntimeException e) {
+            logger.error("Vote Epoch Manager: Failed to reset votes of the previous epochs.", e);
+        }
+    }
+
+}
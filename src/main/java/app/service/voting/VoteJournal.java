@@ -0,0 +1,323 @@
+package app.service.voting;
+
+import app.service.exceptions.VoteNotDurableException;
+import app.service.helpers.VotingMode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+// Append-only journal of votes backed by memory-mapped segment files (voting.journal.directory).
+// Each vote is a fixed-size record: restaurant id, timestamp, user name (truncated) and CRC32 of these fields.
+// Records are numbered by a global sequence: the segment file name is the sequence of its first record.
+// Appending thread waits for the group commit: all the records written since the previous commit are forced
+// to the storage device at once every voting.journal.fsync-interval-ms milliseconds. If the record doesn't become
+// durable within voting.journal.durability-timeout-ms milliseconds, it is voided and the vote fails.
+// The journal has an id (journal.id file), which changes whenever the sequence starts from 0 again,
+// so that the checkpoint of another journal is never applied to its records (see VoteBuffer).
+// Segments whose records are all applied to the database are removed by compact().
+// The journal is used in JOURNALED voting mode only, in other modes it is never opened.
+@Component
+public class VoteJournal implements InitializingBean, DisposableBean {
+
+    private final Logger logger = LoggerFactory.getLogger(app.service.voting.VoteJournal.class);
+
+    // Record layout: restaurant id (4) + timestamp (8) + user length (1) + user (31) + CRC32 (4)
+    static final int RECORD_SIZE = 48;
+    static final int MAX_USER_LENGTH = 31;
+    private static final String SEGMENT_PREFIX = "votes-";
+    private static final String SEGMENT_SUFFIX = ".journal";
+    private static final String ID_FILE = "journal.id";
+
+    private final boolean enabled;
+    private final Path directory;
+    private final int segmentRecords;
+    private final long fsyncIntervalMillis;
+    private final long durabilityTimeoutMillis;
+
+    private final ConcurrentNavigableMap<Long, Segment> segments = new ConcurrentSkipListMap<>();
+    private final Object writeLock = new Object();
+    private final Object durabilityLock = new Object();
+
+    private String id;
+    private Segment currentSegment;
+    // Sequence of the next record to be appended
+    private long nextSequence;
+    // Sequence of the last record forced to the storage device
+    private volatile long durableSequence = -1;
+
+    private ScheduledExecutorService commitExecutor;
+
+    public VoteJournal(Environment env) {
+        this.enabled = env.getProperty("voting.mode", VotingMode.class, VotingMode.DIRECT) == VotingMode.JOURNALED;
+        this.directory = Paths.get(env.getProperty("voting.journal.directory", "journal"));
+        this.segmentRecords = env.getProperty("voting.journal.segment-records", Integer.class, 65536);
+        this.fsyncIntervalMillis = env.getProperty("voting.journal.fsync-interval-ms", Long.class, 5L);
+        this.durabilityTimeoutMillis = env.getProperty("voting.journal.durability-timeout-ms", Long.class, 1000L);
+    }
+
+    @Override
+    public void afterPropertiesSet() throws IOException {
+        if (!enabled) {
+            return;
+        }
+        Files.createDirectories(directory);
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                long firstSequence = Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+                segments.put(firstSequence, new Segment(firstSequence, file));
+            }
+        }
+        Path idFile = directory.resolve(ID_FILE);
+        if (segments.isEmpty() || !Files.exists(idFile)) {
+            // The id is written before the first segment, so a journal without segments always gets a new id
+            id = UUID.randomUUID().toString();
+            Files.write(idFile, id.getBytes(StandardCharsets.US_ASCII));
+        }
+        else {
+            id = new String(Files.readAllBytes(idFile), StandardCharsets.US_ASCII).trim();
+        }
+        if (segments.isEmpty()) {
+            currentSegment = createSegment(0);
+            nextSequence = 0;
+        }
+        else {
+            // The last record is the last one with the valid checksum, a torn record was never acknowledged
+            currentSegment = segments.lastEntry().getValue();
+            int count = 0;
+            while (count < segmentRecords && currentSegment.isValid(count)) {
+                count++;
+            }
+            nextSequence = currentSegment.firstSequence + count;
+        }
+        durableSequence = nextSequence - 1;
+        commitExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "vote-journal-commit");
+            thread.setDaemon(true);
+            return thread;
+        });
+        commitExecutor.scheduleWithFixedDelay(this::commit, fsyncIntervalMillis, fsyncIntervalMillis, TimeUnit.MILLISECONDS);
+        logger.info("Vote Journal: Journal {} has been opened with {} segments, next sequence is {}.", id, segments.size(), nextSequence);
+    }
+
+    @Override
+    public void destroy() throws InterruptedException {
+        if (!enabled) {
+            return;
+        }
+        commitExecutor.shutdown();
+        commitExecutor.awaitTermination(fsyncIntervalMillis * 10, TimeUnit.MILLISECONDS);
+        commit();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public long getDurableSequence() {
+        return durableSequence;
+    }
+
+    // Returns the sequence of the record only when the record is durable (forced to the storage device)
+    // Throws VoteNotDurableException if the record is not durable in time, the record is voided then
+    public long append(Integer restaurantId, String user) {
+        long sequence;
+        Segment segment;
+        synchronized (writeLock) {
+            sequence = nextSequence;
+            if (sequence - currentSegment.firstSequence == segmentRecords) {
+                // Records of the full segment must be durable before the records of the next one
+                currentSegment.force();
+                currentSegment = createSegment(sequence);
+            }
+            segment = currentSegment;
+            segment.write((int) (sequence - segment.firstSequence), restaurantId, System.currentTimeMillis(), user);
+            nextSequence = sequence + 1;
+        }
+        synchronized (durabilityLock) {
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(durabilityTimeoutMillis);
+            while (durableSequence < sequence) {
+                long remainingMillis = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                // Commits are published under durabilityLock, so the record of the failed vote is voided before
+                // it can be applied (only a crash before the next commit may still replay it)
+                if (remainingMillis <= 0) {
+                    segment.voidRecord((int) (sequence - segment.firstSequence));
+                    throw new VoteNotDurableException("The vote could not be saved in time, please try again later.");
+                }
+                try {
+                    durabilityLock.wait(remainingMillis);
+                } catch (InterruptedException e) {
+                    segment.voidRecord((int) (sequence - segment.firstSequence));
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Interrupted while waiting for the vote to become durable.", e);
+                }
+            }
+        }
+        return sequence;
+    }
+
+    // Number of votes by restaurant id in records with sequence greater than fromSequence and not greater than toSequence
+    // Voided records are skipped
+    public Map<Integer, Integer> readVotes(long fromSequence, long toSequence) {
+        Map<Integer, Integer> votesByRestaurantId = new HashMap<>();
+        if (segments.isEmpty()) {
+            return votesByRestaurantId;
+        }
+        // Records of compacted segments are not available any more
+        long firstSequence = Math.max(fromSequence + 1, segments.firstKey());
+        for (long sequence = firstSequence; sequence <= toSequence; sequence++) {
+            Segment segment = segments.floorEntry(sequence).getValue();
+            int restaurantId = segment.readRestaurantId((int) (sequence - segment.firstSequence));
+            if (restaurantId > 0) {
+                votesByRestaurantId.merge(restaurantId, 1, Integer::sum);
+            }
+        }
+        return votesByRestaurantId;
+    }
+
+    // Removes the segments whose records are all applied to the database (the current segment is never removed)
+    public void compact(long appliedSequence) {
+        Segment current;
+        synchronized (writeLock) {
+            current = currentSegment;
+        }
+        for (Map.Entry<Long, Segment> entry : segments.entrySet()) {
+            Segment segment = entry.getValue();
+            if (segment != current && segment.firstSequence + segmentRecords - 1 <= appliedSequence) {
+                segments.remove(entry.getKey());
+                segment.delete();
+                logger.info("Vote Journal: Segment {} has been compacted.", segment.file.getFileName());
+            }
+        }
+    }
+
+    // Group commit: forces all the records written since the previous commit and wakes up their writers
+    private void commit() {
+        try {
+            long writtenSequence;
+            Segment segment;
+            synchronized (writeLock) {
+                writtenSequence = nextSequence - 1;
+                segment = currentSegment;
+            }
+            if (writtenSequence <= durableSequence) {
+                return;
+            }
+            segment.force();
+            synchronized (durabilityLock) {
+                durableSequence = writtenSequence;
+                durabilityLock.notifyAll();
+            }
+        } catch (RuntimeException e) {
+            logger.error("Vote Journal: Failed to commit the journal.", e);
+        }
+    }
+
+    private Segment createSegment(long firstSequence) {
+        Path file = directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, firstSequence, SEGMENT_SUFFIX));
+        Segment segment = new Segment(firstSequence, file);
+        segments.put(firstSequence, segment);
+        logger.info("Vote Journal: Segment {} has been created.", file.getFileName());
+        return segment;
+    }
+
+    private final class Segment {
+
+        private final long firstSequence;
+        private final Path file;
+        private final MappedByteBuffer buffer;
+
+        private Segment(long firstSequence, Path file) {
+            this.firstSequence = firstSequence;
+            this.file = file;
+            // The mapping stays valid after the file is closed
+            try (RandomAccessFile randomAccessFile = new RandomAccessFile(file.toFile(), "rw")) {
+                randomAccessFile.setLength((long) segmentRecords * RECORD_SIZE);
+                this.buffer = randomAccessFile.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, (long) segmentRecords * RECORD_SIZE);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        // Records are written at absolute positions, so writes to different records don't interfere
+        private void write(int index, int restaurantId, long timestamp, String user) {
+            byte[] userBytes = (user == null ? "" : user).getBytes(StandardCharsets.UTF_8);
+            int userLength = Math.min(userBytes.length, MAX_USER_LENGTH);
+            int position = index * RECORD_SIZE;
+            buffer.putInt(position, restaurantId);
+            buffer.putLong(position + 4, timestamp);
+            buffer.put(position + 12, (byte) userLength);
+            for (int i = 0; i < userLength; i++) {
+                buffer.put(position + 13 + i, userBytes[i]);
+            }
+            buffer.putInt(position + 44, checksum(position));
+        }
+
+        // Voided record keeps a valid checksum (with the negated restaurant id), so the recovery doesn't take it
+        // for the torn end of the journal
+        private void voidRecord(int index) {
+            int position = index * RECORD_SIZE;
+            buffer.putInt(position, -Math.abs(buffer.getInt(position)));
+            buffer.putInt(position + 44, checksum(position));
+        }
+
+        private int readRestaurantId(int index) {
+            return buffer.getInt(index * RECORD_SIZE);
+        }
+
+        // Unused (zero-filled) and torn records are not valid
+        private boolean isValid(int index) {
+            int position = index * RECORD_SIZE;
+            return buffer.getInt(position) != 0 && buffer.getInt(position + 44) == checksum(position);
+        }
+
+        private int checksum(int position) {
+            CRC32 crc = new CRC32();
+            for (int i = 0; i < RECORD_SIZE - 4; i++) {
+                crc.update(buffer.get(position + i));
+            }
+            return (int) crc.getValue();
+        }
+
+        private void force() {
+            buffer.force();
+        }
+
+        private void delete() {
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                logger.warn("Vote Journal: Failed to delete segment {}.", file.getFileName(), e);
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,330 @@
+package app.service.voting;
+
+import app.dao.RestaurantRepository;
+import app.dao.UserVoteRepository;
+import app.entity.UserVote;
+import app.service.caching.RestaurantCache;
+import app.service.helpers.VotingMode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.core.env.Environment;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Bounded queue of votes accepted in ASYNC voting mode (array-backed ring buffer of voting.queue.capacity votes).
+// The vote is acknowledged as soon as it is queued, voting.queue.writers threads drain the queue by batches
+// of up to voting.queue.batch-size votes: each batch is applied by one JDBC batch of UPDATE statements
+// (one statement per distinct restaurant) together with the votes of the users in one transaction.
+// When the queue is full the vote is rejected at once, so a burst of votes never piles up request threads.
+// The queue is kept in memory only: votes which are not applied yet are lost if the application crashes.
+// Queue depth, drain rate and counts of accepted, applied, rejected and failed votes are exported to JMX.
+@Component
+@ManagedResource(objectName = "app:type=VoteQueue", description = "Queue of votes accepted in ASYNC voting mode")
+public class VoteQueue implements InitializingBean, DisposableBean {
+
+    private final Logger logger = LoggerFactory.getLogger(app.service.voting.VoteQueue.class);
+
+    private static final long POLL_TIMEOUT_MILLIS = 100;
+
+    private final RestaurantRepository restaurantRepository;
+    private final UserVoteRepository userVoteRepository;
+    private final UserVoteIndex userVoteIndex;
+    private final VoteEpochManager voteEpochManager;
+    private final RestaurantCache restaurantCache;
+    private final Leaderboard leaderboard;
+    private final TransactionTemplate transactionTemplate;
+
+    private final boolean enabled;
+    private final int capacity;
+    private final int writers;
+    private final int batchSize;
+    private final long retryAfterSeconds;
+
+    private final BlockingQueue<QueuedVote> queue;
+    // Writers apply their batches under the read lock, discardAll() takes the write lock to wait for them
+    private final ReadWriteLock drainLock = new ReentrantReadWriteLock();
+
+    private final LongAdder acceptedVotes = new LongAdder();
+    private final LongAdder appliedVotes = new LongAdder();
+    private final LongAdder rejectedVotes = new LongAdder();
+    private final LongAdder failedVotes = new LongAdder();
+    private final DrainRate drainRate = new DrainRate();
+
+    private ExecutorService writerExecutor;
+    private volatile boolean running;
+
+    public VoteQueue(RestaurantRepository restaurantRepository,
+                     UserVoteRepository userVoteRepository,
+                     UserVoteIndex userVoteIndex,
+                     VoteEpochManager voteEpochManager,
+                     RestaurantCache restaurantCache,
+                     Leaderboard leaderboard,
+                     PlatformTransactionManager transactionManager,
+                     Environment env) {
+        this.restaurantRepository = restaurantRepository;
+        this.userVoteRepository = userVoteRepository;
+        this.userVoteIndex = userVoteIndex;
+        this.voteEpochManager = voteEpochManager;
+        this.restaurantCache = restaurantCache;
+        this.leaderboard = leaderboard;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.enabled = env.getProperty("voting.mode", VotingMode.class, VotingMode.DIRECT) == VotingMode.ASYNC;
+        this.capacity = env.getProperty("voting.queue.capacity", Integer.class, 10000);
+        this.writers = env.getProperty("voting.queue.writers", Integer.class, 2);
+        this.batchSize = env.getProperty("voting.queue.batch-size", Integer.class, 500);
+        this.retryAfterSeconds = env.getProperty("voting.queue.retry-after-seconds", Long.class, 1L);
+        this.queue = new ArrayBlockingQueue<>(enabled ? capacity : 1);
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        if (!enabled) {
+            return;
+        }
+        running = true;
+        AtomicInteger threadNumber = new AtomicInteger();
+        writerExecutor = Executors.newFixedThreadPool(Math.max(writers, 1), runnable -> {
+            Thread thread = new Thread(runnable, "vote-queue-writer-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        // No writers: votes are applied only by flush()
+        for (int i = 0; i < writers; i++) {
+            writerExecutor.execute(this::drain);
+        }
+        logger.info("Vote Queue: Queue of {} votes has been started with {} writers.", capacity, writers);
+    }
+
+    // Stops accepting votes and applies the queued ones before the application context is closed
+    @Override
+    public void destroy() throws InterruptedException {
+        if (!enabled) {
+            return;
+        }
+        running = false;
+        writerExecutor.shutdown();
+        writerExecutor.awaitTermination(POLL_TIMEOUT_MILLIS * 10, TimeUnit.MILLISECONDS);
+        flush();
+        logger.info("Vote Queue: Queued votes have been applied on shutdown.");
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+
+    // Returns false if the queue is full (or stopped), the vote is not counted then
+    public boolean offer(Integer id, UserVoteIndex.Registration registration) {
+        if (running && queue.offer(new QueuedVote(id, registration))) {
+            acceptedVotes.increment();
+            return true;
+        }
+        rejectedVotes.increment();
+        return false;
+    }
+
+    // Applies all the queued votes in the calling thread and waits for the batches being applied by the writers
+    public void flush() {
+        List<QueuedVote> batch = new ArrayList<>(batchSize);
+        while (queue.drainTo(batch, batchSize) > 0) {
+            applyQuietly(batch);
+            batch.clear();
+        }
+        drainLock.writeLock().lock();
+        drainLock.writeLock().unlock();
+    }
+
+    // Drops the queued votes and waits for the batches being applied by the writers, so that no discarded vote
+    // can be written afterwards (the votes of the users are forgotten by UserVoteIndex.clear())
+    public void discardAll() {
+        drainLock.writeLock().lock();
+        try {
+            queue.clear();
+        } finally {
+            drainLock.writeLock().unlock();
+        }
+    }
+
+    @ManagedAttribute(description = "Number of votes waiting in the queue")
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    @ManagedAttribute(description = "Maximum number of votes waiting in the queue")
+    public int getCapacity() {
+        return capacity;
+    }
+
+    @ManagedAttribute(description = "Votes applied to the database during the last second")
+    public long getDrainRate() {
+        return drainRate.get();
+    }
+
+    @ManagedAttribute(description = "Total number of votes accepted into the queue")
+    public long getAcceptedVotes() {
+        return acceptedVotes.sum();
+    }
+
+    @ManagedAttribute(description = "Total number of votes applied to the database")
+    public long getAppliedVotes() {
+        return appliedVotes.sum();
+    }
+
+    @ManagedAttribute(description = "Total number of votes rejected because the queue was full")
+    public long getRejectedVotes() {
+        return rejectedVotes.sum();
+    }
+
+    @ManagedAttribute(description = "Total number of queued votes which failed to be applied")
+    public long getFailedVotes() {
+        return failedVotes.sum();
+    }
+
+    private void drain() {
+        List<QueuedVote> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                QueuedVote first = queue.poll(POLL_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                applyQuietly(batch);
+                batch.clear();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private void applyQuietly(List<QueuedVote> batch) {
+        drainLock.readLock().lock();
+        try {
+            apply(batch);
+        } catch (RuntimeException e) {
+            // Votes of the batch are not counted, so the users may vote again
+            List<QueuedVote> movedVotes = new ArrayList<>();
+            for (QueuedVote vote : batch) {
+                if (vote.registration != null && !userVoteIndex.rollback(vote.registration)) {
+                    movedVotes.add(vote);
+                }
+            }
+            failedVotes.add(batch.size() - movedVotes.size());
+            logger.error("Vote Queue: Failed to apply a batch of {} votes.", batch.size(), e);
+            // Users have moved these votes to other restaurants meanwhile, which takes them away from the voted
+            // restaurants (see RestaurantVotingService), so they must be counted anyway
+            if (!movedVotes.isEmpty()) {
+                try {
+                    apply(movedVotes);
+                } catch (RuntimeException retryException) {
+                    failedVotes.add(movedVotes.size());
+                    logger.error("Vote Queue: Failed to apply {} votes moved by their users.", movedVotes.size(), retryException);
+                }
+            }
+        } finally {
+            drainLock.readLock().unlock();
+        }
+    }
+
+    private void apply(List<QueuedVote> batch) {
+        Map<Integer, Integer> votesByRestaurantId = new LinkedHashMap<>();
+        batch.forEach(vote -> votesByRestaurantId.merge(vote.restaurantId, 1, Integer::sum));
+        int[] updatedRows = transactionTemplate.execute(status -> {
+            int[] rows = restaurantRepository.addVotesInBatch(votesByRestaurantId, voteEpochManager.getCurrentEpoch());
+            int j = 0;
+            for (Map.Entry<Integer, Integer> votes : votesByRestaurantId.entrySet()) {
+                if (rows[j++] != 0) {
+                    restaurantCache.addVotesOf(votes.getKey(), votes.getValue());
+                }
+            }
+            // Newer vote of the user who has voted again since the vote was queued is saved by that vote
+            List<UserVote> userVotes = new ArrayList<>();
+            for (QueuedVote vote : batch) {
+                if (vote.registration != null && userVoteIndex.isCurrent(vote.registration)) {
+                    userVotes.add(vote.registration.toUserVote());
+                }
+            }
+            if (!userVotes.isEmpty()) {
+                userVoteRepository.saveInBatch(userVotes);
+            }
+            return rows;
+        });
+        int i = 0;
+        int applied = 0;
+        for (Map.Entry<Integer, Integer> votes : votesByRestaurantId.entrySet()) {
+            // The restaurant may have been removed after the vote was queued
+            if (updatedRows != null && updatedRows[i++] != 0) {
+                leaderboard.addVotes(votes.getKey(), votes.getValue());
+                applied += votes.getValue();
+            }
+        }
+        appliedVotes.add(applied);
+        failedVotes.add(batch.size() - applied);
+        drainRate.add(applied);
+    }
+
+    private static final class QueuedVote {
+
+        private final Integer restaurantId;
+        // Null if the vote is not limited per user
+        private final UserVoteIndex.Registration registration;
+
+        private QueuedVote(Integer restaurantId, UserVoteIndex.Registration registration) {
+            this.restaurantId = restaurantId;
+            this.registration = registration;
+        }
+
+    }
+
+    // Number of votes applied during the last complete second
+    private static final class DrainRate {
+
+        private long currentSecond;
+        private long currentVotes;
+        private long lastSecondVotes;
+
+        private synchronized void add(long votes) {
+            roll(System.currentTimeMillis() / 1000);
+            currentVotes += votes;
+        }
+
+        private synchronized long get() {
+            roll(System.currentTimeMillis() / 1000);
+            return lastSecondVotes;
+        }
+
+        private void roll(long second) {
+            if (second != currentSecond) {
+                lastSecondVotes = second == currentSecond + 1 ? currentVotes : 0;
+                currentSecond = second;
+                currentVotes = 0;
+            }
+        }
+
+    }
+
+}
@@ -2,15 +2,20 @@
 #
 # CREATE SCHEMA `project` DEFAULT CHARACTER SET utf8 ;
 
+DROP TABLE IF EXISTS `project`.`vote_journal_checkpoint`;
+DROP TABLE IF EXISTS `project`.`user_vote`;
+DROP TABLE IF EXISTS `project`.`vote_epoch`;
 DROP TABLE IF EXISTS `project`.`meal`;
 DROP TABLE IF EXISTS `project`.`restaurant`;
 
 CREATE TABLE `project`.`restaurant`
 (
-    `id`    INT          NOT NULL AUTO_INCREMENT,
-    `name`  VARCHAR(255) NOT NULL,
-    `votes` INT          NOT NULL,
+    `id`         INT          NOT NULL AUTO_INCREMENT,
+    `name`       VARCHAR(255) NOT NULL,
+    `votes`      INT          NOT NULL,
+    `vote_epoch` INT          NOT NULL DEFAULT 0,
     CONSTRAINT `unique_name` UNIQUE (`name`),
+    INDEX `vote_epoch_index` (`vote_epoch`),
     PRIMARY KEY (`id`)
 );
 
@@ -26,6 +31,44 @@ CREATE TABLE `project`.`meal`
     FOREIGN KEY (`restaurant`) REFERENCES `project`.`restaurant` (`id`)
 );
 
+-- Blocks of ids of the entities are allocated from the row of the entity (see PooledIdGenerator),
+-- the table is kept because a running application holds the rest of its blocks in memory
+CREATE TABLE IF NOT EXISTS `project`.`id_generator`
+(
+    `sequence_name` VARCHAR(255) NOT NULL,
+    `next_val`      BIGINT       NOT NULL,
+    PRIMARY KEY (`sequence_name`)
+);
+
+CREATE TABLE `project`.`vote_journal_checkpoint`
+(
+    `id`               INT         NOT NULL,
+    `journal_id`       VARCHAR(36) NULL,
+    `applied_sequence` BIGINT      NOT NULL,
+    PRIMARY KEY (`id`)
+);
+
+CREATE TABLE `project`.`user_vote`
+(
+    `username`   VARCHAR(255) NOT NULL,
+    `restaurant` INT          NOT NULL,
+    `vote_date`  DATE         NOT NULL,
+    PRIMARY KEY (`username`)
+);
+
+CREATE TABLE `project`.`vote_epoch`
+(
+    `id`    INT NOT NULL,
+    `epoch` INT NOT NULL,
+    PRIMARY KEY (`id`)
+);
+
+INSERT INTO `project`.`vote_epoch` (`id`, `epoch`)
+VALUES ('1', '0');
+
+INSERT INTO `project`.`vote_journal_checkpoint` (`id`, `applied_sequence`)
+VALUES ('1', '-1');
+
 INSERT INTO `project`.`restaurant` (`name`, `votes`)
 VALUES ('Marcellis', '3');
 INSERT INTO `project`.`restaurant` (`name`, `votes`)
@@ -52,3 +95,13 @@ INSERT INTO `project`.`meal` (`name`, `category`, `price`, `restaurant`)
 VALUES ('Chocolate', 'desert', '200', '2');
 INSERT INTO `project`.`meal` (`name`, `category`, `price`, `restaurant`)
 VALUES ('Tea', 'drink', '250', '2');
+
+-- Ids allocated by the application follow the ids of the rows inserted above, they are never moved back
+INSERT IGNORE INTO `project`.`id_generator` (`sequence_name`, `next_val`)
+VALUES ('restaurant', 1), ('meal', 1);
+UPDATE `project`.`id_generator`
+SET `next_val` = GREATEST(`next_val`, (SELECT COALESCE(MAX(`id`), 0) + 1 FROM `project`.`restaurant`))
+WHERE `sequence_name` = 'restaurant';
+UPDATE `project`.`id_generator`
+SET `next_val` = GREATEST(`next_val`, (SELECT COALESCE(MAX(`id`), 0) + 1 FROM `project`.`meal`))
+WHERE `sequence_name` = 'meal';
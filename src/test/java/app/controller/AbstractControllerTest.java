@@ -1,15 +1,25 @@
 package app.controller;
 
+import app.service.voting.Leaderboard;
+import app.service.voting.UserVoteIndex;
+import app.service.voting.VoteEpochManager;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import org.hibernate.Cache;
 import org.junit.jupiter.api.BeforeEach;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.web.context.AbstractSecurityWebApplicationInitializer;
 import org.springframework.test.context.jdbc.Sql;
 import org.springframework.test.context.junit.jupiter.web.SpringJUnitWebConfig;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 import org.springframework.web.context.WebApplicationContext;
 
-@SpringJUnitWebConfig(classes = {app.config.DbConfig.class, app.config.WebConfig.class})
+import javax.persistence.EntityManagerFactory;
+import javax.servlet.Filter;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+@SpringJUnitWebConfig(classes = {app.config.DbConfig.class, app.config.WebConfig.class, app.config.SecurityConfig.class})
 @Sql(scripts = "/mysql_test_data_script.sql")
 public abstract class AbstractControllerTest {
 
@@ -17,11 +27,35 @@ public abstract class AbstractControllerTest {
     protected WebApplicationContext wac;
     protected MockMvc mockMvc;
 
+    @Autowired
+    private Leaderboard leaderboard;
+
+    @Autowired
+    private UserVoteIndex userVoteIndex;
+
+    @Autowired
+    private VoteEpochManager voteEpochManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
     protected ObjectMapper objectMapper = new ObjectMapper();
 
     @BeforeEach
     public void setup() throws Exception {
-        this.mockMvc = MockMvcBuilders.webAppContextSetup(this.wac).build();
+        // Requests go through the filter chain of SecurityConfig, as WebRunner registers it
+        Filter securityFilter = wac.getBean(AbstractSecurityWebApplicationInitializer.DEFAULT_FILTER_NAME, Filter.class);
+        this.mockMvc = MockMvcBuilders.webAppContextSetup(this.wac).addFilters(securityFilter).build();
+        // Test data script is executed before each test, so the second-level cache must be cleared
+        // and the voting epoch, the ranking and the votes of the users must be reloaded as well
+        entityManagerFactory.getCache().unwrap(Cache.class).evictAllRegions();
+        voteEpochManager.reload();
+        leaderboard.rebuild();
+        userVoteIndex.reload();
+    }
+
+    protected static String httpBasic(String username, String password) {
+        return "Basic " + Base64.getEncoder().encodeToString((username + ":" + password).getBytes(StandardCharsets.UTF_8));
     }
 
 }
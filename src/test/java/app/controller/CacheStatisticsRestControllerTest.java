@@ -0,0 +1,28 @@
+package app.controller;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.context.ContextConfiguration;
+
+import static org.hamcrest.Matchers.hasItem;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@ContextConfiguration(classes = app.config.CacheConfig.class)
+class CacheStatisticsRestControllerTest extends AbstractControllerTest {
+
+    // REST API Endpoints to test:
+    //    /caches/statistics                          - get statistics of all caches
+
+    @Test
+    void getCacheStatistics() throws Exception {
+        mockMvc.perform(get("/restaurants/1"));
+        mockMvc.perform(get("/restaurants/1"));
+        mockMvc.perform(get("/caches/statistics"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Cache-Control", "no-store"))
+                .andExpect(jsonPath("$[*].name").value(hasItem("restaurantDetailsCache")))
+                .andExpect(jsonPath("$[?(@.name == 'restaurantDetailsCache')].hitCount").value(hasItem(1)))
+                .andExpect(jsonPath("$[?(@.name == 'restaurantDetailsCache')].removals.SIZE").value(hasItem(0)));
+    }
+
+}
@@ -25,7 +25,11 @@ import static app.testdata.TestData.testRestaurant1;
 import static app.testdata.TestData.testRestaurant2;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.not;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 class RestaurantRestControllerGetTest extends AbstractControllerTest{
@@ -91,11 +95,60 @@ class RestaurantRestControllerGetTest extends AbstractControllerTest{
 //
 //    }
 
+    @Test
+    public void getAllRestaurants_withCursor_sortedById_Ascending() throws Exception {
+        MvcResult firstPage = this.mockMvc.perform(get("/restaurants?after=&pageSize=1&sort=id&sdir=asc"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id").value(1))
+                .andExpect(header().string("Link", containsString("rel=\"next\"")))
+                .andReturn();
+        String link = firstPage.getResponse().getHeader("Link");
+        String nextPage = link.substring(link.indexOf('<') + 1, link.indexOf('>'));
+        this.mockMvc.perform(get(nextPage))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id").value(2));
+    }
+
+    @Test
+    public void getAllRestaurants_withInvalidCursor() throws Exception {
+        this.mockMvc.perform(get("/restaurants?after=xyz"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.errors[0]").value("Invalid page cursor: xyz"));
+    }
+
+    @Test
+    public void exportAllRestaurants_asNdjson() throws Exception {
+        MvcResult result = this.mockMvc.perform(get("/restaurants/export"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        String body = this.mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Type", containsString("application/x-ndjson")))
+                .andReturn().getResponse().getContentAsString();
+        assertThat(body.split("\n")).containsExactly(
+                "{\"id\":1,\"name\":\"Marcellis\",\"votes\":3}",
+                "{\"id\":2,\"name\":\"Phalli Khinkali\",\"votes\":9}");
+    }
+
+    @Test
+    public void exportAllRestaurants_asJsonArray_withDetailedListView() throws Exception {
+        MvcResult result = this.mockMvc.perform(get("/restaurants/export?view=detailed&format=json"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        this.mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].id").value(1))
+                .andExpect(jsonPath("$[0].meals.length()").value(5))
+                .andExpect(jsonPath("$[1].meals[0].name").value("Georgian Salad"));
+    }
+
     @Test
     public void getRestaurantById() throws Exception {
         this.mockMvc.perform(get("/restaurants/{id}", 1))
                 .andExpect(status().isOk())
-                .andExpect(header().string("Cache-Control", "no-store"))
+                .andExpect(header().string("Cache-Control", "max-age=0, stale-while-revalidate=30"))
+                .andExpect(header().exists("ETag"))
                 .andExpect(content().contentType("application/json;charset=UTF-8"))
                 .andExpect(content().json(objectMapper.writeValueAsString(testRestaurant1)));
     }
@@ -119,11 +172,56 @@ class RestaurantRestControllerGetTest extends AbstractControllerTest{
                 .andExpect(jsonPath("$.errors[0]").value("Entity id must be a positive number."));
     }
 
+    @Test
+    public void getRestaurantById_withCurrentETag_isNotModified() throws Exception {
+        String eTag = this.mockMvc.perform(get("/restaurants/{id}", 1))
+                .andReturn().getResponse().getHeader("ETag");
+        this.mockMvc.perform(get("/restaurants/{id}", 1).header("If-None-Match", eTag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string("ETag", eTag))
+                .andExpect(content().string(""));
+    }
+
+    @Test
+    public void getRestaurantById_withOutdatedETag_isReturned() throws Exception {
+        String eTag = this.mockMvc.perform(get("/restaurants/{id}", 1))
+                .andReturn().getResponse().getHeader("ETag");
+        this.mockMvc.perform(put("/v-service/restaurants/{id}", 1))
+                .andExpect(status().isOk());
+        this.mockMvc.perform(get("/restaurants/{id}", 1).header("If-None-Match", eTag))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", not(eTag)))
+                .andExpect(jsonPath("$.votes").value(testRestaurant1.getVotes() + 1));
+    }
+
+    @Test
+    public void getAllRestaurants_withCurrentETag_isNotModified() throws Exception {
+        String eTag = this.mockMvc.perform(get("/restaurants"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader("ETag");
+        this.mockMvc.perform(get("/restaurants").header("If-None-Match", eTag))
+                .andExpect(status().isNotModified());
+        this.mockMvc.perform(put("/v-service/restaurants/{id}", 2));
+        this.mockMvc.perform(get("/restaurants").header("If-None-Match", eTag))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    public void getMealById_withCurrentETag_isNotModified() throws Exception {
+        // The tag of the meal is known after the first response
+        this.mockMvc.perform(get("/restaurants/meals/{id}", 1));
+        String eTag = this.mockMvc.perform(get("/restaurants/meals/{id}", 1))
+                .andExpect(header().exists("ETag"))
+                .andReturn().getResponse().getHeader("ETag");
+        this.mockMvc.perform(get("/restaurants/meals/{id}", 1).header("If-None-Match", eTag))
+                .andExpect(status().isNotModified());
+    }
+
     @Test
     public void getMealById() throws Exception {
         this.mockMvc.perform(get("/restaurants/meals/{id}", 1))
                 .andExpect(status().isOk())
-                .andExpect(header().string("Cache-Control", "no-store"))
+                .andExpect(header().string("Cache-Control", "max-age=0, stale-while-revalidate=30"))
                 .andExpect(content().contentType("application/json;charset=UTF-8"))
                 .andExpect(content().json(objectMapper.writeValueAsString(testRestaurant1.getMeals().get(0))));
     }
@@ -0,0 +1,50 @@
+package app.controller;
+
+import org.junit.jupiter.api.Test;
+
+import static org.hamcrest.Matchers.contains;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+class RestaurantRestControllerImportTest extends AbstractControllerTest {
+
+    // REST API Endpoints to test:
+    //    /restaurants/bulk                       	  - import restaurants from NDJSON stream
+
+    @Test
+    public void importRestaurants() throws Exception {
+        String body = "{\"name\":\"Burger King\",\"meals\":[{\"name\":\"Whopper\",\"category\":\"MAIN\",\"price\":300}]}\n" +
+                "{\"name\":\"Marcellis\"}\n" +
+                "{\"name\":\"KFC\",\"meals\":[{\"name\":\"Wings\",\"category\":\"PIZZA\",\"price\":200}]}\n" +
+                "\n" +
+                "{\"name\":\"Subway\",\"meals\":[]}\n";
+
+        this.mockMvc.perform(post("/restaurants/bulk").contentType("application/x-ndjson").content(body))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/json; charset=UTF-8"))
+                .andExpect(jsonPath("$.imported").value(2))
+                .andExpect(jsonPath("$.failed").value(2))
+                .andExpect(jsonPath("$.errors[0].line").value(2))
+                .andExpect(jsonPath("$.errors[0].errors[0]").value("Restaurant with name=Marcellis already exists."))
+                .andExpect(jsonPath("$.errors[1].line").value(3));
+
+        this.mockMvc.perform(get("/restaurants").param("sort", "name").param("sdir", "asc"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[*].name").value(contains("Burger King", "Marcellis", "Phalli Khinkali", "Subway")));
+    }
+
+    @Test
+    public void importRestaurants_withMalformedJson_skipsTheRestOfStream() throws Exception {
+        String body = "{\"name\":\"Burger King\"}\n" +
+                "{\"name\": ]\n" +
+                "{\"name\":\"KFC\"}\n";
+
+        this.mockMvc.perform(post("/restaurants/bulk").contentType("application/x-ndjson").content(body))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.imported").value(1))
+                .andExpect(jsonPath("$.failed").value(1))
+                .andExpect(jsonPath("$.errors[0].line").value(2));
+    }
+
+}
@@ -0,0 +1,78 @@
+package app.controller;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+class RestaurantVotingRestControllerTest extends AbstractControllerTest {
+
+    // REST API Endpoints to test:
+    //    /v-service/restaurants/{id}             	  - vote for restaurant by id
+    //    /v-service/votes                        	  - vote in batch
+
+    @Test
+    public void voteForRestaurantById_movesVoteOfUser() throws Exception {
+        this.mockMvc.perform(put("/v-service/restaurants/1").header(HttpHeaders.AUTHORIZATION, httpBasic("user", "user")))
+                .andExpect(status().isOk());
+        this.mockMvc.perform(put("/v-service/restaurants/2").header(HttpHeaders.AUTHORIZATION, httpBasic("user", "user")))
+                .andExpect(status().isOk());
+
+        // Second vote of the day is moved from restaurant 1 (3 votes) to restaurant 2 (9 votes)
+        this.mockMvc.perform(get("/restaurants/1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.votes").value(3));
+        this.mockMvc.perform(get("/restaurants/2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.votes").value(10));
+    }
+
+    @Test
+    public void voteForRestaurantById_twiceForSameRestaurant() throws Exception {
+        this.mockMvc.perform(put("/v-service/restaurants/1").header(HttpHeaders.AUTHORIZATION, httpBasic("user", "user")))
+                .andExpect(status().isOk());
+        this.mockMvc.perform(put("/v-service/restaurants/1").header(HttpHeaders.AUTHORIZATION, httpBasic("user", "user")))
+                .andExpect(status().isConflict());
+
+        this.mockMvc.perform(get("/restaurants/1"))
+                .andExpect(jsonPath("$.votes").value(4));
+    }
+
+    @Test
+    public void voteForRestaurantById_anonymously() throws Exception {
+        this.mockMvc.perform(put("/v-service/restaurants/1"))
+                .andExpect(status().isOk());
+        this.mockMvc.perform(put("/v-service/restaurants/1"))
+                .andExpect(status().isOk());
+
+        // Anonymous votes are not limited
+        this.mockMvc.perform(get("/restaurants/1"))
+                .andExpect(jsonPath("$.votes").value(5));
+    }
+
+    @Test
+    public void voteInBatch_anonymously() throws Exception {
+        this.mockMvc.perform(post("/v-service/votes")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("[{\"restaurantId\":1,\"count\":2}]"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].status").value("ACCEPTED"));
+
+        this.mockMvc.perform(get("/restaurants/1"))
+                .andExpect(jsonPath("$.votes").value(5));
+    }
+
+    @Test
+    public void voteForRestaurantById_withWrongCredentials() throws Exception {
+        this.mockMvc.perform(put("/v-service/restaurants/1").header(HttpHeaders.AUTHORIZATION, httpBasic("user", "wrong")))
+                .andExpect(status().isUnauthorized());
+
+        this.mockMvc.perform(get("/restaurants/1"))
+                .andExpect(jsonPath("$.votes").value(3));
+    }
+
+}
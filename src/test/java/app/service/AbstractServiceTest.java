@@ -1,18 +1,43 @@
 package app.service;
 
+import app.service.voting.Leaderboard;
+import app.service.voting.UserVoteIndex;
+import app.service.voting.VoteEpochManager;
+import org.hibernate.Cache;
 import org.junit.jupiter.api.BeforeEach;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.test.context.jdbc.Sql;
 import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
 
+import javax.persistence.EntityManagerFactory;
+
 import static app.testdata.TestData.initializeTestData;
 
 @SpringJUnitConfig(app.config.DbConfig.class)
 @Sql(scripts = "/mysql_test_data_script.sql")
 public abstract class AbstractServiceTest {
 
+    @Autowired
+    private Leaderboard leaderboard;
+
+    @Autowired
+    private UserVoteIndex userVoteIndex;
+
+    @Autowired
+    private VoteEpochManager voteEpochManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
     @BeforeEach
     public void refreshTestData() {
         initializeTestData();
+        // Test data script is executed before each test, so the second-level cache must be cleared
+        // and the voting epoch, the ranking and the votes of the users must be reloaded as well
+        entityManagerFactory.getCache().unwrap(Cache.class).evictAllRegions();
+        voteEpochManager.reload();
+        leaderboard.rebuild();
+        userVoteIndex.reload();
     }
 
 }
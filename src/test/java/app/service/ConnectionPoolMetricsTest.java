@@ -0,0 +1,49 @@
+package app.service;
+
+import app.dao.ConnectionPoolMetrics;
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import javax.management.ObjectName;
+import javax.sql.DataSource;
+import java.lang.management.ManagementFactory;
+import java.sql.Connection;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ConnectionPoolMetricsTest extends AbstractServiceTest {
+
+    @Autowired
+    private RestaurantService restaurantService;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private ConnectionPoolMetrics connectionPoolMetrics;
+
+    @Test
+    public void dataSource_isPooled() throws Exception {
+        assertThat(dataSource).isInstanceOf(HikariDataSource.class);
+        long created = connectionPoolMetrics.getCreatedConnections();
+        restaurantService.getRestaurantById(1);
+        restaurantService.getRestaurantById(2);
+        // Connections are reused, so reads don't open new ones
+        assertThat(connectionPoolMetrics.getCreatedConnections()).isEqualTo(created);
+    }
+
+    @Test
+    public void connectionPoolMetrics_recordAcquisitions() throws Exception {
+        long acquisitions = connectionPoolMetrics.getAcquisitionCount();
+        try (Connection connection = dataSource.getConnection()) {
+            assertThat(connection.isValid(1)).isTrue();
+            assertThat(connectionPoolMetrics.getAcquisitionCount()).isEqualTo(acquisitions + 1);
+        }
+        assertThat(connectionPoolMetrics.getTotalConnections()).isPositive();
+        assertThat(connectionPoolMetrics.getTimeoutCount()).isZero();
+        ObjectName name = new ObjectName("app:type=ConnectionPool");
+        assertThat(ManagementFactory.getPlatformMBeanServer().getAttribute(name, "AcquisitionCount")).isInstanceOf(Long.class);
+    }
+
+}
@@ -0,0 +1,72 @@
+package app.service;
+
+import app.entity.Meal;
+import app.entity.MealCategory;
+import app.entity.Restaurant;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.TestPropertySource;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Ids are allocated in blocks of 50 and the inserts are sent in JDBC batches of 50,
+// so a restaurant with 200 meals takes a few statements instead of one per meal
+@TestPropertySource(properties = {
+        "hibernate.generate_statistics=true",
+        "hibernate.jdbc.batch-size=50",
+        "hibernate.id-generator.block-size=50"})
+public class RestaurantServiceBatchInsertTest extends AbstractServiceTest {
+
+    private static final int NUMBER_OF_MEALS = 200;
+
+    @Autowired
+    private RestaurantService restaurantService;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    public void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @Test
+    public void createRestaurant_withManyMeals_isBatched() {
+        Restaurant restaurant = new Restaurant("Burger King", 0, new ArrayList<>());
+        for (int i = 0; i < NUMBER_OF_MEALS; i++) {
+            restaurant.addMeal(new Meal("Burger " + i, MealCategory.SALAD, 100 + i));
+        }
+
+        long statements = statistics.getPrepareStatementCount();
+        Integer restaurantId = restaurantService.createRestaurant(restaurant);
+        // 5 batches of inserts and at most 2 statements for each of 5 blocks of ids
+        assertThat(statistics.getPrepareStatementCount() - statements).isLessThanOrEqualTo(15);
+
+        Restaurant realRestaurant = restaurantService.getRestaurantById(restaurantId);
+        assertThat(realRestaurant.getMeals()).hasSize(NUMBER_OF_MEALS);
+        assertThat(realRestaurant.getMeals()).extracting(Meal::getId).doesNotHaveDuplicates();
+    }
+
+    @Test
+    public void createRestaurant_afterTestDataIsReloaded_allocatesNewIds() {
+        // Blocks of ids held in memory survive the test data script, which must not hand them out again
+        for (int i = 0; i < 3; i++) {
+            Restaurant restaurant = new Restaurant("Burger King " + i, 0, new ArrayList<>());
+            for (int j = 0; j < NUMBER_OF_MEALS; j++) {
+                restaurant.addMeal(new Meal("Burger " + j, MealCategory.SALAD, 100));
+            }
+            Integer restaurantId = restaurantService.createRestaurant(restaurant);
+            assertThat(restaurantId).isGreaterThan(2);
+        }
+        assertThat(restaurantService.getAllRestaurants(RestaurantService.ListView.SHORT)).hasSize(5);
+    }
+
+}
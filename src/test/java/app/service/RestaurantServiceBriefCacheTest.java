@@ -0,0 +1,84 @@
+package app.service;
+
+import app.entity.Restaurant;
+import app.service.caching.CacheMetrics;
+import app.service.caching.CacheMetricsRegistry;
+import app.service.caching.RestaurantCache;
+import app.service.helpers.RestaurantCursorPage;
+import app.service.helpers.RestaurantSorter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.test.context.ContextConfiguration;
+
+import java.util.List;
+
+import static app.service.RestaurantService.*;
+import static org.assertj.core.api.Assertions.assertThat;
+
+@ContextConfiguration(classes = app.config.CacheConfig.class)
+public class RestaurantServiceBriefCacheTest extends AbstractServiceTest {
+
+    @Autowired
+    private RestaurantService restaurantService;
+
+    @Autowired
+    private RestaurantVotingService restaurantVotingService;
+
+    @Autowired
+    private RestaurantCache restaurantCache;
+
+    @Autowired
+    private CacheMetricsRegistry cacheMetricsRegistry;
+
+    private final Pageable pageable = PageRequest.of(
+            DEFAULT_CURRENT_PAGE, DEFAULT_PAGE_SIZE,
+            Sort.by(Sort.Direction.ASC, RestaurantSorter.ID.getFieldName()));
+
+    @BeforeEach
+    public void clearCache() {
+        restaurantCache.clear();
+    }
+
+    @Test
+    public void getAllRestaurants_withShortListView_isServedFromBriefs() {
+        restaurantService.getAllRestaurants(ListView.SHORT, pageable);
+        assertThat(restaurantCache.getBrief(1).getName()).isEqualTo("Marcellis");
+        assertThat(restaurantCache.getRestaurant(1)).isNull();
+        CacheMetrics metrics = cacheMetricsRegistry.get(RestaurantCache.BRIEFS_CACHE);
+        long hits = metrics.getHitCount();
+        List<Restaurant> restaurants = restaurantService.getAllRestaurants(ListView.SHORT, pageable);
+        assertThat(restaurants).extracting(Restaurant::getId).containsExactly(1, 2);
+        assertThat(restaurants).extracting(Restaurant::getMeals).containsOnlyNulls();
+        assertThat(metrics.getHitCount()).isEqualTo(hits + 2);
+    }
+
+    @Test
+    public void getAllRestaurants_withShortListView_isReloadedAfterVote() {
+        restaurantService.getAllRestaurants(ListView.SHORT, pageable);
+        restaurantVotingService.voteForRestaurantById(1);
+        assertThat(restaurantCache.getBrief(1)).isNull();
+        List<Restaurant> restaurants = restaurantService.getAllRestaurants(ListView.SHORT, pageable);
+        assertThat(restaurants).extracting(Restaurant::getVotes).containsExactly(4, 9);
+    }
+
+    @Test
+    public void getAllRestaurants_withShortListView_keepsBriefsAfterMenuChange() {
+        restaurantService.getAllRestaurants(ListView.SHORT, pageable);
+        restaurantService.deleteAllMealsForRestaurantWithId(1);
+        assertThat(restaurantCache.getBrief(1)).isNotNull();
+    }
+
+    @Test
+    public void getAllRestaurantsAfter_withShortListView_cachesBriefs() {
+        RestaurantCursorPage firstPage = restaurantService.getAllRestaurantsAfter(ListView.SHORT, RestaurantSorter.NAME, Sort.Direction.ASC, null, 1);
+        assertThat(firstPage.getRestaurants()).extracting(Restaurant::getName).containsExactly("Marcellis");
+        RestaurantCursorPage secondPage = restaurantService.getAllRestaurantsAfter(ListView.SHORT, null, null, firstPage.getNext(), 1);
+        assertThat(secondPage.getRestaurants()).extracting(Restaurant::getId).containsExactly(2);
+        assertThat(restaurantCache.getBrief(2).getVotes()).isEqualTo(9);
+    }
+
+}
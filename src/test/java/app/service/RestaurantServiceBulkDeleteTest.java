@@ -0,0 +1,140 @@
+package app.service;
+
+import app.dao.UserVoteRepository;
+import app.entity.Meal;
+import app.entity.MealCategory;
+import app.entity.Restaurant;
+import app.service.exceptions.DuplicateVoteException;
+import app.service.exceptions.EntityNotFoundException;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.TestPropertySource;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+
+import static app.service.RestaurantService.ListView;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+// Meals and restaurants are deleted by set-based statements: their number doesn't depend on the number of rows,
+// no entity is loaded, the cached restaurants are evicted and the votes of the users given to removed restaurants are forgotten
+@TestPropertySource(properties = "hibernate.generate_statistics=true")
+public class RestaurantServiceBulkDeleteTest extends AbstractServiceTest {
+
+    private static final int NUMBER_OF_MEALS = 100;
+
+    @Autowired
+    private RestaurantService restaurantService;
+
+    @Autowired
+    private RestaurantVotingService restaurantVotingService;
+
+    @Autowired
+    private UserVoteRepository userVoteRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    public void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @Test
+    public void deleteAllMeals_isOneStatement() {
+        Integer id = createRestaurantWithManyMeals();
+        // Restaurants are cached with their meals before the delete
+        assertThat(restaurantService.getRestaurantById(id).getMeals()).hasSize(NUMBER_OF_MEALS);
+
+        long statements = statistics.getPrepareStatementCount();
+        long loads = statistics.getEntityLoadCount();
+        restaurantService.deleteAllMeals();
+        assertThat(statistics.getPrepareStatementCount() - statements).isEqualTo(1);
+        assertThat(statistics.getEntityLoadCount() - loads).isZero();
+
+        assertThat(restaurantService.getRestaurantById(id).getMeals()).isEmpty();
+        assertThat(restaurantService.getAllRestaurants(ListView.DETAILED))
+                .allSatisfy(restaurant -> assertThat(restaurant.getMeals()).isEmpty());
+    }
+
+    @Test
+    public void deleteAllMealsForRestaurantWithId_isTwoStatements() {
+        Integer id = createRestaurantWithManyMeals();
+        assertThat(restaurantService.getRestaurantById(id).getMeals()).hasSize(NUMBER_OF_MEALS);
+
+        long statements = statistics.getPrepareStatementCount();
+        long loads = statistics.getEntityLoadCount();
+        restaurantService.deleteAllMealsForRestaurantWithId(id);
+        // Check of the restaurant and delete of its meals
+        assertThat(statistics.getPrepareStatementCount() - statements).isEqualTo(2);
+        assertThat(statistics.getEntityLoadCount() - loads).isZero();
+
+        assertThat(restaurantService.getRestaurantById(id).getMeals()).isEmpty();
+        assertThat(restaurantService.getRestaurantById(1).getMeals()).hasSize(5);
+    }
+
+    @Test
+    public void deleteAllMealsForRestaurantWithId_withNonExistingRestaurantId() {
+        Integer id = -1;
+        assertThatThrownBy(() -> restaurantService.deleteAllMealsForRestaurantWithId(id))
+                .isInstanceOf(EntityNotFoundException.class)
+                .hasMessage("Restaurant with id=" + id + " not found.");
+    }
+
+    @Test
+    public void deleteAllRestaurants_isThreeStatements() {
+        Integer id = createRestaurantWithManyMeals();
+        assertThat(restaurantService.getRestaurantById(id).getMeals()).hasSize(NUMBER_OF_MEALS);
+
+        long statements = statistics.getPrepareStatementCount();
+        long loads = statistics.getEntityLoadCount();
+        restaurantService.deleteAllRestaurants();
+        // Meals first, as they reference the restaurants, and the votes of the users
+        assertThat(statistics.getPrepareStatementCount() - statements).isEqualTo(3);
+        assertThat(statistics.getEntityLoadCount() - loads).isZero();
+
+        assertThat(restaurantService.getAllRestaurants(ListView.DETAILED)).isEmpty();
+        assertThatThrownBy(() -> restaurantService.getRestaurantById(id))
+                .isInstanceOf(EntityNotFoundException.class);
+    }
+
+    @Test
+    public void deleteAllRestaurants_forgetsVotesOfUsers() {
+        SecurityContextHolder.getContext().setAuthentication(new TestingAuthenticationToken("user", "user", "ROLE_USER"));
+        try {
+            restaurantVotingService.voteForRestaurantById(1);
+            assertThat(userVoteRepository.count()).isEqualTo(1);
+
+            restaurantService.deleteAllRestaurants();
+            assertThat(userVoteRepository.count()).isZero();
+
+            // The vote for the new restaurant is a new one, not the vote for the removed restaurant moved to it
+            Integer id = restaurantService.createRestaurant(new Restaurant("Burger King", 0, new ArrayList<>()));
+            restaurantVotingService.voteForRestaurantById(id);
+            assertThat(restaurantService.getRestaurantById(id).getVotes()).isEqualTo(1);
+            assertThat(userVoteRepository.findById("user").get().getRestaurantId()).isEqualTo(id);
+            assertThatThrownBy(() -> restaurantVotingService.voteForRestaurantById(id))
+                    .isInstanceOf(DuplicateVoteException.class);
+        }
+        finally {
+            SecurityContextHolder.clearContext();
+        }
+    }
+
+    private Integer createRestaurantWithManyMeals() {
+        Restaurant restaurant = new Restaurant("Burger King", 0, new ArrayList<>());
+        for (int i = 0; i < NUMBER_OF_MEALS; i++) {
+            restaurant.addMeal(new Meal("Burger " + i, MealCategory.MAIN, 100 + i));
+        }
+        return restaurantService.createRestaurant(restaurant);
+    }
+
+}
@@ -0,0 +1,108 @@
+package app.service;
+
+import app.entity.Meal;
+import app.entity.MealCategory;
+import app.entity.Restaurant;
+import app.service.caching.CacheMetrics;
+import app.service.caching.CacheMetricsRegistry;
+import app.service.caching.RestaurantCache;
+import app.service.exceptions.EntityNotFoundException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.ContextConfiguration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@ContextConfiguration(classes = app.config.CacheConfig.class)
+public class RestaurantServiceDetailsCacheTest extends AbstractServiceTest {
+
+    @Autowired
+    private RestaurantService restaurantService;
+
+    @Autowired
+    private RestaurantVotingService restaurantVotingService;
+
+    @Autowired
+    private RestaurantCache restaurantCache;
+
+    @Autowired
+    private CacheMetricsRegistry cacheMetricsRegistry;
+
+    @BeforeEach
+    public void clearCache() {
+        restaurantCache.clear();
+    }
+
+    @Test
+    public void getRestaurantById_isServedFromCache() {
+        Restaurant first = restaurantService.getRestaurantById(1);
+        assertThat(restaurantService.getRestaurantById(1)).isSameAs(first);
+    }
+
+    @Test
+    public void getRestaurantById_recordsStatistics() {
+        // Statistics are accumulated by all tests of the application context
+        CacheMetrics metrics = cacheMetricsRegistry.get(RestaurantCache.RESTAURANT_DETAILS_CACHE);
+        long hits = metrics.getHitCount();
+        long misses = metrics.getMissCount();
+        long loads = metrics.getLoadSuccessCount();
+        restaurantService.getRestaurantById(1);
+        restaurantService.getRestaurantById(1);
+        assertThat(metrics.getHitCount()).isEqualTo(hits + 1);
+        assertThat(metrics.getMissCount()).isEqualTo(misses + 1);
+        assertThat(metrics.getLoadSuccessCount()).isEqualTo(loads + 1);
+        assertThat(metrics.getLoadTimeP99Micros()).isPositive();
+        assertThat(metrics.getEstimatedSize()).isPositive();
+    }
+
+    @Test
+    public void getRestaurantById_keepsMenuAfterVote() {
+        Restaurant first = restaurantService.getRestaurantById(1);
+        restaurantVotingService.voteForRestaurantById(1);
+        Restaurant second = restaurantService.getRestaurantById(1);
+        assertThat(second.getVotes()).isEqualTo(first.getVotes() + 1);
+        // Only the votes are updated, the meals are not loaded again
+        assertThat(second.getMeals()).isSameAs(first.getMeals());
+    }
+
+    @Test
+    public void getMealById_isServedFromCache() {
+        Meal first = restaurantService.getMealById(1);
+        assertThat(restaurantService.getMealById(1)).isSameAs(first);
+    }
+
+    @Test
+    public void getMealById_isReloadedAfterUpdate() {
+        restaurantService.getMealById(1);
+        restaurantService.getRestaurantById(1);
+        restaurantService.updateMealById(1, new Meal("Lemonade", MealCategory.DRINK, 100));
+        assertThat(restaurantService.getMealById(1).getName()).isEqualTo("Lemonade");
+        assertThat(restaurantService.getRestaurantById(1).getMeals()).extracting(Meal::getName).contains("Lemonade");
+    }
+
+    @Test
+    public void getMealById_isEvictedAfterRemoval() {
+        restaurantService.getMealById(1);
+        restaurantService.deleteMealById(1);
+        assertThatThrownBy(() -> restaurantService.getMealById(1)).isInstanceOf(EntityNotFoundException.class);
+    }
+
+    @Test
+    public void getMealById_isEvictedWithRestaurant() {
+        restaurantService.getMealById(1);
+        restaurantService.deleteAllMealsForRestaurantWithId(1);
+        assertThatThrownBy(() -> restaurantService.getMealById(1)).isInstanceOf(EntityNotFoundException.class);
+        assertThat(restaurantService.getRestaurantById(1).getMeals()).isEmpty();
+    }
+
+    @Test
+    public void getMealById_ofOtherRestaurant_isKeptAfterRemoval() {
+        Meal meal = restaurantService.getMealById(6);
+        restaurantService.getMealById(1);
+        restaurantService.deleteAllMealsForRestaurantWithId(1);
+        assertThat(restaurantService.getMealById(6)).isSameAs(meal);
+    }
+
+}
@@ -0,0 +1,51 @@
+package app.service;
+
+import app.entity.Meal;
+import app.entity.Restaurant;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static app.service.RestaurantService.ListView;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class RestaurantServiceExportTest extends AbstractServiceTest {
+
+    @Autowired
+    private RestaurantService restaurantService;
+
+    @Autowired
+    private RestaurantVotingService restaurantVotingService;
+
+    @Test
+    public void exportAllRestaurants_withDetailedListView() {
+        List<String> exported = new ArrayList<>();
+        restaurantService.exportAllRestaurants(ListView.DETAILED, restaurant -> {
+            List<String> meals = new ArrayList<>();
+            restaurant.getMeals().forEach(meal -> meals.add(meal.getName()));
+            exported.add(restaurant.getId() + ":" + restaurant.getVotes() + ":" + meals.size());
+        });
+        assertThat(exported).containsExactly("1:3:5", "2:9:5");
+    }
+
+    @Test
+    public void exportAllRestaurants_withShortListView() {
+        restaurantVotingService.voteForRestaurantById(1);
+        List<Restaurant> exported = new ArrayList<>();
+        restaurantService.exportAllRestaurants(ListView.SHORT, exported::add);
+        assertThat(exported).extracting(Restaurant::getId).containsExactly(1, 2);
+        assertThat(exported).extracting(Restaurant::getVotes).containsExactly(4, 9);
+        assertThat(exported).extracting(Restaurant::getMeals).containsOnlyNulls();
+    }
+
+    @Test
+    public void exportAllRestaurants_withoutRestaurants() {
+        restaurantService.deleteAllRestaurants();
+        List<Meal> meals = new ArrayList<>();
+        restaurantService.exportAllRestaurants(ListView.DETAILED, restaurant -> meals.addAll(restaurant.getMeals()));
+        assertThat(meals).isEmpty();
+    }
+
+}
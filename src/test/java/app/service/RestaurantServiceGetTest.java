@@ -3,7 +3,10 @@ package app.service;
 import app.entity.Meal;
 import app.entity.Restaurant;
 import app.service.exceptions.EntityNotFoundException;
+import app.service.helpers.RestaurantCursor;
+import app.service.helpers.RestaurantCursorPage;
 import app.service.helpers.RestaurantSorter;
+import org.hibernate.Session;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.PageRequest;
@@ -11,6 +14,8 @@ import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.transaction.annotation.Transactional;
 
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
@@ -28,6 +33,9 @@ public class RestaurantServiceGetTest extends AbstractServiceTest{
     @Autowired
     private RestaurantService restaurantService;
 
+    @PersistenceContext
+    private EntityManager entityManager;
+
     @Test
     public void getAllRestaurants_withNullListView_withNullPagination() {
         List<Restaurant> testRestaurants = Arrays.asList(testRestaurant2, testRestaurant1);
@@ -35,6 +43,7 @@ public class RestaurantServiceGetTest extends AbstractServiceTest{
         assertThat(realRestaurants)
                 .hasSameSizeAs(testRestaurants)
                 .usingRecursiveComparison()
+                .ignoringFields("meals")
                 .isEqualTo(testRestaurants);
     }
 
@@ -45,7 +54,9 @@ public class RestaurantServiceGetTest extends AbstractServiceTest{
         assertThat(realRestaurants)
                 .hasSameSizeAs(testRestaurants)
                 .usingRecursiveComparison()
+                .ignoringFields("meals")
                 .isEqualTo(testRestaurants);
+        assertThat(realRestaurants).extracting(Restaurant::getMeals).containsOnlyNulls();
     }
 
     @Test
@@ -67,6 +78,10 @@ public class RestaurantServiceGetTest extends AbstractServiceTest{
         List<Restaurant> realRestaurants = restaurantService.getAllRestaurants(null, pageable);
         assertThat(realRestaurants)
                 .hasSameSizeAs(testRestaurants)
+                .usingRecursiveComparison()
+                .ignoringFields("meals")
+                .isEqualTo(testRestaurants);
+        assertThat(restaurantService.getAllRestaurants(ListView.DETAILED, pageable))
                 .usingRecursiveComparison()
                 .isEqualTo(testRestaurants);
     }
@@ -80,6 +95,10 @@ public class RestaurantServiceGetTest extends AbstractServiceTest{
         List<Restaurant> realRestaurants = restaurantService.getAllRestaurants(null, pageable);
         assertThat(realRestaurants)
                 .hasSameSizeAs(testRestaurants)
+                .usingRecursiveComparison()
+                .ignoringFields("meals")
+                .isEqualTo(testRestaurants);
+        assertThat(restaurantService.getAllRestaurants(ListView.DETAILED, pageable))
                 .usingRecursiveComparison()
                 .isEqualTo(testRestaurants);
     }
@@ -93,6 +112,10 @@ public class RestaurantServiceGetTest extends AbstractServiceTest{
         List<Restaurant> realRestaurants = restaurantService.getAllRestaurants(null, pageable);
         assertThat(realRestaurants)
                 .hasSameSizeAs(testRestaurants)
+                .usingRecursiveComparison()
+                .ignoringFields("meals")
+                .isEqualTo(testRestaurants);
+        assertThat(restaurantService.getAllRestaurants(ListView.DETAILED, pageable))
                 .usingRecursiveComparison()
                 .isEqualTo(testRestaurants);
     }
@@ -106,6 +129,10 @@ public class RestaurantServiceGetTest extends AbstractServiceTest{
         List<Restaurant> realRestaurants = restaurantService.getAllRestaurants(null, pageable);
         assertThat(realRestaurants)
                 .hasSameSizeAs(testRestaurants)
+                .usingRecursiveComparison()
+                .ignoringFields("meals")
+                .isEqualTo(testRestaurants);
+        assertThat(restaurantService.getAllRestaurants(ListView.DETAILED, pageable))
                 .usingRecursiveComparison()
                 .isEqualTo(testRestaurants);
     }
@@ -119,6 +146,10 @@ public class RestaurantServiceGetTest extends AbstractServiceTest{
         List<Restaurant> realRestaurants = restaurantService.getAllRestaurants(null, pageable);
         assertThat(realRestaurants)
                 .hasSameSizeAs(testRestaurants)
+                .usingRecursiveComparison()
+                .ignoringFields("meals")
+                .isEqualTo(testRestaurants);
+        assertThat(restaurantService.getAllRestaurants(ListView.DETAILED, pageable))
                 .usingRecursiveComparison()
                 .isEqualTo(testRestaurants);
     }
@@ -132,6 +163,10 @@ public class RestaurantServiceGetTest extends AbstractServiceTest{
         List<Restaurant> realRestaurants = restaurantService.getAllRestaurants(null, pageable);
         assertThat(realRestaurants)
                 .hasSameSizeAs(testRestaurants)
+                .usingRecursiveComparison()
+                .ignoringFields("meals")
+                .isEqualTo(testRestaurants);
+        assertThat(restaurantService.getAllRestaurants(ListView.DETAILED, pageable))
                 .usingRecursiveComparison()
                 .isEqualTo(testRestaurants);
     }
@@ -145,6 +180,10 @@ public class RestaurantServiceGetTest extends AbstractServiceTest{
         List<Restaurant> realRestaurants = restaurantService.getAllRestaurants(null, pageable);
         assertThat(realRestaurants)
                 .hasSameSizeAs(testRestaurants)
+                .usingRecursiveComparison()
+                .ignoringFields("meals")
+                .isEqualTo(testRestaurants);
+        assertThat(restaurantService.getAllRestaurants(ListView.DETAILED, pageable))
                 .usingRecursiveComparison()
                 .isEqualTo(testRestaurants);
     }
@@ -159,7 +198,89 @@ public class RestaurantServiceGetTest extends AbstractServiceTest{
         assertThat(realRestaurants)
                 .hasSameSizeAs(testRestaurants)
                 .usingRecursiveComparison()
+                .ignoringFields("meals")
                 .isEqualTo(testRestaurants);
+        assertThat(restaurantService.getAllRestaurants(ListView.DETAILED, pageable))
+                .usingRecursiveComparison()
+                .isEqualTo(testRestaurants);
+    }
+
+    @Test
+    public void getAllRestaurants_withShortListView_doesNotManageEntities() {
+        Pageable pageable = PageRequest.of(
+                DEFAULT_CURRENT_PAGE, DEFAULT_PAGE_SIZE,
+                Sort.by(Sort.Direction.ASC, RestaurantSorter.NAME.getFieldName()));
+        List<Restaurant> realRestaurants = restaurantService.getAllRestaurants(ListView.SHORT, pageable);
+        assertThat(realRestaurants).extracting(Restaurant::getId).containsExactly(1, 2);
+        assertThat(entityManager.unwrap(Session.class).getStatistics().getEntityCount()).isZero();
+    }
+
+    @Test
+    public void getAllRestaurantsRankedByVotes_withShortListView_Descending() {
+        List<Restaurant> testRestaurants = Arrays.asList(testRestaurant2, testRestaurant1);
+        List<Restaurant> realRestaurants = restaurantService.getAllRestaurantsRankedByVotes(ListView.SHORT, null, null, null);
+        assertThat(realRestaurants)
+                .hasSameSizeAs(testRestaurants)
+                .usingRecursiveComparison()
+                .ignoringFields("meals")
+                .isEqualTo(testRestaurants);
+    }
+
+    @Test
+    public void getAllRestaurantsRankedByVotes_withDetailedListView_Ascending() {
+        List<Restaurant> testRestaurants = Arrays.asList(testRestaurant1, testRestaurant2);
+        List<Restaurant> realRestaurants = restaurantService.getAllRestaurantsRankedByVotes(ListView.DETAILED, 0, 10, Sort.Direction.ASC);
+        assertThat(realRestaurants)
+                .hasSameSizeAs(testRestaurants)
+                .usingRecursiveComparison()
+                .isEqualTo(testRestaurants);
+    }
+
+    @Test
+    public void getAllRestaurantsRankedByVotes_withSecondPageRequested() {
+        List<Restaurant> realRestaurants = restaurantService.getAllRestaurantsRankedByVotes(ListView.SHORT, 1, 1, Sort.Direction.DESC);
+        assertThat(realRestaurants).hasSize(1);
+        assertThat(realRestaurants.get(0).getId()).isEqualTo(testRestaurant1.getId());
+    }
+
+    @Test
+    public void getAllRestaurantsAfter_sortedById_Ascending() {
+        RestaurantCursorPage firstPage = restaurantService.getAllRestaurantsAfter(null, RestaurantSorter.ID, Sort.Direction.ASC, null, 1);
+        assertThat(firstPage.getRestaurants()).extracting(Restaurant::getId).containsExactly(1);
+        RestaurantCursorPage secondPage = restaurantService.getAllRestaurantsAfter(null, null, null, firstPage.getNext(), 1);
+        assertThat(secondPage.getRestaurants()).extracting(Restaurant::getId).containsExactly(2);
+        RestaurantCursorPage thirdPage = restaurantService.getAllRestaurantsAfter(null, null, null, secondPage.getNext(), 1);
+        assertThat(thirdPage.getRestaurants()).isEmpty();
+        assertThat(thirdPage.getNext()).isNull();
+    }
+
+    @Test
+    public void getAllRestaurantsAfter_sortedByName_Descending() {
+        RestaurantCursorPage firstPage = restaurantService.getAllRestaurantsAfter(ListView.DETAILED, RestaurantSorter.NAME, Sort.Direction.DESC, null, 1);
+        assertThat(firstPage.getRestaurants())
+                .usingRecursiveComparison()
+                .isEqualTo(Collections.singletonList(testRestaurant2));
+        RestaurantCursor cursor = RestaurantCursor.decode(firstPage.getNext().encode());
+        RestaurantCursorPage secondPage = restaurantService.getAllRestaurantsAfter(ListView.DETAILED, null, null, cursor, 1);
+        assertThat(secondPage.getRestaurants())
+                .usingRecursiveComparison()
+                .isEqualTo(Collections.singletonList(testRestaurant1));
+    }
+
+    @Test
+    public void getAllRestaurantsAfter_sortedByVotes_Descending() {
+        RestaurantCursorPage firstPage = restaurantService.getAllRestaurantsAfter(null, RestaurantSorter.VOTES, Sort.Direction.DESC, null, 1);
+        assertThat(firstPage.getRestaurants()).extracting(Restaurant::getId).containsExactly(2);
+        RestaurantCursorPage secondPage = restaurantService.getAllRestaurantsAfter(null, null, null, firstPage.getNext(), 10);
+        assertThat(secondPage.getRestaurants()).extracting(Restaurant::getId).containsExactly(1);
+        assertThat(secondPage.getNext()).isNull();
+    }
+
+    @Test
+    public void getAllRestaurantsAfter_withInvalidCursor() {
+        assertThatThrownBy(() -> RestaurantCursor.decode("not a cursor"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Invalid page cursor: not a cursor");
     }
 
     @Test
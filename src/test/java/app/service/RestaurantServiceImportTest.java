@@ -0,0 +1,130 @@
+package app.service;
+
+import app.entity.Meal;
+import app.entity.MealCategory;
+import app.entity.Restaurant;
+import app.service.helpers.RestaurantImportLine;
+import app.service.helpers.RestaurantImportReport;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.TestPropertySource;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static app.service.RestaurantService.ListView;
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Restaurants are imported in chunks of 2, only the first 3 lines which failed are reported
+@TestPropertySource(properties = {
+        "restaurants.import.chunk-size=2",
+        "restaurants.import.max-reported-errors=3"})
+public class RestaurantServiceImportTest extends AbstractServiceTest {
+
+    @Autowired
+    private RestaurantService restaurantService;
+
+    @Test
+    public void importRestaurants() {
+        // Pages are cached before the import, which must evict them
+        assertThat(restaurantService.getAllRestaurants(ListView.SHORT)).hasSize(2);
+
+        RestaurantImportReport report = restaurantService.importRestaurants(Arrays.asList(
+                line(1, restaurant("Burger King", new Meal("Whopper", MealCategory.MAIN, 300), new Meal("Cola", MealCategory.DRINK, 100))),
+                line(2, restaurant("KFC")),
+                line(3, restaurant("Subway"))).iterator());
+
+        assertThat(report.getImported()).isEqualTo(3);
+        assertThat(report.getFailed()).isZero();
+        assertThat(report.getErrors()).isEmpty();
+        assertThat(restaurantService.getAllRestaurants(ListView.SHORT))
+                .extracting(Restaurant::getName)
+                .containsExactlyInAnyOrder("Marcellis", "Phalli Khinkali", "Burger King", "KFC", "Subway");
+        assertThat(restaurantService.getAllRestaurantsRankedByVotes(ListView.SHORT, 0, 10, null))
+                .extracting(Restaurant::getName)
+                .contains("Burger King", "KFC", "Subway");
+
+        Restaurant burgerKing = restaurantService.getAllRestaurants(ListView.DETAILED).stream()
+                .filter(restaurant -> restaurant.getName().equals("Burger King"))
+                .findFirst().get();
+        assertThat(burgerKing.getVotes()).isZero();
+        assertThat(burgerKing.getMeals()).extracting(Meal::getName).containsExactlyInAnyOrder("Whopper", "Cola");
+    }
+
+    @Test
+    public void importRestaurants_withInvalidLines_reportsThemAndImportsTheOthers() {
+        RestaurantImportReport report = restaurantService.importRestaurants(Arrays.asList(
+                line(1, restaurant("Burger King")),
+                line(2, restaurant("Marcellis")),
+                line(3, restaurant("KFC", new Meal("Wings", MealCategory.MAIN, 200), new Meal("wings", MealCategory.MAIN, 250))),
+                RestaurantImportLine.failed(4, "Failed to read restaurant."),
+                line(5, restaurant(" ")),
+                line(6, restaurant("Subway"))).iterator());
+
+        assertThat(report.getImported()).isEqualTo(2);
+        assertThat(report.getFailed()).isEqualTo(4);
+        // Only the first 3 lines which failed are reported (line 2 as soon as its chunk is imported)
+        assertThat(report.getErrors()).extracting(RestaurantImportReport.LineErrors::getLine).containsExactly(2L, 3L, 4L);
+        assertThat(report.getErrors().get(0).getErrors()).containsExactly("Restaurant with name=Marcellis already exists.");
+        assertThat(report.getErrors().get(1).getErrors()).containsExactly("Meal with name=wings and category=MAIN is duplicated.");
+        assertThat(report.getErrors().get(2).getErrors()).containsExactly("Failed to read restaurant.");
+        assertThat(restaurantService.getAllRestaurants(ListView.SHORT))
+                .extracting(Restaurant::getName)
+                .containsExactlyInAnyOrder("Marcellis", "Phalli Khinkali", "Burger King", "Subway");
+    }
+
+    @Test
+    public void importRestaurants_withDuplicateNames() {
+        RestaurantImportReport report = restaurantService.importRestaurants(Arrays.asList(
+                line(1, restaurant("Burger King")),
+                line(2, restaurant("BURGER KING")),
+                line(3, restaurant("KFC")),
+                line(4, restaurant("burger king")),
+                line(5, restaurant("marcellis"))).iterator());
+
+        assertThat(report.getImported()).isEqualTo(2);
+        assertThat(report.getErrors()).extracting(RestaurantImportReport.LineErrors::getLine).containsExactly(2L, 4L, 5L);
+        // Line 2 is a duplicate within the chunk, lines 4 and 5 are found in the database
+        assertThat(report.getErrors().get(0).getErrors()).containsExactly("Restaurant with name=BURGER KING is duplicated.");
+        assertThat(report.getErrors().get(1).getErrors()).containsExactly("Restaurant with name=burger king already exists.");
+        assertThat(report.getErrors().get(2).getErrors()).containsExactly("Restaurant with name=marcellis already exists.");
+    }
+
+    @Test
+    public void importRestaurants_withConstraintViolationOfDatabase_importsTheRestOfChunk() {
+        // Name is longer than the column, which is found out only by the database
+        char[] longName = new char[300];
+        Arrays.fill(longName, 'a');
+        RestaurantImportReport report = restaurantService.importRestaurants(Arrays.asList(
+                line(1, restaurant("Burger King", new Meal("Whopper", MealCategory.MAIN, 300))),
+                line(2, restaurant(new String(longName))),
+                line(3, restaurant("KFC"))).iterator());
+
+        assertThat(report.getImported()).isEqualTo(2);
+        assertThat(report.getErrors()).extracting(RestaurantImportReport.LineErrors::getLine).containsExactly(2L);
+        assertThat(restaurantService.getAllRestaurants(ListView.DETAILED))
+                .extracting(Restaurant::getName)
+                .containsExactlyInAnyOrder("Marcellis", "Phalli Khinkali", "Burger King", "KFC");
+    }
+
+    @Test
+    public void importRestaurants_withoutLines() {
+        RestaurantImportReport report = restaurantService.importRestaurants(Collections.emptyIterator());
+        assertThat(report.getImported()).isZero();
+        assertThat(report.getFailed()).isZero();
+    }
+
+    private static RestaurantImportLine line(long line, Restaurant restaurant) {
+        return RestaurantImportLine.of(line, restaurant);
+    }
+
+    private static Restaurant restaurant(String name, Meal... meals) {
+        Restaurant restaurant = new Restaurant(name, 5, new ArrayList<>());
+        for (Meal meal : meals) {
+            restaurant.addMeal(meal);
+        }
+        return restaurant;
+    }
+
+}
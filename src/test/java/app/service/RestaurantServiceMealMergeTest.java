@@ -0,0 +1,163 @@
+package app.service;
+
+import app.entity.Meal;
+import app.entity.MealCategory;
+import app.entity.Restaurant;
+import app.service.helpers.MealChangeSet;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.EntityStatistics;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.TestPropertySource;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.Locale;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+// Menu given to updateRestaurantById() is merged into the current one, so only the changed meals are written
+@TestPropertySource(properties = "hibernate.generate_statistics=true")
+public class RestaurantServiceMealMergeTest extends AbstractServiceTest {
+
+    @Autowired
+    private RestaurantService restaurantService;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private EntityStatistics mealStatistics;
+    private long inserts;
+    private long updates;
+    private long deletes;
+
+    @BeforeEach
+    public void setUp() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        mealStatistics = statistics.getEntityStatistics(Meal.class.getName());
+        inserts = mealStatistics.getInsertCount();
+        updates = mealStatistics.getUpdateCount();
+        deletes = mealStatistics.getDeleteCount();
+    }
+
+    @Test
+    public void updateRestaurantById_withOneChangedPrice_updatesOneMeal() {
+        Restaurant restaurant = menu(
+                new Meal("Ceaser Salad", MealCategory.SALAD, 350),
+                new Meal("Tomato Soup", MealCategory.SOUP, 290),
+                new Meal("Four Seasons pizza", MealCategory.MAIN, 600),
+                new Meal("Apple pie", MealCategory.DESERT, 250),
+                new Meal("Latte", MealCategory.DRINK, 350));
+
+        MealChangeSet changes = restaurantService.updateRestaurantById(1, restaurant);
+
+        assertThat(changes.getInserted()).isEmpty();
+        assertThat(changes.getUpdated()).containsExactly(3);
+        assertThat(changes.getDeleted()).isEmpty();
+        assertThat(mealStatistics.getInsertCount() - inserts).isZero();
+        assertThat(mealStatistics.getUpdateCount() - updates).isEqualTo(1);
+        assertThat(mealStatistics.getDeleteCount() - deletes).isZero();
+        assertThat(restaurantService.getRestaurantById(1).getMeals())
+                .extracting(Meal::getId, Meal::getPrice)
+                .contains(tuple(3, 600))
+                .hasSize(5);
+    }
+
+    @Test
+    public void updateRestaurantById_withChangedMenu_mergesMeals() {
+        Restaurant restaurant = menu(
+                new Meal("Ceaser Salad", MealCategory.SALAD, 350),
+                new Meal("tomato soup", MealCategory.SOUP, 290),
+                new Meal("Apple pie", MealCategory.MAIN, 250),
+                new Meal("Espresso", MealCategory.DRINK, 200));
+
+        MealChangeSet changes = restaurantService.updateRestaurantById(1, restaurant);
+
+        // Meals are matched by name ignoring case and by category
+        assertThat(changes.getUpdated()).containsExactly(2);
+        assertThat(changes.getInserted()).hasSize(2);
+        assertThat(changes.getDeleted()).containsExactlyInAnyOrder(3, 4, 5);
+        assertThat(mealStatistics.getInsertCount() - inserts).isEqualTo(2);
+        assertThat(mealStatistics.getUpdateCount() - updates).isEqualTo(1);
+        assertThat(mealStatistics.getDeleteCount() - deletes).isEqualTo(3);
+
+        Restaurant realRestaurant = restaurantService.getRestaurantById(1);
+        assertThat(realRestaurant.getMeals())
+                .extracting(Meal::getName)
+                .containsExactlyInAnyOrder("Ceaser Salad", "tomato soup", "Apple pie", "Espresso");
+        assertThat(realRestaurant.getMeals())
+                .extracting(Meal::getId)
+                .contains(1, 2)
+                .containsAll(changes.getInserted());
+    }
+
+    @Test
+    public void updateRestaurantById_withMealTheDatabaseTakesForTheSame_replacesMeal() {
+        // Trailing spaces are ignored by the collation of the database only: the meal is deleted and inserted again
+        Restaurant restaurant = menu(
+                new Meal("Ceaser Salad", MealCategory.SALAD, 350),
+                new Meal("Tomato Soup", MealCategory.SOUP, 290),
+                new Meal("Four Seasons pizza", MealCategory.MAIN, 560),
+                new Meal("Apple pie", MealCategory.DESERT, 250),
+                new Meal("Latte ", MealCategory.DRINK, 350));
+
+        MealChangeSet changes = restaurantService.updateRestaurantById(1, restaurant);
+
+        assertThat(changes.getInserted()).hasSize(1);
+        assertThat(changes.getUpdated()).isEmpty();
+        assertThat(changes.getDeleted()).containsExactly(5);
+        assertThat(restaurantService.getRestaurantById(1).getMeals())
+                .extracting(Meal::getId)
+                .doesNotContain(5)
+                .containsAll(changes.getInserted())
+                .hasSize(5);
+    }
+
+    @Test
+    public void updateRestaurantById_withTurkishDefaultLocale_matchesMealsIgnoringCase() {
+        Locale defaultLocale = Locale.getDefault();
+        Locale.setDefault(new Locale("tr", "TR"));
+        try {
+            Restaurant restaurant = menu(
+                    new Meal("Ceaser Salad", MealCategory.SALAD, 350),
+                    new Meal("Tomato Soup", MealCategory.SOUP, 290),
+                    new Meal("Four Seasons pizza", MealCategory.MAIN, 560),
+                    new Meal("APPLE PIE", MealCategory.DESERT, 250),
+                    new Meal("Latte", MealCategory.DRINK, 350));
+
+            MealChangeSet changes = restaurantService.updateRestaurantById(1, restaurant);
+
+            // "I" is lowercased to the dotless i in Turkish, the meal is still the same
+            assertThat(changes.getInserted()).isEmpty();
+            assertThat(changes.getUpdated()).containsExactly(4);
+            assertThat(changes.getDeleted()).isEmpty();
+        }
+        finally {
+            Locale.setDefault(defaultLocale);
+        }
+    }
+
+    @Test
+    public void updateRestaurantById_withoutMeals_keepsMenu() {
+        Restaurant restaurant = new Restaurant("Marcellis", 3, null);
+
+        MealChangeSet changes = restaurantService.updateRestaurantById(1, restaurant);
+
+        assertThat(changes.getInserted()).isEmpty();
+        assertThat(changes.getUpdated()).isEmpty();
+        assertThat(changes.getDeleted()).isEmpty();
+        assertThat(restaurantService.getRestaurantById(1).getMeals()).hasSize(5);
+    }
+
+    private static Restaurant menu(Meal... meals) {
+        Restaurant restaurant = new Restaurant("Marcellis", 3, new ArrayList<>());
+        for (Meal meal : meals) {
+            restaurant.addMeal(meal);
+        }
+        return restaurant;
+    }
+
+}
@@ -0,0 +1,54 @@
+package app.service;
+
+import app.entity.Meal;
+import app.entity.MealCategory;
+import app.service.helpers.RestaurantSorter;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort;
+import org.springframework.test.context.TestPropertySource;
+
+import javax.persistence.EntityManagerFactory;
+
+import static app.service.RestaurantService.ListView;
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Read methods of the service run in read-only transactions, which are never flushed
+@TestPropertySource(properties = "hibernate.generate_statistics=true")
+public class RestaurantServiceReadOnlyTest extends AbstractServiceTest {
+
+    @Autowired
+    private RestaurantService restaurantService;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    public void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @Test
+    public void getAllRestaurants_doesNotFlush() {
+        long flushes = statistics.getFlushCount();
+        restaurantService.getAllRestaurants(ListView.DETAILED, null);
+        restaurantService.getAllRestaurantsAfter(ListView.DETAILED, RestaurantSorter.ID, Sort.Direction.ASC, null, 10);
+        restaurantService.getRestaurantById(1);
+        restaurantService.getMealById(1);
+        assertThat(statistics.getFlushCount()).isEqualTo(flushes);
+    }
+
+    @Test
+    public void updateMealById_isFlushed() {
+        long flushes = statistics.getFlushCount();
+        restaurantService.updateMealById(1, new Meal("Lemonade", MealCategory.DRINK, 100));
+        assertThat(statistics.getFlushCount()).isGreaterThan(flushes);
+        assertThat(restaurantService.getMealById(1).getName()).isEqualTo("Lemonade");
+    }
+
+}
@@ -0,0 +1,92 @@
+package app.service;
+
+import app.entity.Restaurant;
+import app.service.caching.ResponseRefresher;
+import app.service.caching.RestaurantCache;
+import app.service.helpers.RestaurantSorter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.TestPropertySource;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static app.service.RestaurantService.ListView;
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Stale pages are served for up to a minute, so the tests never depend on timing
+@ContextConfiguration(classes = app.config.CacheConfig.class)
+@TestPropertySource(properties = {"cache.responses.refresh-ahead.enabled=true", "cache.responses.refresh-ahead.max-staleness-ms=60000"})
+public class RestaurantServiceRefreshAheadTest extends AbstractServiceTest {
+
+    private static final long REFRESH_TIMEOUT_MILLIS = 5000;
+
+    @Autowired
+    private RestaurantService restaurantService;
+
+    @Autowired
+    private RestaurantVotingService restaurantVotingService;
+
+    @Autowired
+    private RestaurantCache restaurantCache;
+
+    @Autowired
+    private ResponseRefresher responseRefresher;
+
+    private final Pageable pageable = PageRequest.of(0, 10, Sort.by(Sort.Direction.DESC, RestaurantSorter.VOTES.getFieldName()));
+
+    // Serializes the restaurants as their ids and votes, so the responses can be checked without JSON
+    private final Function<List<Restaurant>, byte[]> serializer = restaurants -> restaurants.stream()
+            .map(restaurant -> restaurant.getId() + "=" + restaurant.getVotes())
+            .collect(Collectors.joining(","))
+            .getBytes(StandardCharsets.UTF_8);
+
+    private final Function<List<Restaurant>, byte[]> failingSerializer = restaurants -> {
+        throw new IllegalStateException("Serialization failed.");
+    };
+
+    @BeforeEach
+    public void clearCache() throws InterruptedException {
+        awaitRefreshes();
+        restaurantCache.clear();
+    }
+
+    @Test
+    public void getAllRestaurantsSerialized_servesStaleResponseWhileRefreshing() throws InterruptedException {
+        assertThat(getPage(serializer)).isEqualTo("2=9,1=3");
+        restaurantVotingService.voteForRestaurantById(1);
+        assertThat(getPage(serializer)).isEqualTo("2=9,1=3");
+        awaitRefreshes();
+        assertThat(getPage(serializer)).isEqualTo("2=9,1=4");
+    }
+
+    @Test
+    public void getAllRestaurantsSerialized_keepsStaleResponseIfRefreshFails() throws InterruptedException {
+        long failedRefreshes = responseRefresher.getFailedRefreshes();
+        assertThat(getPage(serializer)).isEqualTo("2=9,1=3");
+        restaurantVotingService.voteForRestaurantById(1);
+        assertThat(getPage(failingSerializer)).isEqualTo("2=9,1=3");
+        awaitRefreshes();
+        assertThat(responseRefresher.getFailedRefreshes()).isEqualTo(failedRefreshes + 1);
+        assertThat(getPage(failingSerializer)).isEqualTo("2=9,1=3");
+    }
+
+    private String getPage(Function<List<Restaurant>, byte[]> serializer) {
+        return new String(restaurantService.getAllRestaurantsSerialized(ListView.SHORT, pageable, serializer), StandardCharsets.UTF_8);
+    }
+
+    private void awaitRefreshes() throws InterruptedException {
+        long deadline = System.currentTimeMillis() + REFRESH_TIMEOUT_MILLIS;
+        while (responseRefresher.getPendingRefreshes() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+
+}
@@ -0,0 +1,109 @@
+package app.service;
+
+import app.entity.Meal;
+import app.entity.MealCategory;
+import app.entity.Restaurant;
+import app.service.caching.RestaurantCache;
+import app.service.helpers.RestaurantSorter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.test.context.ContextConfiguration;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static app.service.RestaurantService.ListView;
+import static org.assertj.core.api.Assertions.assertThat;
+
+@ContextConfiguration(classes = app.config.CacheConfig.class)
+public class RestaurantServiceResponseCacheTest extends AbstractServiceTest {
+
+    @Autowired
+    private RestaurantService restaurantService;
+
+    @Autowired
+    private RestaurantVotingService restaurantVotingService;
+
+    @Autowired
+    private RestaurantCache restaurantCache;
+
+    private final AtomicInteger serializations = new AtomicInteger();
+
+    // Serializes the restaurants as their ids and votes, so the responses can be checked without JSON
+    private final Function<List<Restaurant>, byte[]> serializer = restaurants -> {
+        serializations.incrementAndGet();
+        return restaurants.stream()
+                .map(restaurant -> restaurant.getId() + "=" + restaurant.getVotes())
+                .collect(Collectors.joining(","))
+                .getBytes(StandardCharsets.UTF_8);
+    };
+
+    @BeforeEach
+    public void clearCache() {
+        restaurantCache.clear();
+    }
+
+    @Test
+    public void getAllRestaurantsSerialized_isServedFromCache() {
+        Pageable pageable = PageRequest.of(0, 10, Sort.by(Sort.Direction.ASC, RestaurantSorter.ID.getFieldName()));
+        byte[] first = restaurantService.getAllRestaurantsSerialized(ListView.SHORT, pageable, serializer);
+        byte[] second = restaurantService.getAllRestaurantsSerialized(ListView.SHORT, pageable, serializer);
+        assertThat(second).isSameAs(first);
+        assertThat(serializations).hasValue(1);
+        assertThat(restaurantService.getAllRestaurantsSerialized(ListView.DETAILED, pageable, serializer)).isNotSameAs(first);
+        assertThat(serializations).hasValue(2);
+    }
+
+    @Test
+    public void getAllRestaurantsSerialized_rankedByVotes_isRebuiltAfterVote() {
+        Pageable pageable = PageRequest.of(0, 10, Sort.by(Sort.Direction.DESC, RestaurantSorter.VOTES.getFieldName()));
+        assertThat(new String(restaurantService.getAllRestaurantsSerialized(ListView.SHORT, pageable, serializer), StandardCharsets.UTF_8))
+                .isEqualTo("2=9,1=3");
+        restaurantVotingService.voteForRestaurantById(1);
+        assertThat(new String(restaurantService.getAllRestaurantsSerialized(ListView.SHORT, pageable, serializer), StandardCharsets.UTF_8))
+                .isEqualTo("2=9,1=4");
+        assertThat(serializations).hasValue(2);
+    }
+
+    @Test
+    public void getAllRestaurantsSerialized_sortedById_isRebuiltAfterVote() {
+        Pageable pageable = PageRequest.of(0, 10, Sort.by(Sort.Direction.ASC, RestaurantSorter.ID.getFieldName()));
+        restaurantService.getAllRestaurantsSerialized(ListView.SHORT, pageable, serializer);
+        restaurantVotingService.voteForRestaurantById(2);
+        assertThat(new String(restaurantService.getAllRestaurantsSerialized(ListView.SHORT, pageable, serializer), StandardCharsets.UTF_8))
+                .isEqualTo("1=3,2=10");
+    }
+
+    @Test
+    public void getAllRestaurantsSerialized_sortedById_keepsResponsesOfOtherRestaurants() {
+        Pageable first = PageRequest.of(0, 1, Sort.by(Sort.Direction.ASC, RestaurantSorter.ID.getFieldName()));
+        Pageable second = PageRequest.of(1, 1, Sort.by(Sort.Direction.ASC, RestaurantSorter.ID.getFieldName()));
+        byte[] response = restaurantService.getAllRestaurantsSerialized(ListView.SHORT, first, serializer);
+        restaurantService.getAllRestaurantsSerialized(ListView.SHORT, second, serializer);
+        restaurantVotingService.voteForRestaurantById(2);
+        assertThat(restaurantService.getAllRestaurantsSerialized(ListView.SHORT, first, serializer)).isSameAs(response);
+        assertThat(new String(restaurantService.getAllRestaurantsSerialized(ListView.SHORT, second, serializer), StandardCharsets.UTF_8))
+                .isEqualTo("2=10");
+        assertThat(serializations).hasValue(3);
+    }
+
+    @Test
+    public void getAllRestaurantsSerialized_detailed_isRebuiltAfterMenuChange() {
+        Pageable pageable = PageRequest.of(0, 10, Sort.by(Sort.Direction.ASC, RestaurantSorter.NAME.getFieldName()));
+        restaurantService.getAllRestaurantsSerialized(ListView.SHORT, pageable, serializer);
+        restaurantService.getAllRestaurantsSerialized(ListView.DETAILED, pageable, serializer);
+        restaurantService.createMealForRestaurantWithId(1, new Meal("Lemonade", MealCategory.DRINK, 100));
+        restaurantService.getAllRestaurantsSerialized(ListView.SHORT, pageable, serializer);
+        restaurantService.getAllRestaurantsSerialized(ListView.DETAILED, pageable, serializer);
+        // Brief view doesn't contain meals
+        assertThat(serializations).hasValue(3);
+    }
+
+}
@@ -0,0 +1,81 @@
+package app.service;
+
+import app.dao.RestaurantRepository;
+import app.entity.Meal;
+import app.entity.MealCategory;
+import app.service.voting.VoteEpochManager;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManagerFactory;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// No cache manager in the application context, so every read of the service goes through Hibernate
+@TestPropertySource(properties = "hibernate.generate_statistics=true")
+public class RestaurantServiceSecondLevelCacheTest extends AbstractServiceTest {
+
+    @Autowired
+    private RestaurantService restaurantService;
+
+    @Autowired
+    private RestaurantRepository restaurantRepository;
+
+    @Autowired
+    private VoteEpochManager voteEpochManager;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    public void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @Test
+    public void getMealById_repeatedCallIssuesNoSql() {
+        restaurantService.getMealById(1);
+        long statements = statistics.getPrepareStatementCount();
+        restaurantService.getMealById(1);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(statements);
+    }
+
+    @Test
+    public void getRestaurantById_repeatedCallIssuesNoSql() {
+        restaurantService.getRestaurantById(1);
+        long statements = statistics.getPrepareStatementCount();
+        assertThat(restaurantService.getRestaurantById(1).getMeals()).isNotEmpty();
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(statements);
+    }
+
+    @Test
+    public void getMealById_isReloadedAfterUpdate() {
+        restaurantService.getMealById(1);
+        Meal meal = new Meal("Lemonade", MealCategory.DRINK, 100);
+        restaurantService.updateMealById(1, meal);
+        assertThat(restaurantService.getMealById(1).getName()).isEqualTo("Lemonade");
+    }
+
+    @Test
+    public void getRestaurantById_ofOtherRestaurant_issuesNoSqlAfterVote() {
+        restaurantService.getRestaurantById(2);
+        new TransactionTemplate(transactionManager)
+                .execute(status -> restaurantRepository.addVotes(1, 1, voteEpochManager.getCurrentEpoch()));
+        long statements = statistics.getPrepareStatementCount();
+        assertThat(restaurantService.getRestaurantById(2).getMeals()).isNotEmpty();
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(statements);
+        assertThat(restaurantService.getRestaurantById(1).getVotes()).isEqualTo(4);
+    }
+
+}
@@ -0,0 +1,117 @@
+package app.service;
+
+import app.dao.RestaurantRepository;
+import app.dao.UserVoteRepository;
+import app.service.exceptions.EntityNotFoundException;
+import app.service.exceptions.VoteQueueFullException;
+import app.service.voting.VoteQueue;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.TestPropertySource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+// No writer threads: queued votes are applied only by VoteQueue.flush()
+@TestPropertySource(properties = {"voting.mode=ASYNC", "voting.queue.writers=0", "voting.queue.capacity=2", "voting.queue.retry-after-seconds=3"})
+public class RestaurantVotingServiceAsyncTest extends AbstractServiceTest {
+
+    @Autowired
+    private RestaurantService restaurantService;
+
+    @Autowired
+    private RestaurantVotingService restaurantVotingService;
+
+    @Autowired
+    private RestaurantRepository restaurantRepository;
+
+    @Autowired
+    private UserVoteRepository userVoteRepository;
+
+    @Autowired
+    private VoteQueue voteQueue;
+
+    @AfterEach
+    public void discardQueuedVotes() {
+        voteQueue.discardAll();
+    }
+
+    @Test
+    public void voteForRestaurantById_isAppliedByFlush() {
+        Integer initialNumberOfVotes = restaurantService.getRestaurantById(1).getVotes();
+        assertThat(restaurantVotingService.voteForRestaurantById(1)).isFalse();
+        assertThat(restaurantVotingService.voteForRestaurantById(1)).isFalse();
+        assertThat(voteQueue.getQueueDepth()).isEqualTo(2);
+        assertThat(restaurantRepository.findById(1).get().getVotes()).isEqualTo(initialNumberOfVotes);
+        voteQueue.flush();
+        assertThat(voteQueue.getQueueDepth()).isZero();
+        assertThat(restaurantRepository.findById(1).get().getVotes()).isEqualTo(initialNumberOfVotes + 2);
+        assertThat(restaurantService.getRestaurantById(1).getVotes()).isEqualTo(initialNumberOfVotes + 2);
+    }
+
+    @Test
+    public void voteForRestaurantById_isRejectedWhenQueueIsFull() {
+        long rejectedVotes = voteQueue.getRejectedVotes();
+        restaurantVotingService.voteForRestaurantById(1);
+        restaurantVotingService.voteForRestaurantById(2);
+        assertThatThrownBy(() -> restaurantVotingService.voteForRestaurantById(1))
+                .isInstanceOf(VoteQueueFullException.class)
+                .extracting("retryAfterSeconds").isEqualTo(3L);
+        assertThat(voteQueue.getRejectedVotes()).isEqualTo(rejectedVotes + 1);
+    }
+
+    @Test
+    public void voteForRestaurantById_userVoteIsAppliedByFlush() {
+        SecurityContextHolder.getContext().setAuthentication(new TestingAuthenticationToken("user", "user", "ROLE_USER"));
+        try {
+            restaurantVotingService.voteForRestaurantById(1);
+            assertThat(userVoteRepository.findById("user")).isEmpty();
+            voteQueue.flush();
+            assertThat(userVoteRepository.findById("user").get().getRestaurantId()).isEqualTo(1);
+            // Re-vote is applied at once
+            assertThat(restaurantVotingService.voteForRestaurantById(2)).isTrue();
+            assertThat(userVoteRepository.findById("user").get().getRestaurantId()).isEqualTo(2);
+        } finally {
+            SecurityContextHolder.clearContext();
+        }
+    }
+
+    @Test
+    public void voteForRestaurantById_revoteBeforeFlush() {
+        Integer initialNumberOfVotes1 = restaurantService.getRestaurantById(1).getVotes();
+        Integer initialNumberOfVotes2 = restaurantService.getRestaurantById(2).getVotes();
+        SecurityContextHolder.getContext().setAuthentication(new TestingAuthenticationToken("user", "user", "ROLE_USER"));
+        try {
+            restaurantVotingService.voteForRestaurantById(1);
+            assertThat(restaurantVotingService.voteForRestaurantById(2)).isTrue();
+            voteQueue.flush();
+            // Queued vote doesn't overwrite the newer vote of the user
+            assertThat(userVoteRepository.findById("user").get().getRestaurantId()).isEqualTo(2);
+            assertThat(restaurantRepository.findById(1).get().getVotes()).isEqualTo(initialNumberOfVotes1);
+            assertThat(restaurantRepository.findById(2).get().getVotes()).isEqualTo(initialNumberOfVotes2 + 1);
+        } finally {
+            SecurityContextHolder.clearContext();
+        }
+    }
+
+    @Test
+    public void voteForRestaurantById_withNonExistingRestaurantId() {
+        Integer id = -1;
+        assertThatThrownBy(() -> restaurantVotingService.voteForRestaurantById(id))
+                .isInstanceOf(EntityNotFoundException.class)
+                .hasMessage("Restaurant with id=" + id + " not found.");
+        assertThat(voteQueue.getQueueDepth()).isZero();
+    }
+
+    @Test
+    public void clearAllVotes_discardsQueuedVotes() {
+        restaurantVotingService.voteForRestaurantById(1);
+        restaurantVotingService.clearAllVotes();
+        voteQueue.flush();
+        assertThat(restaurantService.getRestaurantById(1).getVotes()).isZero();
+    }
+
+}
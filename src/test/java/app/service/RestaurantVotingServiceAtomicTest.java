@@ -0,0 +1,69 @@
+package app.service;
+
+import app.service.exceptions.EntityNotFoundException;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.TestPropertySource;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@TestPropertySource(properties = "voting.mode=ATOMIC")
+public class RestaurantVotingServiceAtomicTest extends AbstractServiceTest {
+
+    private static final int NUMBER_OF_THREADS = 8;
+    private static final int VOTES_PER_THREAD = 50;
+
+    @Autowired
+    private RestaurantService restaurantService;
+
+    @Autowired
+    private RestaurantVotingService restaurantVotingService;
+
+    @Test
+    public void voteForRestaurantById() {
+        Integer initialNumberOfVotes = restaurantService.getRestaurantById(1).getVotes();
+        restaurantVotingService.voteForRestaurantById(1);
+        assertThat(restaurantService.getRestaurantById(1).getVotes()).isEqualTo(initialNumberOfVotes + 1);
+    }
+
+    @Test
+    public void voteForRestaurantById_withNonExistingRestaurantId() {
+        Integer id = -1;
+        assertThatThrownBy(() -> restaurantVotingService.voteForRestaurantById(id))
+                .isInstanceOf(EntityNotFoundException.class)
+                .hasMessage("Restaurant with id=" + id + " not found.");
+    }
+
+    @Test
+    public void voteForRestaurantById_concurrently() throws Exception {
+        Integer initialNumberOfVotes = restaurantService.getRestaurantById(1).getVotes();
+        ExecutorService executor = Executors.newFixedThreadPool(NUMBER_OF_THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < NUMBER_OF_THREADS; i++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int j = 0; j < VOTES_PER_THREAD; j++) {
+                    restaurantVotingService.voteForRestaurantById(1);
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+        assertThat(restaurantService.getRestaurantById(1).getVotes())
+                .isEqualTo(initialNumberOfVotes + NUMBER_OF_THREADS * VOTES_PER_THREAD);
+    }
+
+}
@@ -0,0 +1,91 @@
+package app.service;
+
+import app.dao.RestaurantRepository;
+import app.dao.UserVoteRepository;
+import app.service.exceptions.DuplicateVoteException;
+import app.service.exceptions.EntityNotFoundException;
+import app.service.voting.UserVoteIndex;
+import app.service.voting.VoteBuffer;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.TestPropertySource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@TestPropertySource(properties = {"voting.mode=BUFFERED", "voting.buffer.flush-interval-ms=3600000"})
+public class RestaurantVotingServiceBufferedTest extends AbstractServiceTest {
+
+    @Autowired
+    private RestaurantService restaurantService;
+
+    @Autowired
+    private RestaurantVotingService restaurantVotingService;
+
+    @Autowired
+    private RestaurantRepository restaurantRepository;
+
+    @Autowired
+    private VoteBuffer voteBuffer;
+
+    @Autowired
+    private UserVoteRepository userVoteRepository;
+
+    @Autowired
+    private UserVoteIndex userVoteIndex;
+
+    @Test
+    public void voteForRestaurantById_isVisibleBeforeFlush() {
+        Integer initialNumberOfVotes = restaurantService.getRestaurantById(1).getVotes();
+        restaurantVotingService.voteForRestaurantById(1);
+        restaurantVotingService.voteForRestaurantById(1);
+        assertThat(restaurantRepository.findById(1).get().getVotes()).isEqualTo(initialNumberOfVotes);
+        assertThat(restaurantService.getRestaurantById(1).getVotes()).isEqualTo(initialNumberOfVotes + 2);
+        voteBuffer.flush();
+    }
+
+    @Test
+    public void voteForRestaurantById_isWrittenByFlush() {
+        Integer initialNumberOfVotes = restaurantService.getRestaurantById(2).getVotes();
+        restaurantVotingService.voteForRestaurantById(2);
+        voteBuffer.flush();
+        assertThat(voteBuffer.getPendingVotes(2)).isZero();
+        assertThat(restaurantRepository.findById(2).get().getVotes()).isEqualTo(initialNumberOfVotes + 1);
+        assertThat(restaurantService.getRestaurantById(2).getVotes()).isEqualTo(initialNumberOfVotes + 1);
+    }
+
+    @Test
+    public void voteForRestaurantById_userVoteIsWrittenByFlush() {
+        SecurityContextHolder.getContext().setAuthentication(new TestingAuthenticationToken("user", "user", "ROLE_USER"));
+        try {
+            restaurantVotingService.voteForRestaurantById(1);
+            assertThat(userVoteRepository.findById("user")).isEmpty();
+            voteBuffer.flush();
+            assertThat(userVoteRepository.findById("user").get().getRestaurantId()).isEqualTo(1);
+            userVoteIndex.reload();
+            assertThatThrownBy(() -> restaurantVotingService.voteForRestaurantById(1))
+                    .isInstanceOf(DuplicateVoteException.class);
+        } finally {
+            SecurityContextHolder.clearContext();
+        }
+    }
+
+    @Test
+    public void voteForRestaurantById_withNonExistingRestaurantId() {
+        Integer id = -1;
+        assertThatThrownBy(() -> restaurantVotingService.voteForRestaurantById(id))
+                .isInstanceOf(EntityNotFoundException.class)
+                .hasMessage("Restaurant with id=" + id + " not found.");
+    }
+
+    @Test
+    public void clearAllVotes_discardsPendingVotes() {
+        restaurantVotingService.voteForRestaurantById(1);
+        restaurantVotingService.clearAllVotes();
+        voteBuffer.flush();
+        assertThat(restaurantService.getRestaurantById(1).getVotes()).isZero();
+    }
+
+}
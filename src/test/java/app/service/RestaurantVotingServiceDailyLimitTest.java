@@ -0,0 +1,112 @@
+package app.service;
+
+import app.dao.UserVoteRepository;
+import app.service.exceptions.DuplicateVoteException;
+import app.service.exceptions.EntityNotFoundException;
+import app.service.voting.UserVoteIndex;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class RestaurantVotingServiceDailyLimitTest extends AbstractServiceTest {
+
+    @Autowired
+    private RestaurantService restaurantService;
+
+    @Autowired
+    private RestaurantVotingService restaurantVotingService;
+
+    @Autowired
+    private UserVoteRepository userVoteRepository;
+
+    @Autowired
+    private UserVoteIndex userVoteIndex;
+
+    @AfterEach
+    public void clearAuthentication() {
+        SecurityContextHolder.clearContext();
+    }
+
+    private static void authenticate(String username) {
+        SecurityContextHolder.getContext().setAuthentication(new TestingAuthenticationToken(username, username, "ROLE_USER"));
+    }
+
+    @Test
+    public void voteForRestaurantById_twiceForSameRestaurant() {
+        authenticate("user");
+        Integer initialNumberOfVotes = restaurantService.getRestaurantById(1).getVotes();
+        restaurantVotingService.voteForRestaurantById(1);
+        assertThatThrownBy(() -> restaurantVotingService.voteForRestaurantById(1))
+                .isInstanceOf(DuplicateVoteException.class)
+                .hasMessage("You have already voted for restaurant with id=1 today.");
+        assertThat(restaurantService.getRestaurantById(1).getVotes()).isEqualTo(initialNumberOfVotes + 1);
+        assertThat(userVoteRepository.findById("user").get().getRestaurantId()).isEqualTo(1);
+        assertThat(userVoteRepository.findById("user").get().getVoteDate()).isEqualTo(LocalDate.now());
+    }
+
+    @Test
+    public void voteForRestaurantById_movesVoteToAnotherRestaurant() {
+        authenticate("user");
+        Integer initialNumberOfVotes1 = restaurantService.getRestaurantById(1).getVotes();
+        Integer initialNumberOfVotes2 = restaurantService.getRestaurantById(2).getVotes();
+        restaurantVotingService.voteForRestaurantById(1);
+        restaurantVotingService.voteForRestaurantById(2);
+        assertThat(restaurantService.getRestaurantById(1).getVotes()).isEqualTo(initialNumberOfVotes1);
+        assertThat(restaurantService.getRestaurantById(2).getVotes()).isEqualTo(initialNumberOfVotes2 + 1);
+        assertThat(userVoteRepository.findById("user").get().getRestaurantId()).isEqualTo(2);
+        // The vote may be moved back
+        restaurantVotingService.voteForRestaurantById(1);
+        assertThat(restaurantService.getRestaurantById(1).getVotes()).isEqualTo(initialNumberOfVotes1 + 1);
+        assertThat(restaurantService.getRestaurantById(2).getVotes()).isEqualTo(initialNumberOfVotes2);
+    }
+
+    @Test
+    public void voteForRestaurantById_movesVoteToNonExistingRestaurant() {
+        authenticate("user");
+        Integer initialNumberOfVotes = restaurantService.getRestaurantById(1).getVotes();
+        restaurantVotingService.voteForRestaurantById(1);
+        assertThatThrownBy(() -> restaurantVotingService.voteForRestaurantById(-1))
+                .isInstanceOf(EntityNotFoundException.class);
+        assertThat(restaurantService.getRestaurantById(1).getVotes()).isEqualTo(initialNumberOfVotes + 1);
+        // Failed vote doesn't replace the previous one
+        assertThatThrownBy(() -> restaurantVotingService.voteForRestaurantById(1))
+                .isInstanceOf(DuplicateVoteException.class);
+    }
+
+    @Test
+    public void voteForRestaurantById_byDifferentUsers() {
+        Integer initialNumberOfVotes = restaurantService.getRestaurantById(1).getVotes();
+        authenticate("user");
+        restaurantVotingService.voteForRestaurantById(1);
+        authenticate("admin");
+        restaurantVotingService.voteForRestaurantById(1);
+        assertThat(restaurantService.getRestaurantById(1).getVotes()).isEqualTo(initialNumberOfVotes + 2);
+    }
+
+    @Test
+    public void voteForRestaurantById_afterReload() {
+        authenticate("user");
+        restaurantVotingService.voteForRestaurantById(1);
+        userVoteIndex.reload();
+        assertThatThrownBy(() -> restaurantVotingService.voteForRestaurantById(1))
+                .isInstanceOf(DuplicateVoteException.class);
+    }
+
+    @Test
+    public void voteForRestaurantById_afterClearAllVotes() {
+        authenticate("user");
+        restaurantVotingService.voteForRestaurantById(1);
+        restaurantVotingService.clearAllVotes();
+        restaurantVotingService.voteForRestaurantById(1);
+        assertThat(restaurantService.getRestaurantById(1).getVotes()).isEqualTo(1);
+        assertThat(restaurantService.getRestaurantById(2).getVotes()).isZero();
+    }
+
+}
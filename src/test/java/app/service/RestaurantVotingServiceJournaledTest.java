@@ -0,0 +1,82 @@
+package app.service;
+
+import app.dao.RestaurantRepository;
+import app.dao.VoteJournalCheckpointRepository;
+import app.entity.VoteJournalCheckpoint;
+import app.service.voting.VoteBuffer;
+import app.service.voting.VoteJournal;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@TestPropertySource(properties = {"voting.mode=JOURNALED", "voting.buffer.flush-interval-ms=3600000",
+        "voting.journal.directory=target/test-journal", "voting.journal.fsync-interval-ms=1"})
+public class RestaurantVotingServiceJournaledTest extends AbstractServiceTest {
+
+    @Autowired
+    private RestaurantService restaurantService;
+
+    @Autowired
+    private RestaurantVotingService restaurantVotingService;
+
+    @Autowired
+    private RestaurantRepository restaurantRepository;
+
+    @Autowired
+    private VoteJournalCheckpointRepository checkpointRepository;
+
+    @Autowired
+    private VoteBuffer voteBuffer;
+
+    @Autowired
+    private VoteJournal voteJournal;
+
+    // The journal of the previous run must not be replayed on top of the test data
+    @BeforeAll
+    public static void deleteJournal() throws IOException {
+        FileSystemUtils.deleteRecursively(Paths.get("target/test-journal"));
+    }
+
+    @Test
+    public void voteForRestaurantById_isVisibleBeforeFlush() {
+        Integer initialNumberOfVotes = restaurantService.getRestaurantById(1).getVotes();
+        restaurantVotingService.voteForRestaurantById(1);
+        assertThat(restaurantRepository.findById(1).get().getVotes()).isEqualTo(initialNumberOfVotes);
+        assertThat(restaurantService.getRestaurantById(1).getVotes()).isEqualTo(initialNumberOfVotes + 1);
+        voteBuffer.flush();
+    }
+
+    @Test
+    public void voteForRestaurantById_isWrittenByFlushWithCheckpoint() {
+        Integer initialNumberOfVotes = restaurantService.getRestaurantById(2).getVotes();
+        restaurantVotingService.voteForRestaurantById(2);
+        restaurantVotingService.voteForRestaurantById(2);
+        voteBuffer.flush();
+        assertThat(voteBuffer.getPendingVotes(2)).isZero();
+        assertThat(restaurantRepository.findById(2).get().getVotes()).isEqualTo(initialNumberOfVotes + 2);
+        assertThat(checkpointRepository.findById(VoteJournalCheckpoint.ID).get().getAppliedSequence())
+                .isEqualTo(voteJournal.getDurableSequence());
+    }
+
+    // Checkpoint of the reset database (see the test data script) doesn't belong to the journal
+    @Test
+    public void replay_skipsRecordsOfAnotherCheckpoint() {
+        restaurantVotingService.voteForRestaurantById(1);
+        voteBuffer.flush();
+        Integer numberOfVotes = restaurantRepository.findById(1).get().getVotes();
+        checkpointRepository.save(new VoteJournalCheckpoint(null, -1L));
+        voteBuffer.afterSingletonsInstantiated();
+        assertThat(restaurantRepository.findById(1).get().getVotes()).isEqualTo(numberOfVotes);
+        VoteJournalCheckpoint checkpoint = checkpointRepository.findById(VoteJournalCheckpoint.ID).get();
+        assertThat(checkpoint.getJournalId()).isEqualTo(voteJournal.getId());
+        assertThat(checkpoint.getAppliedSequence()).isEqualTo(voteJournal.getDurableSequence());
+    }
+
+}
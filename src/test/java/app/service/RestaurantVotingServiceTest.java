@@ -1,10 +1,18 @@
 package app.service;
 
 import app.entity.Restaurant;
+import app.dao.RestaurantRepository;
 import app.service.exceptions.EntityNotFoundException;
+import app.service.voting.VoteEntry;
+import app.service.voting.VoteEntryResult;
+import app.service.voting.VoteEpochManager;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
 import static app.service.validation.ValidationUtil.ENTITY_ID_MUST_NOT_BE_NULL_MESSAGE;
@@ -19,6 +27,15 @@ public class RestaurantVotingServiceTest extends AbstractServiceTest {
     @Autowired
     private RestaurantVotingService restaurantVotingService;
 
+    @Autowired
+    private RestaurantRepository restaurantRepository;
+
+    @Autowired
+    private VoteEpochManager voteEpochManager;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
     @Test
     public void voteForRestaurantById() {
         Restaurant restaurant = restaurantService.getRestaurantById(1);
@@ -44,6 +61,29 @@ public class RestaurantVotingServiceTest extends AbstractServiceTest {
                 .hasMessage("Restaurant with id=" + id + " not found.");
     }
 
+    @Test
+    public void voteInBatch() {
+        Integer initialNumberOfVotes1 = restaurantService.getRestaurantById(1).getVotes();
+        Integer initialNumberOfVotes2 = restaurantService.getRestaurantById(2).getVotes();
+        List<VoteEntryResult> results = restaurantVotingService.voteInBatch(Arrays.asList(
+                new VoteEntry(1, 3), new VoteEntry(-1, 2), new VoteEntry(2, 1), new VoteEntry(1, 2), new VoteEntry(2, 0), null));
+        assertThat(results).containsExactly(
+                new VoteEntryResult(1, 3, VoteEntryResult.Status.ACCEPTED),
+                new VoteEntryResult(-1, 2, VoteEntryResult.Status.NOT_FOUND),
+                new VoteEntryResult(2, 1, VoteEntryResult.Status.ACCEPTED),
+                new VoteEntryResult(1, 2, VoteEntryResult.Status.ACCEPTED),
+                new VoteEntryResult(2, 0, VoteEntryResult.Status.INVALID),
+                new VoteEntryResult(null, null, VoteEntryResult.Status.INVALID));
+        assertThat(restaurantService.getRestaurantById(1).getVotes()).isEqualTo(initialNumberOfVotes1 + 5);
+        assertThat(restaurantService.getRestaurantById(2).getVotes()).isEqualTo(initialNumberOfVotes2 + 1);
+    }
+
+    @Test
+    public void voteInBatch_withNullEntries() {
+        assertThatThrownBy(() -> restaurantVotingService.voteInBatch(null))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
     @Test
     public void clearAllVotes() {
         List<Restaurant> r1 = restaurantService.getAllRestaurants(null);
@@ -57,4 +97,34 @@ public class RestaurantVotingServiceTest extends AbstractServiceTest {
         });
     }
 
+    @Test
+    public void clearAllVotes_resetsStoredVotesLazily() {
+        assertThat(restaurantRepository.findById(2).get().getVotes()).isNotZero();
+        restaurantVotingService.clearAllVotes();
+        // Votes of the previous epoch are treated as zero before they are reset in the database
+        assertThat(restaurantService.getRestaurantById(1).getVotes()).isZero();
+        restaurantVotingService.voteForRestaurantById(1);
+        assertThat(restaurantService.getRestaurantById(1).getVotes()).isEqualTo(1);
+        voteEpochManager.cleanUp();
+        assertThat(restaurantRepository.findById(2).get().getVotes()).isZero();
+        assertThat(restaurantRepository.findById(2).get().getVoteEpoch()).isEqualTo(voteEpochManager.getCurrentEpoch());
+        assertThat(restaurantService.getRestaurantById(1).getVotes()).isEqualTo(1);
+    }
+
+
+    // Votes written with the epoch read before clearAllVotes() must not take the restaurant back to that epoch
+    @Test
+    public void clearAllVotes_withVotesOfPreviousEpoch() {
+        int previousEpoch = voteEpochManager.getCurrentEpoch();
+        restaurantVotingService.clearAllVotes();
+        restaurantVotingService.voteForRestaurantById(1);
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.execute(status -> restaurantRepository.addVotes(1, 1, previousEpoch));
+        transactionTemplate.execute(status -> restaurantRepository.addVotesInBatch(Collections.singletonMap(1, 1), previousEpoch));
+        transactionTemplate.execute(status -> restaurantRepository.moveVote(2, 1, previousEpoch));
+        Restaurant restaurant = restaurantRepository.findById(1).get();
+        assertThat(restaurant.getVoteEpoch()).isEqualTo(voteEpochManager.getCurrentEpoch());
+        assertThat(restaurant.getVotes()).isEqualTo(4);
+    }
+
 }
@@ -0,0 +1,81 @@
+package app.service.caching;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class DataVersionsTest {
+
+    private final DataVersions dataVersions = new DataVersions();
+
+    @Test
+    public void getRestaurantTag_ofUnchangedRestaurants_keepsNothingInMemory() {
+        String tag = dataVersions.getRestaurantTag(1);
+        for (int id = 1; id <= 1000; id++) {
+            dataVersions.getRestaurantTag(id);
+            dataVersions.getMealTag(id);
+        }
+        assertThat(dataVersions.getTrackedRestaurants()).isZero();
+        assertThat(dataVersions.getRestaurantTag(1)).isEqualTo(tag);
+    }
+
+    @Test
+    public void restaurantChanged_changesTagOfRestaurantOnly() {
+        String tag1 = dataVersions.getRestaurantTag(1);
+        String tag2 = dataVersions.getRestaurantTag(2);
+        dataVersions.restaurantChanged(1);
+        assertThat(dataVersions.getRestaurantTag(1)).isNotEqualTo(tag1);
+        assertThat(dataVersions.getRestaurantTag(2)).isEqualTo(tag2);
+        assertThat(dataVersions.getTrackedRestaurants()).isEqualTo(1);
+    }
+
+    @Test
+    public void allChanged_dropsVersionsAndChangesAllTags() {
+        dataVersions.restaurantChanged(1);
+        dataVersions.restaurantChanged(1);
+        String tag1 = dataVersions.getRestaurantTag(1);
+        String tag2 = dataVersions.getRestaurantTag(2);
+        dataVersions.allChanged();
+        assertThat(dataVersions.getTrackedRestaurants()).isZero();
+        assertThat(dataVersions.getRestaurantTag(1)).isNotEqualTo(tag1);
+        assertThat(dataVersions.getRestaurantTag(2)).isNotEqualTo(tag2);
+    }
+
+    @Test
+    public void restaurantRemoved_neverGivesBackPreviousTag() {
+        Set<String> tags = new HashSet<>();
+        tags.add(dataVersions.getRestaurantTag(1));
+        dataVersions.restaurantChanged(1);
+        tags.add(dataVersions.getRestaurantTag(1));
+        dataVersions.restaurantRemoved(1);
+        assertThat(dataVersions.getTrackedRestaurants()).isZero();
+        assertThat(tags).doesNotContain(dataVersions.getRestaurantTag(1));
+    }
+
+    @Test
+    public void restaurantRemoved_forgetsItsMeals() {
+        dataVersions.registerMeal(10, 1);
+        dataVersions.registerMeal(20, 2);
+        dataVersions.restaurantRemoved(1);
+        assertThat(dataVersions.getMealTag(10)).isNull();
+        assertThat(dataVersions.getMealTag(20)).isEqualTo(dataVersions.getRestaurantTag(2));
+        dataVersions.allMealsRemoved();
+        assertThat(dataVersions.getMealTag(20)).isNull();
+        assertThat(dataVersions.getTrackedMeals()).isZero();
+    }
+
+    @Test
+    public void mealRemoved_forgetsMealOnly() {
+        dataVersions.registerMeal(10, 1);
+        dataVersions.registerMeal(11, 1);
+        dataVersions.mealRemoved(10);
+        assertThat(dataVersions.getMealTag(10)).isNull();
+        assertThat(dataVersions.getMealTag(11)).isEqualTo(dataVersions.getRestaurantTag(1));
+        dataVersions.mealsRemoved(1);
+        assertThat(dataVersions.getTrackedMeals()).isZero();
+    }
+
+}
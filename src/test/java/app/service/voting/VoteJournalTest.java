@@ -0,0 +1,166 @@
+package app.service.voting;
+
+import app.service.exceptions.VoteNotDurableException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class VoteJournalTest {
+
+    private static final int SEGMENT_RECORDS = 4;
+
+    @TempDir
+    Path directory;
+
+    private VoteJournal openJournal() throws Exception {
+        return openJournal(1);
+    }
+
+    private VoteJournal openJournal(long fsyncIntervalMillis) throws Exception {
+        MockEnvironment env = new MockEnvironment()
+                .withProperty("voting.mode", "JOURNALED")
+                .withProperty("voting.journal.directory", directory.toString())
+                .withProperty("voting.journal.segment-records", String.valueOf(SEGMENT_RECORDS))
+                .withProperty("voting.journal.fsync-interval-ms", String.valueOf(fsyncIntervalMillis))
+                .withProperty("voting.journal.durability-timeout-ms", "50");
+        VoteJournal voteJournal = new VoteJournal(env);
+        voteJournal.afterPropertiesSet();
+        return voteJournal;
+    }
+
+    @Test
+    public void append() throws Exception {
+        VoteJournal voteJournal = openJournal();
+        assertThat(voteJournal.append(1, "user")).isEqualTo(0);
+        assertThat(voteJournal.append(2, "admin")).isEqualTo(1);
+        assertThat(voteJournal.append(1, null)).isEqualTo(2);
+        assertThat(voteJournal.getDurableSequence()).isEqualTo(2);
+        Map<Integer, Integer> votes = voteJournal.readVotes(-1, 2);
+        assertThat(votes).containsEntry(1, 2).containsEntry(2, 1).hasSize(2);
+        assertThat(voteJournal.readVotes(0, 1)).containsEntry(2, 1).hasSize(1);
+        voteJournal.destroy();
+    }
+
+    @Test
+    public void append_withSegmentRolling() throws Exception {
+        VoteJournal voteJournal = openJournal();
+        for (int i = 0; i < SEGMENT_RECORDS * 2 + 1; i++) {
+            voteJournal.append(1, "user");
+        }
+        assertThat(segmentFiles()).isEqualTo(3);
+        assertThat(voteJournal.readVotes(-1, voteJournal.getDurableSequence())).containsEntry(1, SEGMENT_RECORDS * 2 + 1);
+        voteJournal.destroy();
+    }
+
+    @Test
+    public void replay_afterReopening() throws Exception {
+        VoteJournal voteJournal = openJournal();
+        for (int i = 0; i < SEGMENT_RECORDS + 2; i++) {
+            voteJournal.append(i % 2 + 1, "user");
+        }
+        voteJournal.destroy();
+
+        VoteJournal reopenedJournal = openJournal();
+        assertThat(reopenedJournal.getDurableSequence()).isEqualTo(SEGMENT_RECORDS + 1);
+        assertThat(reopenedJournal.readVotes(-1, reopenedJournal.getDurableSequence()))
+                .containsEntry(1, 3)
+                .containsEntry(2, 3);
+        assertThat(reopenedJournal.append(1, "user")).isEqualTo(SEGMENT_RECORDS + 2);
+        reopenedJournal.destroy();
+    }
+
+    @Test
+    public void replay_withTornRecord() throws Exception {
+        VoteJournal voteJournal = openJournal();
+        voteJournal.append(1, "user");
+        voteJournal.append(2, "user");
+        voteJournal.destroy();
+
+        // Corrupt the checksum of the second record as if the process crashed in the middle of the write
+        try (Stream<Path> files = segments();
+             RandomAccessFile file = new RandomAccessFile(files.findFirst().get().toFile(), "rw")) {
+            long position = VoteJournal.RECORD_SIZE * 2 - 1;
+            file.seek(position);
+            int lastByte = file.read();
+            file.seek(position);
+            file.write(lastByte ^ 0xFF);
+        }
+
+        VoteJournal reopenedJournal = openJournal();
+        assertThat(reopenedJournal.getDurableSequence()).isEqualTo(0);
+        assertThat(reopenedJournal.readVotes(-1, 0)).containsEntry(1, 1).hasSize(1);
+        reopenedJournal.destroy();
+    }
+
+    @Test
+    public void compact() throws Exception {
+        VoteJournal voteJournal = openJournal();
+        for (int i = 0; i < SEGMENT_RECORDS * 2 + 1; i++) {
+            voteJournal.append(1, "user");
+        }
+        voteJournal.compact(SEGMENT_RECORDS - 1);
+        assertThat(segmentFiles()).isEqualTo(2);
+        // Segment of unapplied records is never removed
+        voteJournal.compact(SEGMENT_RECORDS);
+        assertThat(segmentFiles()).isEqualTo(2);
+        voteJournal.destroy();
+    }
+
+    @Test
+    public void append_withDurabilityTimeout() throws Exception {
+        // No commit happens before the timeout
+        VoteJournal voteJournal = openJournal(3600000);
+        assertThatThrownBy(() -> voteJournal.append(1, "user")).isInstanceOf(VoteNotDurableException.class);
+        voteJournal.destroy();
+        assertThat(voteJournal.getDurableSequence()).isEqualTo(0);
+        assertThat(voteJournal.readVotes(-1, 0)).isEmpty();
+
+        // Voided record is not taken for the torn end of the journal
+        VoteJournal reopenedJournal = openJournal();
+        assertThat(reopenedJournal.append(2, "user")).isEqualTo(1);
+        assertThat(reopenedJournal.readVotes(-1, 1)).containsEntry(2, 1).hasSize(1);
+        reopenedJournal.destroy();
+    }
+
+    @Test
+    public void id_isKeptUntilJournalStartsOver() throws Exception {
+        VoteJournal voteJournal = openJournal();
+        voteJournal.append(1, "user");
+        voteJournal.destroy();
+
+        VoteJournal reopenedJournal = openJournal();
+        assertThat(reopenedJournal.getId()).isEqualTo(voteJournal.getId());
+        reopenedJournal.destroy();
+
+        // Sequence of the journal without segments starts from 0 again
+        try (Stream<Path> files = segments()) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Files.delete(file);
+            }
+        }
+        VoteJournal newJournal = openJournal();
+        assertThat(newJournal.getId()).isNotEqualTo(voteJournal.getId());
+        assertThat(newJournal.append(1, "user")).isEqualTo(0);
+        newJournal.destroy();
+    }
+
+    private long segmentFiles() throws Exception {
+        try (Stream<Path> files = segments()) {
+            return files.count();
+        }
+    }
+
+    private Stream<Path> segments() throws Exception {
+        return Files.list(directory).filter(file -> file.getFileName().toString().endsWith(".journal"));
+    }
+
+}